@@ -0,0 +1,44 @@
+import product.Category;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalogs of a given size for the benchmarks.
+ */
+public class Catalogs {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Builds a vending machine with the given number of products. Size 15 is the built-in catalog; larger sizes are
+     * synthetic products named "Product &lt;id&gt;".
+     *
+     * @param size The number of products.
+     * @return the vending machine.
+     */
+    public static VendingMachine machine(int size) {
+
+        if (size == 15) {
+            return new VendingMachine();
+        }
+
+        List<Product> products = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            products.add(new Product(id, "Product " + id, 1 + (id % 7) * 0.5, 10, CATEGORIES[id % CATEGORIES.length]));
+        }
+        return new VendingMachine(products);
+
+    }
+
+    /**
+     * @param size The number of products.
+     * @param id A product ID below size.
+     * @return the name the product with that ID has in a catalog of the given size.
+     */
+    public static String name(int size, int id) {
+        return size == 15 ? new VendingMachine().getProduct(String.valueOf(id)).getName() : "Product " + id;
+    }
+
+}
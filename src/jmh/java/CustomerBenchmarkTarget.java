@@ -0,0 +1,67 @@
+import benchmarks.CustomerOperations;
+import money.Money;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Main calls for benchmarks.MainBenchmark.
+ */
+public class CustomerBenchmarkTarget implements CustomerOperations {
+
+    private PrintStream stdout;
+    private Main main;
+    private String fillCommand;
+    private Money singleCoin;
+    private Money unreachable;
+
+    @Override
+    public void setup(int size) {
+
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        main = new Main(Catalogs.machine(size), new InputReader(new ByteArrayInputStream(new byte[0])));
+        fillCommand = "FILL " + (size - 1) + " admin";
+        singleCoin = Money.parse("0.1");
+        unreachable = Money.ofCents(Long.MAX_VALUE / 2);
+
+    }
+
+    @Override
+    public void teardown() {
+        System.setOut(stdout);
+    }
+
+    @Override
+    public void handleInputHelp() throws Exception {
+        main.handleInput("HELP");
+    }
+
+    @Override
+    public void handleInputInvalidSelection() throws Exception {
+        main.handleInput("no such product");
+    }
+
+    @Override
+    public void handleInputFill() throws Exception {
+        main.handleInput(fillCommand);
+    }
+
+    @Override
+    public void resetPayment() {
+        main.cancel();
+    }
+
+    @Override
+    public boolean paymentComplete() throws Exception {
+        return main.payment(singleCoin, "0.1");
+    }
+
+    @Override
+    public boolean paymentOwing() throws Exception {
+        return main.payment(unreachable, "0.1");
+    }
+
+}
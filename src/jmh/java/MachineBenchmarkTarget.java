@@ -0,0 +1,66 @@
+import benchmarks.MachineOperations;
+import money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VendingMachine calls for benchmarks.VendingMachineBenchmark.
+ */
+public class MachineBenchmarkTarget implements MachineOperations {
+
+    private VendingMachine vm;
+    private String lastId;
+    private String lastName;
+    private List<TransactionPair> selections;
+    private long priceCents;
+
+    @Override
+    public void setup(int size) {
+
+        vm = Catalogs.machine(size);
+
+        // look up the product with the highest ID, which a linear scan reaches last
+        lastId = String.valueOf(size - 1);
+        lastName = Catalogs.name(size, size - 1).toUpperCase();
+
+        selections = new ArrayList<>();
+        for (int id = 0; id < 5; id++) {
+            selections.add(new TransactionPair(vm.getProduct(String.valueOf(id)), 1 + id));
+        }
+
+    }
+
+    @Override
+    public Object getProductById() {
+        return vm.getProduct(lastId);
+    }
+
+    @Override
+    public Object getProductByName() {
+        return vm.getProduct(lastName);
+    }
+
+    @Override
+    public String displayProducts() {
+        return vm.displayProducts(false);
+    }
+
+    @Override
+    public String displayProductsAfterChange() {
+        priceCents = priceCents == 100 ? 200 : 100;
+        vm.getProduct(lastId).setPrice(Money.ofCents(priceCents));
+        return vm.displayProducts(false);
+    }
+
+    @Override
+    public Object displaySelections() {
+        return vm.displaySelections(selections);
+    }
+
+    @Override
+    public Object grandTotal() {
+        return vm.grandTotal(selections);
+    }
+
+}
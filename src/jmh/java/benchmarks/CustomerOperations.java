@@ -0,0 +1,41 @@
+package benchmarks;
+
+/**
+ * The Main hot paths measured by MainBenchmark.
+ */
+public interface CustomerOperations {
+
+    /**
+     * Builds a Main over a machine with the given number of products, discarding console output.
+     *
+     * @param size The number of products.
+     */
+    void setup(int size);
+
+    /**
+     * Restores console output.
+     */
+    void teardown();
+
+    void handleInputHelp() throws Exception;
+
+    void handleInputInvalidSelection() throws Exception;
+
+    void handleInputFill() throws Exception;
+
+    /**
+     * Cancels the transaction, so the next payment starts with nothing paid.
+     */
+    void resetPayment();
+
+    /**
+     * Inserts a coin that completes the payment.
+     */
+    boolean paymentComplete() throws Exception;
+
+    /**
+     * Inserts a coin that leaves the customer still owing.
+     */
+    boolean paymentOwing() throws Exception;
+
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+/**
+ * The VendingMachine hot paths measured by VendingMachineBenchmark.
+ */
+public interface MachineOperations {
+
+    /**
+     * Builds a machine with the given number of products, and a five-line cart.
+     *
+     * @param size The number of products.
+     */
+    void setup(int size);
+
+    Object getProductById();
+
+    Object getProductByName();
+
+    String displayProducts();
+
+    /**
+     * Changes one product's price, then renders the listing.
+     */
+    String displayProductsAfterChange();
+
+    Object displaySelections();
+
+    Object grandTotal();
+
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for customer command dispatch and payment in Main. Console output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainBenchmark {
+
+    /**
+     * Owing payments between resets. Paid coins are held in escrow until the transaction ends, so paymentOwing cancels
+     * its transaction this often to keep the escrow small; the reset's cost is spread over this many calls.
+     */
+    private static final int PAYMENTS_PER_RESET = 1024;
+
+    @Param({"15", "1000", "100000"})
+    public int size;
+
+    private CustomerOperations target;
+
+    /**
+     * The owing payments made since the transaction was last reset.
+     */
+    @State(Scope.Thread)
+    public static class Payment {
+
+        private int owing;
+    }
+
+    @Setup
+    public void setup() {
+        target = Targets.load("CustomerBenchmarkTarget", CustomerOperations.class);
+        target.setup(size);
+    }
+
+    @TearDown
+    public void teardown() {
+        target.teardown();
+    }
+
+    @Benchmark
+    public void handleInputHelp() throws Exception {
+        target.handleInputHelp();
+    }
+
+    @Benchmark
+    public void handleInputInvalidSelection() throws Exception {
+        target.handleInputInvalidSelection();
+    }
+
+    @Benchmark
+    public void handleInputFill() throws Exception {
+        target.handleInputFill();
+    }
+
+    @Benchmark
+    public boolean paymentComplete() throws Exception {
+        return target.paymentComplete();
+    }
+
+    @Benchmark
+    public boolean paymentOwing(Payment payment) throws Exception {
+        if (++payment.owing == PAYMENTS_PER_RESET) {
+            payment.owing = 0;
+            target.resetPayment();
+        }
+        return target.paymentOwing();
+    }
+
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+/**
+ * Loads benchmark targets.
+ * <p>
+ * JMH only accepts benchmark classes in a named package, and the vending classes live in the default package, which
+ * named packages cannot import. Each benchmark therefore calls a small target class in the default package through an
+ * interface. The target is loaded once per trial, and the interface call is monomorphic, so it is inlined.
+ */
+final class Targets {
+
+    private Targets() {
+    }
+
+    /**
+     * Instantiates a default-package target class.
+     *
+     * @param className The name of the class.
+     * @param type The interface it implements.
+     * @return a new instance.
+     */
+    static <T> T load(String className, Class<T> type) {
+
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load benchmark target " + className, e);
+        }
+
+    }
+
+}
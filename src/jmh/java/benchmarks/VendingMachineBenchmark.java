@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for product lookup, listings and cart totals on VendingMachine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VendingMachineBenchmark {
+
+    @Param({"15", "1000", "100000"})
+    public int size;
+
+    private MachineOperations target;
+
+    @Setup
+    public void setup() {
+        target = Targets.load("MachineBenchmarkTarget", MachineOperations.class);
+        target.setup(size);
+    }
+
+    @Benchmark
+    public Object getProductById() {
+        return target.getProductById();
+    }
+
+    @Benchmark
+    public Object getProductByName() {
+        return target.getProductByName();
+    }
+
+    @Benchmark
+    public String displayProducts() {
+        return target.displayProducts();
+    }
+
+    @Benchmark
+    public String displayProductsAfterChange() {
+        return target.displayProductsAfterChange();
+    }
+
+    @Benchmark
+    public Object displaySelections() {
+        return target.displaySelections();
+    }
+
+    @Benchmark
+    public Object grandTotal() {
+        return target.grandTotal();
+    }
+
+}
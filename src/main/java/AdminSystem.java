@@ -1,27 +1,81 @@
 import exceptions.CancellationException;
 import exceptions.TimeoutException;
+import money.Money;
+import product.Category;
+import product.Product;
 
+import java.io.PrintStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AdminSystem {
 
+    /**
+     * The most products a batch restock names; more are only counted.
+     */
+    private static final int MAX_NAMES_LISTED = 10;
+
+    /**
+     * Admin commands. Unknown commands, and commands with the wrong number of arguments, are ignored.
+     */
+    private static final CommandRegistry<AdminSystem> COMMANDS = new CommandRegistry<AdminSystem>((a, line) -> { })
+            .register("AVAILABLE", 0, (a, line) -> a.displayProducts())
+            .register("CASH", 0, (a, line) -> a.displayCash())
+            .register("SALES", 0, (a, line) -> a.displaySales())
+            .register("PLAN", 0, (a, line) -> a.displayRestockPlan())
+            .register("QUEUE", 0, (a, line) -> a.displayRestockQueue())
+            .register("ADDADMIN", 1, (a, line) -> a.addAdminId(line.argument(0)))
+            .register("REMOVEADMIN", 1, (a, line) -> a.removeAdminId(line.argument(0)))
+            .register("FILL", CommandRegistry.ANY, AdminSystem::fill)
+            .register("PRICE", 2, (a, line) -> a.setPrice(line.argument(0), line.argument(1)))
+            .register("END", CommandRegistry.ANY, (a, line) -> {
+                throw new CancellationException();
+            });
+
     /**
      * Store admin IDs in a set of string
      */
     private Set<String> adminIDs;
     private VendingMachine vendingMachine;
+    private Journal journal;
+    private PrintStream out;
 
     /**
      * Constructor.
      */
     public AdminSystem() {
-        adminIDs = new HashSet<>();
+        // sessions on many threads check and change admin IDs
+        adminIDs = ConcurrentHashMap.newKeySet();
         adminIDs.add("admin");
     }
 
+    /**
+     * Returns a view of this admin system that writes its messages to the given stream instead of System.out. The
+     * view shares the admin IDs, vending machine and journal set on this admin system when it is created.
+     *
+     * @param out Where to write admin messages, e.g. a remote terminal.
+     * @return the view.
+     */
+    public AdminSystem withOutput(PrintStream out) {
+
+        AdminSystem view = new AdminSystem();
+        view.adminIDs = adminIDs;
+        view.vendingMachine = vendingMachine;
+        view.journal = journal;
+        view.out = out;
+        return view;
+
+    }
+
+    /**
+     * @return where admin messages are written.
+     */
+    private PrintStream out() {
+        return out != null ? out : System.out;
+    }
+
     /**
      * Add an admin ID to the system.
      *
@@ -31,11 +85,15 @@ public class AdminSystem {
      */
     public boolean addAdminId(String id) {
 
-        if (adminIDs.add(id)) {
-            System.out.printf("\nAdmin id \"%s\" has been successfully added to the system!\n", id);
+        boolean changed = journal == null
+                ? adminIDs.add(id)
+                : journal.change(() -> adminIDs.add(id), () -> journal.addAdmin(id));
+
+        if (changed) {
+            out().printf("\nAdmin id \"%s\" has been successfully added to the system!\n", id);
             return true;
         } else {
-            System.out.printf("\nAdmin id \"%s\" has been already stored in the system!\n", id);
+            out().printf("\nAdmin id \"%s\" has been already stored in the system!\n", id);
             return false;
         }
 
@@ -48,11 +106,15 @@ public class AdminSystem {
      */
     public boolean removeAdminId(String id) {
 
-        if (adminIDs.remove(id)) {
-            System.out.printf("\nAdmin id \"%s\" has been successfully removed from the system!\n", id);
+        boolean changed = journal == null
+                ? adminIDs.remove(id)
+                : journal.change(() -> adminIDs.remove(id), () -> journal.removeAdmin(id));
+
+        if (changed) {
+            out().printf("\nAdmin id \"%s\" has been successfully removed from the system!\n", id);
             return true;
         } else {
-            System.out.printf("\nAdmin id \"%s\" does not exist in the system!\n", id);
+            out().printf("\nAdmin id \"%s\" does not exist in the system!\n", id);
             return false;
         }
 
@@ -62,54 +124,54 @@ public class AdminSystem {
      * Display all products.
      */
     public void displayProducts() {
-        System.out.println(vendingMachine.displayProducts(true));
+        out().println(vendingMachine.displayProducts(true));
     }
 
     /**
-     * @return the set of admin IDs
+     * Display sales by product, category and hour.
      */
-    public Set<String> getAdminIDs() {
-        return adminIDs;
+    public void displaySales() {
+        out().println(vendingMachine.getMetrics().getSales().report());
     }
 
-    public boolean availableAdminId(String id) {
-        return adminIDs.contains(id);
+    /**
+     * Display the coins and notes in the cash box.
+     */
+    public void displayCash() {
+        out().println(vendingMachine.getCashBox());
     }
 
-    public void adminOperations() {
-
-        while (true) {
-
-            try {
-                run();
-            } catch (TimeoutException e) {
-
-                System.out.println("\n\n\n [!] Transaction cancelled due to user inactivity. [!]\n");
-                return;
-
-            } catch (CancellationException e) {
-
-                System.out.println("\n\nYou are exiting admin mode\n===========================\n");
-                return;
+    /**
+     * Display how many units each product needs.
+     */
+    public void displayRestockPlan() {
+        out().println(vendingMachine.restockPlan());
+    }
 
-            }
+    /**
+     * Display the products in the order they are projected to run out, including every sale made so far.
+     */
+    public void displayRestockQueue() {
 
+        RestockScheduler scheduler = vendingMachine.getRestockScheduler();
+        try {
+            scheduler.awaitUpdates();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        out().println(scheduler);
 
     }
 
     /**
-     * Driver function, attempts to read and interpret user input.
+     * @return the set of admin IDs
      */
-    public void run() throws TimeoutException, CancellationException {
-
-        String input = awaitInput();
-        if (input == null) {
-            throw new TimeoutException();
-        }
-
-        handleInput(input);
+    public Set<String> getAdminIDs() {
+        return adminIDs;
+    }
 
+    public boolean availableAdminId(String id) {
+        return adminIDs.contains(id);
     }
 
     /**
@@ -119,26 +181,20 @@ public class AdminSystem {
      * @throws CancellationException Exception when admin types "END" to exit admin mode.
      */
     public void handleInput(String userInput) throws TimeoutException, CancellationException {
-        String[] inputArray = userInput.split(" ");
-        String command = inputArray[0];
-        String[] arguments = Arrays.copyOfRange(inputArray, 1, inputArray.length);
-
-        if (command.equalsIgnoreCase("AVAILABLE") && arguments.length == 0) {
-            displayProducts();
-
-        } else if (command.equalsIgnoreCase("ADDADMIN") && arguments.length == 1) {
-            addAdminId(arguments[0]);
-
-        } else if (command.equalsIgnoreCase("REMOVEADMIN") && arguments.length == 1) {
-            removeAdminId(arguments[0]);
-
-        } else if (command.equalsIgnoreCase("FILL") && arguments.length == 1) {
-            fill(arguments[0]);
+        handleInput(new CommandLine().parse(userInput));
+    }
 
-        } else if (command.equalsIgnoreCase("END")) {
-            throw new CancellationException();
+    /**
+     * Handle an admin input line that has already been tokenized.
+     * @param line The tokenized input line.
+     * @throws TimeoutException Exception after 30 seconds of inactivity.
+     * @throws CancellationException Exception when admin types "END" to exit admin mode.
+     */
+    public void handleInput(CommandLine line) throws TimeoutException, CancellationException {
+        Command<AdminSystem> command = COMMANDS.lookup(line);
+        if (command != null) {
+            command.execute(this, line);
         }
-
     }
 
     /**
@@ -151,38 +207,107 @@ public class AdminSystem {
         if (restocked) {
             DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
             LocalDateTime now = LocalDateTime.now();
-            System.out.println(String.format("Product %s successfully restocked at %s\n", product, dtf.format(now)));
+            out().println(String.format("Product %s successfully restocked at %s\n", product, dtf.format(now)));
         } else {
-            System.out.println(String.format("%s is not a valid product or product ID. Restock failed.\n", product));
+            out().println(String.format("%s is not a valid product or product ID. Restock failed.\n", product));
           
         }
     }
 
     /**
-     * Internal method for input retrieval.
+     * Handles FILL ALL, FILL CATEGORY &lt;category&gt;, FILL &lt;product&gt; and FILL &lt;product&gt; &lt;product&gt; ....
+     * Each restocks its products as one batch.
      *
-     * @return a String if the user enters any input, otherwise null.
+     * @param line The tokenized FILL command.
      */
-    private String awaitInput() {
+    private void fill(CommandLine line) {
+
+        int arguments = line.arguments();
+
+        if (arguments == 0) {
+            return;
+        } else if (arguments == 1 && line.argument(0).equalsIgnoreCase("ALL")) {
+            restocked("All products", vendingMachine.fillAll());
+            return;
+        } else if (arguments == 2 && line.argument(0).equalsIgnoreCase("CATEGORY")) {
+            Category category = Category.forName(line.argument(1));
+            if (category == null) {
+                out().println(String.format("%s is not a valid category. Restock failed.\n", line.argument(1)));
+            } else {
+                restocked("Category " + category, vendingMachine.fillCategory(category));
+            }
+            return;
+        } else if (arguments == 1) {
+            fill(line.argument(0));
+            return;
+        }
 
-        System.out.print("> ");
-        Scanner scanner = new Scanner(System.in);
+        Set<Product> products = new LinkedHashSet<>();
+        for (int i = 0; i < arguments; i++) {
+            Product p = vendingMachine.getProduct(line.argument(i));
+            if (p == null) {
+                out().println(String.format("%s is not a valid product or product ID. Restock failed.\n",
+                        line.argument(i)));
+            } else {
+                products.add(p);
+            }
+        }
+        if (!products.isEmpty()) {
+            restocked("Products", vendingMachine.fill(new ArrayList<>(products)));
+        }
 
-        ExecutorService executor = Executors.newCachedThreadPool();
-        Callable<String> task = scanner::nextLine;
+    }
 
-        Future<String> future = executor.submit(task);
+    /**
+     * Prints one line, with one timestamp, for a batch restock. The products are named only if there are at most
+     * MAX_NAMES_LISTED of them, so filling a large catalog prints a count rather than every name.
+     */
+    private void restocked(String what, List<Product> products) {
 
-        try {
-            return future.get();
-        } catch (InterruptedException | ExecutionException e) {
-            return null;
+        String listed = "";
+        if (products.size() <= MAX_NAMES_LISTED) {
+            StringJoiner names = new StringJoiner(", ", ": ", "");
+            for (Product p : products) {
+                names.add(p.getName());
+            }
+            listed = names.toString();
         }
 
+        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+        LocalDateTime now = LocalDateTime.now();
+        out().println(String.format("%s successfully restocked at %s (%d product(s)%s)\n", what,
+                dtf.format(now), products.size(), listed));
+
+    }
+
+    /**
+     * Changes the price of the specified product.
+     *
+     * @param product The name or ID of the product.
+     * @param price The new price, e.g. "3.50".
+     */
+    public void setPrice(String product, String price) {
+        Money newPrice = Money.parse(price);
+        if (newPrice == null || newPrice.cents() <= 0) {
+            out().println(String.format("%s is not a valid price.\n", price));
+        } else if (vendingMachine.setPrice(product, newPrice)) {
+            out().println(String.format("Product %s now costs %s\n", product, newPrice));
+        } else {
+            out().println(String.format("%s is not a valid product or product ID. Price change failed.\n", product));
+        }
     }
 
     public void setVendingMachine(VendingMachine vendingMachine) {
         this.vendingMachine = vendingMachine;
     }
 
+    /**
+     * Sets the journal that admin changes are recorded in. Replay the journal before setting it.
+     *
+     * @param journal The journal, or null to stop journaling.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
 }
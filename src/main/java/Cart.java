@@ -0,0 +1,162 @@
+import money.Money;
+import product.Product;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A customer's selections, keyed by product ID, in the order they were first selected.
+ * <p>
+ * Each line keeps the unit price at the time the product was selected, and the cart keeps a running total as lines
+ * change, so neither merging a repeat selection nor reaching payment walks the cart.
+ */
+public class Cart {
+
+    /**
+     * A cart line, priced at the time its product was selected.
+     */
+    private static class Line extends TransactionPair {
+
+        private final long unitCents;
+
+        private Line(Product product, int quantity) {
+            super(product, quantity);
+            this.unitCents = product.getPrice().cents();
+        }
+
+        @Override
+        public Money getTotalPrice() {
+            return Money.ofCents(unitCents * getQuantity());
+        }
+    }
+
+    private Map<Integer, Line> lines;
+    private long totalCents;
+
+    /**
+     * Constructor.
+     */
+    public Cart() {
+        this.lines = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds units of a product, merging with any line already holding it.
+     *
+     * @param product The product selected.
+     * @param quantity The number of units to add.
+     */
+    public void add(Product product, int quantity) {
+
+        Line line = lines.get(product.getId());
+        if (line == null) {
+            line = new Line(product, quantity);
+            lines.put(product.getId(), line);
+        } else {
+            line.increaseQuantity(quantity);
+        }
+        totalCents += line.unitCents * quantity;
+
+    }
+
+    /**
+     * Removes a product's line.
+     *
+     * @param product The product to remove.
+     * @return the number of units removed, or 0 if the product was not in the cart.
+     */
+    public int remove(Product product) {
+
+        Line line = lines.remove(product.getId());
+        if (line == null) {
+            return 0;
+        }
+        totalCents -= line.unitCents * line.getQuantity();
+        return line.getQuantity();
+
+    }
+
+    /**
+     * Sets the number of units of a product already in the cart. A quantity of 0 removes the line.
+     *
+     * @param product The product.
+     * @param quantity The new number of units.
+     * @return whether the product was in the cart.
+     */
+    public boolean setQuantity(Product product, int quantity) {
+
+        Line line = lines.get(product.getId());
+        if (line == null) {
+            return false;
+        }
+        if (quantity <= 0) {
+            remove(product);
+            return true;
+        }
+
+        totalCents += line.unitCents * (quantity - line.getQuantity());
+        line.increaseQuantity(quantity - line.getQuantity());
+        return true;
+
+    }
+
+    /**
+     * @param product A product.
+     * @return the number of units of the product in the cart.
+     */
+    public int getQuantity(Product product) {
+        Line line = lines.get(product.getId());
+        return line == null ? 0 : line.getQuantity();
+    }
+
+    /**
+     * @return the total price of the cart.
+     */
+    public Money getTotal() {
+        return Money.ofCents(totalCents);
+    }
+
+    /**
+     * @return whether the cart is empty.
+     */
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * @return a read-only view of the cart's lines, in the order they were first selected.
+     */
+    public Collection<TransactionPair> getSelections() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    /**
+     * Empties the cart.
+     */
+    public void clear() {
+        lines.clear();
+        totalCents = 0;
+    }
+
+    /**
+     * @return one line per product with its quantity, unit price and line total.
+     */
+    public String render() {
+
+        StringBuilder display = new StringBuilder();
+
+        for (Line line : lines.values()) {
+            display.append("[ID ").append(line.getProduct().getId()).append("] ")
+                    .append(line.getProduct().getName())
+                    .append(" - quantity ").append(line.getQuantity())
+                    .append(" @ ").append(Money.format(line.unitCents))
+                    .append(" each = total ").append(Money.format(line.unitCents * line.getQuantity()))
+                    .append('\n');
+        }
+        return display.toString();
+
+    }
+
+}
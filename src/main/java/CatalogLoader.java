@@ -0,0 +1,224 @@
+import money.Money;
+import product.Category;
+import product.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Streams a product catalog from CSV into a vending machine.
+ * <p>
+ * Each line is one product: {@code id,name,price,quantity,category[,capacity[,parLevel]]}. The capacity defaults
+ * to the default capacity or the quantity, whichever is larger, and the par level to half the capacity. Names
+ * containing commas or quotes are written in double quotes, with quotes doubled. Blank lines, lines starting with
+ * '#', and a header line starting with "id," are skipped.
+ * <p>
+ * Lines are parsed in place by offset and each product goes straight into the machine's index, so memory use is the
+ * products themselves plus one line of text, however large the catalog.
+ */
+public class CatalogLoader {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Number of comma-separated fields on the longest line.
+     */
+    private static final int MAX_FIELDS = 7;
+
+    private int[] starts;
+    private int[] ends;
+    private StringBuilder unquoted;
+    private long lineNumber;
+
+    /**
+     * Constructor.
+     */
+    public CatalogLoader() {
+        this.starts = new int[MAX_FIELDS];
+        this.ends = new int[MAX_FIELDS];
+        this.unquoted = new StringBuilder();
+    }
+
+    /**
+     * Builds a vending machine stocked from a catalog file.
+     *
+     * @param file The CSV catalog.
+     * @return the vending machine.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is not a valid product.
+     */
+    public static VendingMachine load(Path file) throws IOException {
+
+        VendingMachine vendingMachine = new VendingMachine(Collections.emptyList());
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            new CatalogLoader().load(reader, vendingMachine);
+        }
+        return vendingMachine;
+
+    }
+
+    /**
+     * Adds every product in a catalog to a vending machine.
+     *
+     * @param in The CSV catalog.
+     * @param vendingMachine The machine to add the products to.
+     * @return the number of products added.
+     * @throws IOException If the catalog cannot be read.
+     * @throws IllegalArgumentException If a line is not a valid product.
+     */
+    public long load(Reader in, VendingMachine vendingMachine) throws IOException {
+
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        long added = 0;
+        lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#' || line.regionMatches(true, 0, "id,", 0, 3)) {
+                continue;
+            }
+
+            vendingMachine.addProduct(parse(line));
+            added++;
+
+        }
+
+        return added;
+
+    }
+
+    /**
+     * Parses one catalog line.
+     */
+    private Product parse(String line) {
+
+        int fields = split(line);
+        if (fields < 5) {
+            throw invalid("expected at least 5 fields, found " + fields);
+        }
+
+        int id = (int) parseLong(line, 0, Integer.MAX_VALUE, "ID");
+        String name = name(line);
+        long cents = Money.parseCents(line, starts[2], ends[2]);
+        if (cents == Money.INVALID || cents <= 0) {
+            throw invalid("invalid price");
+        }
+        int quantity = (int) parseLong(line, 3, Integer.MAX_VALUE, "quantity");
+        Category category = category(line, 4);
+        int capacity = fields > 5 ? (int) parseLong(line, 5, Integer.MAX_VALUE, "capacity")
+                : Math.max(Product.DEFAULT_CAPACITY, quantity);
+        int parLevel = fields > 6 ? (int) parseLong(line, 6, capacity, "par level") : capacity / 2;
+
+        try {
+            return new Product(id, name, Money.ofCents(cents), quantity, capacity, parLevel, category);
+        } catch (IllegalArgumentException e) {
+            throw invalid(e.getMessage());
+        }
+
+    }
+
+    /**
+     * Finds the offsets of each field. Commas inside double quotes do not separate fields.
+     *
+     * @return the number of fields.
+     */
+    private int split(String line) {
+
+        int fields = 0;
+        int start = 0;
+        boolean quoted = false;
+
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || (line.charAt(i) == ',' && !quoted)) {
+                if (fields == MAX_FIELDS) {
+                    throw invalid("too many fields");
+                }
+                starts[fields] = start;
+                ends[fields] = i;
+                fields++;
+                start = i + 1;
+            } else if (line.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+
+        return fields;
+
+    }
+
+    /**
+     * @return the name field, without its quotes if it has them.
+     */
+    private String name(String line) {
+
+        int start = starts[1];
+        int end = ends[1];
+
+        if (end - start < 2 || line.charAt(start) != '"' || line.charAt(end - 1) != '"') {
+            if (start == end) {
+                throw invalid("missing name");
+            }
+            return line.substring(start, end);
+        }
+
+        unquoted.setLength(0);
+        for (int i = start + 1; i < end - 1; i++) {
+            char c = line.charAt(i);
+            unquoted.append(c);
+            if (c == '"') {
+                // a doubled quote stands for one
+                i++;
+            }
+        }
+        return unquoted.toString();
+
+    }
+
+    private long parseLong(String line, int field, long max, String what) {
+
+        int start = starts[field];
+        int end = ends[field];
+        if (start == end) {
+            throw invalid("missing " + what);
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid("invalid " + what);
+            }
+            value = value * 10 + digit;
+            if (value > max) {
+                throw invalid(what + " out of range");
+            }
+        }
+        return value;
+
+    }
+
+    private Category category(String line, int field) {
+
+        int start = starts[field];
+        int length = ends[field] - start;
+        for (Category c : CATEGORIES) {
+            if (c.name().length() == length && line.regionMatches(true, start, c.name(), 0, length)) {
+                return c;
+            }
+        }
+        throw invalid("unknown category");
+
+    }
+
+    private IllegalArgumentException invalid(String reason) {
+        return new IllegalArgumentException("Catalog line " + lineNumber + ": " + reason);
+    }
+
+}
@@ -0,0 +1,20 @@
+import exceptions.CancellationException;
+
+/**
+ * A command registered in a CommandRegistry.
+ *
+ * @param <T> The type the command runs against, e.g. Session or AdminSystem.
+ */
+@FunctionalInterface
+public interface Command<T> {
+
+    /**
+     * Runs the command.
+     *
+     * @param target The session or admin system that received the command.
+     * @param line The tokenized input line; token 0 is the command's verb.
+     * @throws CancellationException Exception thrown when the command ends the transaction or admin mode.
+     */
+    void execute(T target, CommandLine line) throws CancellationException;
+
+}
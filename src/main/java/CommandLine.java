@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * A line of input split into space-separated tokens, held as offsets into the line so that tokenizing allocates
+ * nothing. One instance is reused for every line its owner reads.
+ * <p>
+ * Tokens follow String.split(" "): consecutive spaces give empty tokens, and trailing empty tokens are dropped.
+ */
+public class CommandLine {
+
+    private String text;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    /**
+     * Constructor.
+     */
+    public CommandLine() {
+        this.starts = new int[4];
+        this.ends = new int[4];
+    }
+
+    /**
+     * Tokenizes a line, replacing the previous one.
+     *
+     * @param text The input line.
+     * @return this CommandLine.
+     */
+    public CommandLine parse(String text) {
+
+        this.text = text;
+        count = 0;
+
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ' ') {
+                add(start, i);
+                start = i + 1;
+            }
+        }
+        add(start, text.length());
+
+        // drop trailing empty tokens
+        while (count > 0 && starts[count - 1] == ends[count - 1]) {
+            count--;
+        }
+
+        return this;
+
+    }
+
+    private void add(int start, int end) {
+
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+
+    }
+
+    /**
+     * @return the whole input line.
+     */
+    public String text() {
+        return text;
+    }
+
+    /**
+     * @return the number of tokens, including the verb.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of tokens after the verb.
+     */
+    public int arguments() {
+        return Math.max(0, count - 1);
+    }
+
+    /**
+     * @param i The argument's position after the verb, starting at 0.
+     * @return the argument.
+     */
+    public String argument(int i) {
+        return text.substring(starts[i + 1], ends[i + 1]);
+    }
+
+    /**
+     * @param i A token's position.
+     * @return the offset of the token's first character.
+     */
+    int start(int i) {
+        return starts[i];
+    }
+
+    /**
+     * @param i A token's position.
+     * @return the offset just past the token's last character.
+     */
+    int end(int i) {
+        return ends[i];
+    }
+
+}
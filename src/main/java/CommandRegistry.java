@@ -0,0 +1,124 @@
+/**
+ * A case-insensitive table of command verbs.
+ * <p>
+ * Verbs are kept in an open-addressing hash table keyed on their upper-cased characters, and looked up straight from
+ * the offsets of a CommandLine's first token, so dispatch costs one hash of the verb and one comparison whatever the
+ * number of commands. New commands are added with register() rather than another branch in an if-chain.
+ *
+ * @param <T> The type the commands run against.
+ */
+public class CommandRegistry<T> {
+
+    /**
+     * Argument count for a command that accepts any number of arguments.
+     */
+    public static final int ANY = -1;
+
+    private Command<T> wrongArguments;
+
+    private String[] verbs;
+    private int[] arities;
+    private Command<T>[] commands;
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param wrongArguments Run when a verb is given the wrong number of arguments.
+     */
+    public CommandRegistry(Command<T> wrongArguments) {
+        this.wrongArguments = wrongArguments;
+        allocate(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        verbs = new String[capacity];
+        arities = new int[capacity];
+        commands = (Command<T>[]) new Command<?>[capacity];
+    }
+
+    /**
+     * Registers a command, replacing any command with the same verb.
+     *
+     * @param verb The verb, matched ignoring case.
+     * @param arguments The number of arguments the command takes, or ANY.
+     * @param command The command.
+     * @return this registry.
+     */
+    public CommandRegistry<T> register(String verb, int arguments, Command<T> command) {
+
+        if ((size + 1) * 2 > verbs.length) {
+            String[] oldVerbs = verbs;
+            int[] oldArities = arities;
+            Command<T>[] oldCommands = commands;
+            allocate(verbs.length * 2);
+            size = 0;
+            for (int i = 0; i < oldVerbs.length; i++) {
+                if (oldVerbs[i] != null) {
+                    put(oldVerbs[i], oldArities[i], oldCommands[i]);
+                }
+            }
+        }
+
+        put(verb.toUpperCase(), arguments, command);
+        return this;
+
+    }
+
+    private void put(String verb, int arguments, Command<T> command) {
+
+        int mask = verbs.length - 1;
+        int slot = hash(verb, 0, verb.length()) & mask;
+        while (verbs[slot] != null && !verbs[slot].equals(verb)) {
+            slot = (slot + 1) & mask;
+        }
+        if (verbs[slot] == null) {
+            size++;
+        }
+        verbs[slot] = verb;
+        arities[slot] = arguments;
+        commands[slot] = command;
+
+    }
+
+    /**
+     * Finds the command for a line's verb.
+     *
+     * @param line The tokenized input line.
+     * @return the command; the wrong-arguments command if the verb is registered with a different number of
+     * arguments; or null if the first token is not a registered verb.
+     */
+    public Command<T> lookup(CommandLine line) {
+
+        if (line.size() == 0) {
+            return null;
+        }
+
+        String text = line.text();
+        int start = line.start(0);
+        int length = line.end(0) - start;
+
+        int mask = verbs.length - 1;
+        for (int slot = hash(text, start, line.end(0)) & mask; verbs[slot] != null; slot = (slot + 1) & mask) {
+            String verb = verbs[slot];
+            if (verb.length() == length && text.regionMatches(true, start, verb, 0, length)) {
+                int arity = arities[slot];
+                return arity == ANY || arity == line.arguments() ? commands[slot] : wrongArguments;
+            }
+        }
+        return null;
+
+    }
+
+    private static int hash(String text, int start, int end) {
+
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toUpperCase(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+
+    }
+
+}
@@ -0,0 +1,263 @@
+import money.Money;
+import product.Category;
+import product.Product;
+import product.RestockPlan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Hosts many vending machines in one process, keyed by machine ID.
+ * <p>
+ * Machines are spread over a fixed number of partitions by the hash of their ID. Fleet-wide queries run as a
+ * fork-join task that splits the partitions between the pool's threads, so a query over the whole fleet takes about
+ * as long as its share of the machines on one core. Each machine is read as it stands while the query passes it;
+ * queries do not stop sales.
+ */
+public class Fleet {
+
+    private static final int DEFAULT_PARTITIONS = 64;
+
+    /**
+     * A fleet-wide query over a range of partitions: splits the range in half until it is one partition, then reads
+     * that partition's machines in turn.
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static class Query<R> extends RecursiveTask<R> {
+
+        private final Map<String, VendingMachine>[] partitions;
+        private final int from;
+        private final int to;
+        private final BiFunction<String, VendingMachine, R> read;
+        private final BinaryOperator<R> combine;
+
+        private Query(Map<String, VendingMachine>[] partitions, int from, int to,
+                      BiFunction<String, VendingMachine, R> read, BinaryOperator<R> combine) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+            this.read = read;
+            this.combine = combine;
+        }
+
+        @Override
+        protected R compute() {
+
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                Query<R> left = new Query<>(partitions, from, middle, read, combine);
+                left.fork();
+                R right = new Query<>(partitions, middle, to, read, combine).compute();
+                return combine.apply(left.join(), right);
+            }
+
+            R result = null;
+            for (Map.Entry<String, VendingMachine> e : partitions[from].entrySet()) {
+                R r = read.apply(e.getKey(), e.getValue());
+                result = result == null ? r : combine.apply(result, r);
+            }
+            return result;
+
+        }
+    }
+
+    private Map<String, VendingMachine>[] partitions;
+    private ForkJoinPool pool;
+
+    /**
+     * Constructor. The fleet starts empty, and queries run on the common fork-join pool.
+     */
+    public Fleet() {
+        this(DEFAULT_PARTITIONS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor. The fleet starts empty.
+     *
+     * @param partitions The number of partitions, rounded up to a power of two.
+     * @param pool The pool fleet-wide queries run on.
+     */
+    @SuppressWarnings("unchecked")
+    public Fleet(int partitions, ForkJoinPool pool) {
+
+        if (partitions < 1) {
+            throw new IllegalArgumentException("A fleet needs at least one partition");
+        }
+
+        int size = Integer.highestOneBit(partitions * 2 - 1);
+        this.partitions = (Map<String, VendingMachine>[]) new Map<?, ?>[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new ConcurrentHashMap<>();
+        }
+        this.pool = pool;
+
+    }
+
+    private Map<String, VendingMachine> partition(String machineId) {
+
+        int h = machineId.hashCode();
+        return partitions[(h ^ (h >>> 16)) & (partitions.length - 1)];
+
+    }
+
+    /**
+     * Adds a machine to the fleet.
+     *
+     * @param machineId The machine's ID, unique in the fleet.
+     * @param vendingMachine The machine.
+     * @throws IllegalArgumentException If the fleet already has a machine with that ID.
+     */
+    public void add(String machineId, VendingMachine vendingMachine) {
+
+        if (partition(machineId).putIfAbsent(machineId, vendingMachine) != null) {
+            throw new IllegalArgumentException("Machine " + machineId + " is already in the fleet");
+        }
+
+    }
+
+    /**
+     * Removes a machine from the fleet.
+     *
+     * @param machineId The machine's ID.
+     * @return the machine removed, or null if there was none with that ID.
+     */
+    public VendingMachine remove(String machineId) {
+        return partition(machineId).remove(machineId);
+    }
+
+    /**
+     * @param machineId A machine ID.
+     * @return the machine with that ID, or null if there is none.
+     */
+    public VendingMachine get(String machineId) {
+        return partition(machineId).get(machineId);
+    }
+
+    /**
+     * @return the number of machines in the fleet.
+     */
+    public int size() {
+
+        int size = 0;
+        for (Map<String, VendingMachine> partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+
+    }
+
+    /**
+     * Runs a query over every machine in parallel.
+     *
+     * @param empty The result for an empty fleet.
+     * @param read Reads one machine, given its ID.
+     * @param combine Combines the results of two sets of machines. May modify and return either one.
+     * @return the combined result.
+     */
+    private <R> R query(R empty, BiFunction<String, VendingMachine, R> read, BinaryOperator<R> combine) {
+
+        BinaryOperator<R> skipEmpty = (a, b) -> a == null ? b : b == null ? a : combine.apply(a, b);
+        R result = pool.invoke(new Query<>(partitions, 0, partitions.length, read, skipEmpty));
+        return result == null ? empty : result;
+
+    }
+
+    /**
+     * Counts a product's units available for sale across the fleet.
+     *
+     * @param product The name or ID of the product.
+     * @return the units available, over every machine that stocks it.
+     */
+    public long totalStock(String product) {
+
+        return query(0L, (id, vm) -> {
+            Product p = vm.getProduct(product);
+            return p == null ? 0L : (long) p.getQuantity();
+        }, Long::sum);
+
+    }
+
+    /**
+     * Finds the machines that stock a product but have none available.
+     *
+     * @param product The name or ID of the product.
+     * @return the IDs of those machines, in order.
+     */
+    public List<String> machinesOutOf(String product) {
+
+        List<String> ids = query(new ArrayList<>(), (id, vm) -> {
+            Product p = vm.getProduct(product);
+            List<String> out = new ArrayList<>(1);
+            if (p != null && p.getQuantity() == 0) {
+                out.add(id);
+            }
+            return out;
+        }, (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+
+        Collections.sort(ids);
+        return ids;
+
+    }
+
+    /**
+     * Adds up the revenue taken in each category across the fleet.
+     *
+     * @return the revenue of each category.
+     */
+    public Map<Category, Money> revenueByCategory() {
+
+        long[] cents = query(new long[Category.values().length], (id, vm) -> {
+            long[] revenue = new long[Category.values().length];
+            for (Category c : Category.values()) {
+                revenue[c.ordinal()] = vm.getMetrics().getRevenueCents(c);
+            }
+            return revenue;
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        });
+
+        Map<Category, Money> revenue = new EnumMap<>(Category.class);
+        for (Category c : Category.values()) {
+            revenue.put(c, Money.ofCents(cents[c.ordinal()]));
+        }
+        return revenue;
+
+    }
+
+    /**
+     * Lists what each machine below par needs to fill it, across the fleet.
+     *
+     * @return the restock plan of every machine with a product below par, keyed by machine ID in order.
+     */
+    public Map<String, RestockPlan> lowStockReport() {
+
+        return query(new TreeMap<>(), (id, vm) -> {
+            RestockPlan plan = vm.restockPlan();
+            TreeMap<String, RestockPlan> report = new TreeMap<>();
+            if (!plan.getProducts().isEmpty()) {
+                report.put(id, plan);
+            }
+            return report;
+        }, (a, b) -> {
+            a.putAll(b);
+            return a;
+        });
+
+    }
+
+}
@@ -0,0 +1,134 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived source of user input lines.
+ * <p>
+ * A single daemon thread reads lines from the underlying stream into a bounded queue, and callers wait on the queue
+ * with a timeout. This keeps one thread and one buffered reader for the life of the stream, however many prompts are
+ * served.
+ */
+public class InputReader {
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    /**
+     * Marks the end of the stream in the queue. Compared by identity.
+     */
+    private static final String END_OF_STREAM = new String("<end of stream>");
+
+    private static InputReader standardInput;
+
+    private final InputStream source;
+    private final BlockingQueue<String> lines;
+    private final Thread reader;
+    private volatile boolean closed;
+
+    /**
+     * Returns the shared reader for System.in, creating a new one if System.in has been replaced since the last call.
+     * The reader for the replaced stream is closed, so its thread does not outlive it.
+     *
+     * @return the reader for the current System.in.
+     */
+    public static synchronized InputReader standardInput() {
+
+        if (standardInput == null || standardInput.source != System.in) {
+            if (standardInput != null) {
+                standardInput.close();
+            }
+            standardInput = new InputReader(System.in);
+        }
+        return standardInput;
+
+    }
+
+    /**
+     * Constructor. Starts the reader thread.
+     *
+     * @param source The stream to read lines from.
+     */
+    public InputReader(InputStream source) {
+
+        this.source = source;
+        this.lines = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        this.reader = new Thread(this::readLines, "input-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+    }
+
+    /**
+     * Waits for the next line of input.
+     *
+     * @param timeoutSeconds How long to wait, in seconds.
+     * @return the next line, or null if none arrived in time or the stream has ended.
+     */
+    public String poll(long timeoutSeconds) {
+
+        if (closed && lines.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String line = lines.poll(timeoutSeconds, TimeUnit.SECONDS);
+            if (line == END_OF_STREAM) {
+                closed = true;
+                return null;
+            }
+            return line;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+    }
+
+    /**
+     * Stops reading: later polls return null, and the reader thread ends instead of waiting for room in the queue. The
+     * stream itself is left open, since its owner may still use it; a reader thread blocked on it ends once its read
+     * returns.
+     */
+    public void close() {
+
+        closed = true;
+        lines.clear();
+        reader.interrupt();
+
+    }
+
+    /**
+     * Reader thread body: moves lines from the stream to the queue until the stream ends or the reader is closed.
+     */
+    private void readLines() {
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(source));
+
+        try {
+            String line;
+            while (!closed && (line = in.readLine()) != null) {
+                lines.put(line);
+            }
+        } catch (IOException ignored) {
+            // treated the same as the end of the stream
+        } catch (InterruptedException e) {
+            // closed
+            return;
+        }
+
+        try {
+            if (!closed) {
+                lines.put(END_OF_STREAM);
+            }
+        } catch (InterruptedException ignored) {
+            closed = true;
+        }
+
+    }
+
+}
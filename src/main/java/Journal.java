@@ -0,0 +1,582 @@
+import money.Money;
+import product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of every purchase, fill, price change and admin change, so that stock survives a restart
+ * or crash.
+ * <p>
+ * Each record is a type byte, a payload length, the payload and a CRC32 of all three. Records are buffered in memory
+ * and written with group commit: the first caller of sync() writes and fsyncs everything buffered so far, while
+ * callers that arrive during the fsync wait and are covered by the next one. Under load, one fsync makes many
+ * transactions durable.
+ * <p>
+ * The journal is split into numbered segment files next to the base path, e.g. vending.journal.1, vending.journal.2.
+ * A checkpoint starts a new segment, so that a snapshot of the state at that point makes every older segment
+ * redundant.
+ * <p>
+ * On startup replay() applies the journal to a machine built from the base catalog or a snapshot. A record torn by a
+ * crash fails its checksum; it and anything after it are discarded.
+ */
+public class Journal implements AutoCloseable {
+
+    public static final byte PURCHASE = 1;
+    public static final byte FILL = 2;
+    public static final byte PRICE = 3;
+    public static final byte ADD_ADMIN = 4;
+    public static final byte REMOVE_ADMIN = 5;
+    public static final byte FILL_MANY = 6;
+
+    /**
+     * Type byte, payload length and checksum.
+     */
+    private static final int OVERHEAD = 1 + 2 + 4;
+
+    /**
+     * The largest payload a record's 16-bit length can describe.
+     */
+    static final int MAX_PAYLOAD = 0xFFFF;
+
+    /**
+     * The most product IDs in one FILL_MANY record.
+     */
+    static final int MAX_FILL_MANY = MAX_PAYLOAD / 4;
+
+    private Path base;
+    private long generation;
+    private FileChannel channel;
+
+    /**
+     * Held shared while a change is applied and appended, and exclusively by a checkpoint, so that a checkpoint never
+     * sees a change that is applied but not yet journaled.
+     */
+    private ReentrantReadWriteLock changes;
+
+    /**
+     * Held while a change is applied and appended, so that records are journaled in the order their changes were
+     * applied and replay rebuilds the same state.
+     */
+    private final Object order = new Object();
+
+    private final Object lock = new Object();
+    private ByteArrayOutputStream pending;
+    private long appended;
+    private long segmentStart;
+    private long durable;
+    private boolean flushing;
+    private long syncs;
+
+    /**
+     * The error that stopped a write, after which nothing more is written: the batch it was writing may be partly on
+     * disk, so a later record could land after a torn one.
+     */
+    private IOException failure;
+
+    /**
+     * Constructor. Opens the newest journal segment, creating the first one if there are none. Call replay() before
+     * appending.
+     *
+     * @param base The journal path; segments are named after it.
+     * @throws IOException If the segment cannot be opened.
+     */
+    public Journal(Path base) throws IOException {
+        this.base = base.toAbsolutePath();
+        this.changes = new ReentrantReadWriteLock();
+        this.pending = new ByteArrayOutputStream();
+
+        long[] existing = segments();
+        this.generation = existing.length == 0 ? 1 : existing[existing.length - 1];
+        this.channel = openSegment(generation);
+    }
+
+    /**
+     * @param generation A segment number.
+     * @return the path of that segment.
+     */
+    public Path segment(long generation) {
+        return base.resolveSibling(base.getFileName() + "." + generation);
+    }
+
+    /**
+     * @return the number of the segment new records are appended to.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the numbers of the segments on disk, in increasing order.
+     */
+    private long[] segments() throws IOException {
+
+        String prefix = base.getFileName() + ".";
+        try (Stream<Path> files = Files.list(base.getParent())) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .mapToLong(name -> Long.parseLong(name.substring(prefix.length())))
+                    .sorted()
+                    .toArray();
+        }
+
+    }
+
+    private FileChannel openSegment(long generation) throws IOException {
+        FileChannel segment = FileChannel.open(segment(generation), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        return segment;
+    }
+
+    /**
+     * Replays every segment.
+     *
+     * @param vendingMachine The machine, holding the base catalog.
+     * @param adminSystem The admin system, holding the base admin IDs.
+     * @return the number of records applied.
+     * @throws IOException If a segment cannot be read.
+     */
+    public long replay(VendingMachine vendingMachine, AdminSystem adminSystem) throws IOException {
+        return replay(vendingMachine, adminSystem, 0);
+    }
+
+    /**
+     * Applies every intact record in the segments from the given one onwards, in order, and deletes older segments.
+     * Any torn tail is truncated so that new records follow the last intact one.
+     *
+     * @param vendingMachine The machine, holding the base catalog or the snapshot the segments follow.
+     * @param adminSystem The admin system, holding the base admin IDs or those from the snapshot.
+     * @param fromGeneration The first segment to replay; a snapshot covers the ones before it.
+     * @return the number of records applied.
+     * @throws IOException If a segment cannot be read.
+     */
+    public long replay(VendingMachine vendingMachine, AdminSystem adminSystem, long fromGeneration)
+            throws IOException {
+
+        long applied = 0;
+
+        for (long g : segments()) {
+            if (g < fromGeneration) {
+                Files.deleteIfExists(segment(g));
+            } else if (g == generation) {
+                applied += replaySegment(channel, vendingMachine, adminSystem);
+            } else {
+                try (FileChannel older = FileChannel.open(segment(g), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    applied += replaySegment(older, vendingMachine, adminSystem);
+                }
+            }
+        }
+
+        if (generation < fromGeneration) {
+            channel.close();
+            generation = fromGeneration;
+            channel = openSegment(generation);
+        }
+
+        return applied;
+
+    }
+
+    /**
+     * Applies every intact record in one segment, then truncates any torn tail.
+     */
+    private static long replaySegment(FileChannel channel, VendingMachine vendingMachine, AdminSystem adminSystem)
+            throws IOException {
+
+        ByteBuffer file = ByteBuffer.allocate((int) channel.size());
+        channel.read(file, 0);
+        file.flip();
+
+        long applied = 0;
+        int end = 0;
+        CRC32 crc = new CRC32();
+
+        while (file.remaining() >= OVERHEAD) {
+
+            int start = file.position();
+            byte type = file.get();
+            int length = file.getShort() & 0xFFFF;
+            if (file.remaining() < length + 4) {
+                break;
+            }
+
+            crc.reset();
+            crc.update(file.array(), start, 3 + length);
+            file.position(start + 3 + length);
+            if ((int) crc.getValue() != file.getInt()) {
+                break;
+            }
+
+            apply(type, ByteBuffer.wrap(file.array(), start + 3, length), vendingMachine, adminSystem);
+            applied++;
+            end = file.position();
+
+        }
+
+        // drop the torn tail, if any
+        channel.truncate(end);
+        channel.position(end);
+
+        return applied;
+
+    }
+
+    /**
+     * Applies one record.
+     */
+    private static void apply(byte type, ByteBuffer payload, VendingMachine vendingMachine, AdminSystem adminSystem) {
+
+        switch (type) {
+            case PURCHASE: {
+                Product p = vendingMachine.getProduct(payload.getInt());
+                int quantity = payload.getInt();
+                if (p != null) {
+                    p.reduceQuantity(quantity);
+                }
+                break;
+            }
+            case FILL: {
+                Product p = vendingMachine.getProduct(payload.getInt());
+                if (p != null) {
+                    p.restock();
+                }
+                break;
+            }
+            case FILL_MANY:
+                while (payload.hasRemaining()) {
+                    Product p = vendingMachine.getProduct(payload.getInt());
+                    if (p != null) {
+                        p.restock();
+                    }
+                }
+                break;
+            case PRICE: {
+                Product p = vendingMachine.getProduct(payload.getInt());
+                long cents = payload.getLong();
+                if (p != null) {
+                    p.setPrice(Money.ofCents(cents));
+                }
+                break;
+            }
+            case ADD_ADMIN:
+                adminSystem.getAdminIDs().add(text(payload));
+                break;
+            case REMOVE_ADMIN:
+                adminSystem.getAdminIDs().remove(text(payload));
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+
+    }
+
+    /**
+     * Applies a change and, if anything changed, appends its record while no checkpoint or other change can run, then
+     * waits until the record is durable. Only the in-memory change and the append are serialised; concurrent changes
+     * still share one fsync.
+     *
+     * @param apply Applies the change in memory, returning whether anything changed.
+     * @param record Appends the change's records, returning the last sequence number.
+     * @return whether anything changed.
+     * @throws UncheckedIOException If the journal has failed, in which case the change is not applied, or if its
+     * record cannot be written, in which case the change stands in memory but is not durable.
+     */
+    public boolean change(BooleanSupplier apply, LongSupplier record) {
+
+        boolean changed;
+        long sequence = 0;
+        changes.readLock().lock();
+        try {
+            synchronized (order) {
+                synchronized (lock) {
+                    if (failure != null) {
+                        throw new UncheckedIOException("Cannot write the journal", failure);
+                    }
+                }
+                changed = apply.getAsBoolean();
+                if (changed) {
+                    sequence = record.getAsLong();
+                }
+            }
+        } finally {
+            changes.readLock().unlock();
+        }
+        sync(sequence);
+        return changed;
+
+    }
+
+    /**
+     * Starts a new segment and marks the state it follows, unless nothing has been journaled since the current segment
+     * started. Changes are held off only while everything buffered is written and the mark is made, so the mark should
+     * only note where the state is to be captured from; the capture itself can run afterwards, while changes continue.
+     *
+     * @param mark Marks the in-memory state, given the number of the new segment.
+     * @return the mark, or null if the current segment is empty and no new one was started.
+     * @throws IOException If the new segment cannot be opened.
+     */
+    public <T> T checkpoint(LongFunction<T> mark) throws IOException {
+
+        changes.writeLock().lock();
+        try {
+            long last;
+            synchronized (lock) {
+                last = appended;
+                if (last == segmentStart && channel.size() == 0) {
+                    // the last checkpoint still covers everything
+                    return null;
+                }
+            }
+            sync(last);
+
+            synchronized (lock) {
+                channel.close();
+                generation++;
+                channel = openSegment(generation);
+                segmentStart = appended;
+            }
+
+            return mark.apply(generation);
+        } finally {
+            changes.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * Deletes the segments before the given one, once a snapshot covers them.
+     *
+     * @param generation The first segment to keep.
+     * @throws IOException If a segment cannot be deleted.
+     */
+    public void deleteSegmentsBefore(long generation) throws IOException {
+
+        for (long g : segments()) {
+            if (g < generation) {
+                Files.deleteIfExists(segment(g));
+            }
+        }
+
+    }
+
+    private static String text(ByteBuffer payload) {
+        return new String(payload.array(), payload.position(), payload.remaining(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records the sale of units of a product.
+     *
+     * @param productId The ID of the product sold.
+     * @param quantity The number of units sold.
+     * @return the record's sequence number, to pass to sync().
+     */
+    public long purchase(int productId, int quantity) {
+        return append(PURCHASE, ByteBuffer.allocate(8).putInt(productId).putInt(quantity).array());
+    }
+
+    /**
+     * Records a restock of a product.
+     *
+     * @param productId The ID of the product restocked.
+     * @return the record's sequence number, to pass to sync().
+     */
+    public long fill(int productId) {
+        return append(FILL, ByteBuffer.allocate(4).putInt(productId).array());
+    }
+
+    /**
+     * Records a restock of several products, as one record per MAX_FILL_MANY products.
+     *
+     * @param products The products restocked.
+     * @return the last record's sequence number, to pass to sync().
+     */
+    public long fill(List<Product> products) {
+
+        long sequence = 0;
+        for (int from = 0; from < products.size(); from += MAX_FILL_MANY) {
+            List<Product> batch = products.subList(from, Math.min(from + MAX_FILL_MANY, products.size()));
+            ByteBuffer payload = ByteBuffer.allocate(4 * batch.size());
+            for (Product p : batch) {
+                payload.putInt(p.getId());
+            }
+            sequence = append(FILL_MANY, payload.array());
+        }
+        return sequence;
+
+    }
+
+    /**
+     * Records a price change.
+     *
+     * @param productId The ID of the product.
+     * @param price The new price.
+     * @return the record's sequence number, to pass to sync().
+     */
+    public long price(int productId, Money price) {
+        return append(PRICE, ByteBuffer.allocate(12).putInt(productId).putLong(price.cents()).array());
+    }
+
+    /**
+     * Records that an admin ID was added.
+     *
+     * @param id The admin ID.
+     * @return the record's sequence number, to pass to sync().
+     */
+    public long addAdmin(String id) {
+        return append(ADD_ADMIN, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records that an admin ID was removed.
+     *
+     * @param id The admin ID.
+     * @return the record's sequence number, to pass to sync().
+     */
+    public long removeAdmin(String id) {
+        return append(REMOVE_ADMIN, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Buffers a record for the next group commit.
+     *
+     * @throws IllegalArgumentException If the payload is too long for the record's length field.
+     */
+    private long append(byte type, byte[] payload) {
+
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("A journal record holds at most " + MAX_PAYLOAD + " bytes, not "
+                    + payload.length);
+        }
+
+        byte[] record = new byte[OVERHEAD + payload.length];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.put(type).putShort((short) payload.length).put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 3 + payload.length);
+        buffer.putInt((int) crc.getValue());
+
+        synchronized (lock) {
+            pending.write(record, 0, record.length);
+            return ++appended;
+        }
+
+    }
+
+    /**
+     * Waits until the given record, and every record before it, is on disk. If no write is in progress this caller
+     * writes and fsyncs everything buffered so far; otherwise it waits for the write in progress and, if that did not
+     * cover its record, for the next one. Once a write fails, nothing more is written and every later call throws.
+     *
+     * @param sequence A sequence number returned when a record was appended.
+     * @throws UncheckedIOException If the journal cannot be written, now or by an earlier write.
+     */
+    public void sync(long sequence) {
+
+        byte[] batch;
+        long batchEnd;
+        FileChannel target;
+
+        synchronized (lock) {
+            while (true) {
+                if (durable >= sequence) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new UncheckedIOException("Cannot write the journal", failure);
+                }
+                if (!flushing) {
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the journal", e);
+                }
+            }
+
+            // become the leader for everything buffered so far
+            flushing = true;
+            batch = pending.toByteArray();
+            batchEnd = appended;
+            target = channel;
+            pending.reset();
+        }
+
+        boolean written = false;
+        IOException error = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            target.force(false);
+            written = true;
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (lock) {
+                flushing = false;
+                if (written) {
+                    durable = batchEnd;
+                    syncs++;
+                } else {
+                    // the batch is lost, so no later record may be reported durable
+                    failure = error != null ? error : new IOException("A journal write did not complete");
+                }
+                lock.notifyAll();
+            }
+        }
+
+        if (error != null) {
+            throw new UncheckedIOException("Cannot write the journal", error);
+        }
+
+    }
+
+    /**
+     * @return the number of fsyncs performed, for comparison with the number of records written.
+     */
+    public long getSyncCount() {
+        synchronized (lock) {
+            return syncs;
+        }
+    }
+
+    /**
+     * Writes anything still buffered and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+
+        long last;
+        synchronized (lock) {
+            last = appended;
+        }
+        try {
+            sync(last);
+        } finally {
+            channel.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,447 @@
+import exceptions.CancellationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves customer sessions to networked kiosk terminals over TCP, with the same line-based commands as the console.
+ * <p>
+ * One selector thread accepts connections, reads input and writes output for every terminal, so an idle terminal
+ * costs a socket and a session but no thread. Complete lines are handed to a small pool of workers; each terminal's
+ * lines are handled one at a time and in order. A terminal part way through a transaction that sends nothing for the
+ * timeout is cancelled as at the console, and its reserved stock released.
+ */
+public class KioskServer implements AutoCloseable {
+
+    /**
+     * The longest input line accepted. A terminal that sends a longer line is disconnected.
+     */
+    private static final int MAX_LINE = 1024;
+
+    // markers queued alongside input lines, compared by identity
+    private static final String CONNECTED = new String("connected");
+    private static final String TIMED_OUT = new String("timed out");
+    private static final String DISCONNECTED = new String("disconnected");
+
+    /**
+     * One connected terminal and its session.
+     */
+    private class Terminal {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final Session session;
+        private final ByteArrayOutputStream screen;
+        private final PrintStream out;
+
+        private final byte[] line;
+        private int lineLength;
+        private long lastInput;
+
+        private final Queue<String> input;
+        private final AtomicBoolean scheduled;
+        private final Queue<ByteBuffer> output;
+        private volatile boolean inTransaction;
+        private volatile boolean closing;
+
+        private Terminal(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.screen = new ByteArrayOutputStream();
+            this.out = new PrintStream(screen, false, StandardCharsets.UTF_8);
+            this.session = new Session(vendingMachine, adminSystem.withOutput(out), out);
+            this.line = new byte[MAX_LINE];
+            this.lastInput = System.nanoTime();
+            this.input = new ConcurrentLinkedQueue<>();
+            this.scheduled = new AtomicBoolean();
+            this.output = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Queues a line or marker for the session, and makes sure a worker will handle it. Selector thread only.
+         */
+        private void offer(String event) {
+
+            input.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+
+        }
+
+        /**
+         * Handles every queued line in order, then hands the output to the selector thread. Worker thread only; the
+         * scheduled flag keeps it to one worker at a time.
+         */
+        private void drain() {
+
+            String event;
+            while (!closing && (event = input.poll()) != null) {
+                handle(event);
+            }
+            inTransaction = session.inTransaction();
+            flush();
+
+            scheduled.set(false);
+            // a line may have arrived after the last poll but before the flag was cleared
+            if (!input.isEmpty() && !closing && scheduled.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+
+        }
+
+        private void handle(String event) {
+
+            if (event == CONNECTED) {
+                session.begin();
+            } else if (event == DISCONNECTED) {
+                // nobody is left to pay, so return the cart's stock
+                if (session.inTransaction()) {
+                    session.timeout();
+                }
+                closing = true;
+                return;
+            } else if (event == TIMED_OUT) {
+                if (!session.inTransaction()) {
+                    return;
+                }
+                session.timeout();
+                session.begin();
+            } else {
+                try {
+                    session.handle(event);
+                } catch (CancellationException e) {
+                    session.cancel();
+                }
+                if (session.getState() == SessionState.CLOSED) {
+                    closing = true;
+                    return;
+                } else if (session.getState() == SessionState.IDLE) {
+                    session.begin();
+                }
+            }
+
+            session.prompt();
+
+        }
+
+        /**
+         * Passes the output written since the last flush to the selector thread.
+         */
+        private void flush() {
+
+            out.flush();
+            if (screen.size() > 0) {
+                output.add(ByteBuffer.wrap(screen.toByteArray()));
+                screen.reset();
+            }
+            if (!output.isEmpty() || closing) {
+                writable.add(this);
+                selector.wakeup();
+            }
+
+        }
+
+        /**
+         * Reads whatever the terminal has sent and queues each complete line. Selector thread only.
+         */
+        private void read() throws IOException {
+
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                disconnect();
+                return;
+            }
+
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                    offer(new String(line, 0, length, StandardCharsets.UTF_8));
+                    lineLength = 0;
+                } else if (lineLength == MAX_LINE) {
+                    disconnect();
+                    return;
+                } else {
+                    line[lineLength++] = b;
+                }
+            }
+            lastInput = System.nanoTime();
+
+        }
+
+        /**
+         * Writes as much queued output as the socket takes, asking to be told when it can take more. Selector thread
+         * only.
+         */
+        private void write() throws IOException {
+
+            if (!channel.isOpen()) {
+                return;
+            }
+
+            ByteBuffer buffer;
+            while ((buffer = output.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                output.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+
+            if (closing) {
+                disconnect();
+            }
+
+        }
+
+        /**
+         * Closes the connection and ends the session. Selector thread only.
+         */
+        private void disconnect() {
+
+            if (terminals.remove(this)) {
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the connection is gone either way
+                }
+                offer(DISCONNECTED);
+            }
+
+        }
+
+        /**
+         * Reads or writes as the selector reports the socket ready, disconnecting if the connection has failed.
+         */
+        private void ready(SelectionKey key) {
+
+            try {
+                if (key.isReadable()) {
+                    read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write();
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+
+        }
+
+    }
+
+    private VendingMachine vendingMachine;
+    private AdminSystem adminSystem;
+    private long timeoutNanos;
+
+    private ServerSocketChannel server;
+    private Selector selector;
+    private ExecutorService workers;
+    private Thread loop;
+    private volatile boolean running;
+
+    private ByteBuffer readBuffer;
+    private Set<Terminal> terminals;
+    private Queue<Terminal> writable;
+
+    /**
+     * Constructor. Binds the server socket; call start() to begin accepting terminals.
+     *
+     * @param vendingMachine The vending machine all terminals sell from.
+     * @param adminSystem The admin system all terminals authenticate admin commands against.
+     * @param port The TCP port to listen on, or 0 for any free port.
+     * @param timeoutMillis How long a terminal part way through a transaction may stay silent before it is cancelled.
+     * @throws IOException If the port cannot be bound.
+     */
+    public KioskServer(VendingMachine vendingMachine, AdminSystem adminSystem, int port, long timeoutMillis)
+            throws IOException {
+        this.vendingMachine = vendingMachine;
+        this.adminSystem = adminSystem;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.readBuffer = ByteBuffer.allocateDirect(4096);
+        this.terminals = ConcurrentHashMap.newKeySet();
+        this.writable = new ConcurrentLinkedQueue<>();
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "kiosk-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the TCP port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Starts accepting terminals on a new selector thread.
+     */
+    public void start() {
+
+        running = true;
+        loop = new Thread(this::run, "kiosk-selector");
+        loop.start();
+
+    }
+
+    /**
+     * The selector loop: accepts, reads and writes until the server is closed, and times out silent terminals.
+     */
+    private void run() {
+
+        long tick = Math.max(1, Math.min(TimeUnit.SECONDS.toMillis(1), TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+        long nextSweep = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tick);
+
+        while (running) {
+
+            try {
+
+                selector.select(tick);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        ((Terminal) key.attachment()).ready(key);
+                    }
+                }
+
+                Terminal terminal;
+                while ((terminal = writable.poll()) != null) {
+                    try {
+                        terminal.write();
+                    } catch (IOException e) {
+                        terminal.disconnect();
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    sweep(now);
+                    nextSweep = now + TimeUnit.MILLISECONDS.toNanos(tick);
+                }
+
+            } catch (IOException e) {
+                System.err.println("Kiosk server: " + e.getMessage());
+            }
+
+        }
+
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Terminal terminal = new Terminal(channel, key);
+            key.attach(terminal);
+            terminals.add(terminal);
+            terminal.offer(CONNECTED);
+        }
+
+    }
+
+    /**
+     * Times out terminals that are part way through a transaction and have sent nothing for the timeout.
+     */
+    private void sweep(long now) {
+
+        for (Terminal terminal : terminals) {
+            if (terminal.inTransaction && now - terminal.lastInput >= timeoutNanos) {
+                terminal.lastInput = now;
+                terminal.offer(TIMED_OUT);
+            }
+        }
+
+    }
+
+    /**
+     * @return the number of connected terminals.
+     */
+    public int getTerminalCount() {
+        return terminals.size();
+    }
+
+    /**
+     * Stops accepting terminals, disconnects those connected, and waits for their sessions to end. If interrupted while
+     * waiting, still closes everything, interrupts the sessions instead of waiting for them, and returns with the
+     * interrupt flag set.
+     */
+    @Override
+    public void close() throws IOException {
+
+        boolean interrupted = false;
+
+        running = false;
+        selector.wakeup();
+        // the loop exits on its next wakeup; it must be gone before the selector is closed under it
+        while (loop != null && loop.isAlive()) {
+            try {
+                loop.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        for (Terminal terminal : terminals) {
+            terminal.disconnect();
+        }
+        server.close();
+        selector.close();
+
+        workers.shutdown();
+        if (!interrupted) {
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small, thread-safe histogram of latencies in nanoseconds.
+ * <p>
+ * Values are bucketed by their highest set bit and the next four bits below it, so every bucket is within 1/16 (about
+ * 6%) of the values it holds. Values of about 69 seconds or more share one overflow bucket. Recording is an atomic
+ * update of one count.
+ * <p>
+ * The buckets are striped like a LongAdder: a histogram starts with one copy of its counts, and only when threads
+ * collide recording into it does it spread them over more copies, picked by thread ID, so they rarely contend for a
+ * cache line. Reads add the stripes together. A copy is allocated the first time a thread records into it, so a
+ * histogram nothing records into holds no counts at all, and one recorded into by a single thread holds one copy.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The highest bit of the largest latency bucketed precisely: 2^36 - 1 nanoseconds, about 69 seconds.
+     */
+    private static final int MAX_EXPONENT = 35;
+
+    /**
+     * The bucket for every latency above the precise range.
+     */
+    private static final int OVERFLOW = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int BUCKETS = OVERFLOW + 1;
+
+    /**
+     * The most stripes: the number of cores rounded up to a power of two, at most 8.
+     */
+    private static final int MAX_STRIPES = Math.min(8,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    private AtomicReferenceArray<AtomicLongArray> stripes;
+
+    /**
+     * The number of stripes in use, a power of two that only grows.
+     */
+    private volatile int stripeCount;
+
+    /**
+     * Constructor.
+     */
+    public LatencyHistogram() {
+        this.stripes = new AtomicReferenceArray<>(MAX_STRIPES);
+        this.stripeCount = 1;
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency, in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+
+        int n = stripeCount;
+        AtomicLongArray counts = stripe((int) Thread.currentThread().getId() & (n - 1));
+        int bucket = bucket(Math.max(0, nanos));
+
+        long count = counts.get(bucket);
+        if (!counts.compareAndSet(bucket, count, count + 1)) {
+            // another thread is recording into this stripe: count anyway, and spread threads over more stripes
+            counts.incrementAndGet(bucket);
+            if (n < MAX_STRIPES && stripeCount == n) {
+                stripeCount = n * 2;
+            }
+        }
+
+    }
+
+    /**
+     * @return the counts of one stripe, allocating them on first use.
+     */
+    private AtomicLongArray stripe(int stripe) {
+
+        AtomicLongArray counts = stripes.get(stripe);
+        if (counts == null) {
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(stripe);
+        }
+        return counts;
+
+    }
+
+    /**
+     * @return the number of stripes allocated so far.
+     */
+    int getAllocatedStripes() {
+
+        int allocated = 0;
+        for (int stripe = 0; stripe < MAX_STRIPES; stripe++) {
+            if (stripes.get(stripe) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+
+    }
+
+    /**
+     * @return the number of latencies recorded.
+     */
+    public long getCount() {
+
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += getCount(i);
+        }
+        return total;
+
+    }
+
+    /**
+     * @return the number of latencies recorded in a bucket, across all stripes.
+     */
+    private long getCount(int bucket) {
+
+        long total = 0;
+        for (int stripe = 0; stripe < MAX_STRIPES; stripe++) {
+            AtomicLongArray counts = stripes.get(stripe);
+            if (counts != null) {
+                total += counts.get(bucket);
+            }
+        }
+        return total;
+
+    }
+
+    /**
+     * Finds the latency at the given percentile.
+     *
+     * @param percentile The percentile, from 0 to 100, e.g. 99.9.
+     * @return the upper bound of the bucket holding that percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += getCount(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+
+    }
+
+    private static int bucket(long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return OVERFLOW;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+
+    }
+
+    private static long upperBound(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket == OVERFLOW) {
+            return Long.MAX_VALUE;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+
+    }
+
+}
@@ -0,0 +1,232 @@
+import money.Denomination;
+import product.Product;
+
+import javax.management.JMException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator. Replays synthetic customer sessions against a SessionEngine and reports throughput and
+ * per-stage latency.
+ * <p>
+ * Each generated session browses, selects one to three products by ID or name, picks quantities, then pays with
+ * random coins, cancels, or goes quiet until it times out. Sessions are started at a fixed rate (or as fast as
+ * possible), with at most a fixed number in flight.
+ */
+public class LoadGenerator {
+
+    private static final Denomination[] COINS = Denomination.values();
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private List<Product> catalog;
+    private Random random;
+
+    /**
+     * Constructor.
+     *
+     * @param catalog The products sessions may select.
+     * @param seed The random seed, so that runs can be repeated.
+     */
+    public LoadGenerator(List<Product> catalog, long seed) {
+        this.catalog = catalog;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Options as name/value pairs: --sessions (default 100000), --rate in sessions per second (default 0,
+     *             as fast as possible), --concurrency (default 1000) and --seed (default 1). The machine's metrics
+     *             are registered over JMX for the length of the run.
+     */
+    public static void main(String[] args) throws InterruptedException, JMException {
+
+        long sessions = 100_000;
+        double rate = 0;
+        int concurrency = 1_000;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessions = Long.parseLong(args[i + 1]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Product> catalog = stockedCatalog();
+        VendingMachine vm = new VendingMachine(catalog);
+        for (Denomination d : COINS) {
+            // enough change that load runs never run out
+            vm.getCashBox().deposit(d, 1_000_000);
+        }
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        vm.getMetrics().register();
+
+        LoadGenerator generator = new LoadGenerator(catalog, seed);
+
+        try (SessionEngine engine = new SessionEngine(vm, adminSystem)) {
+            LatencyHistogram sessionLatency = new LatencyHistogram();
+
+            long elapsed = generator.run(engine, sessions, rate, concurrency, sessionLatency);
+            report(engine, sessionLatency, sessions, elapsed);
+        }
+
+    }
+
+    /**
+     * Copies the built-in catalog with enough stock that load runs never sell out.
+     *
+     * @return the products.
+     */
+    private static List<Product> stockedCatalog() {
+
+        VendingMachine builtIn = new VendingMachine();
+        List<Product> products = new ArrayList<>();
+        for (int id = 0; builtIn.getProduct(id) != null; id++) {
+            Product p = builtIn.getProduct(id);
+            products.add(new Product(id, p.getName(), p.getPrice(), Integer.MAX_VALUE / 2, p.getCategory()));
+        }
+        return products;
+
+    }
+
+    /**
+     * Starts the given number of sessions and waits for them all to finish.
+     *
+     * @param engine The engine to run sessions on.
+     * @param sessions The number of sessions to start.
+     * @param rate Sessions to start per second, or 0 to start them as fast as the concurrency limit allows.
+     * @param concurrency The most sessions in flight at once.
+     * @param sessionLatency Records each session's time from its scheduled start to its end.
+     * @return the wall-clock time taken, in nanoseconds.
+     */
+    public long run(SessionEngine engine, long sessions, double rate, int concurrency,
+                    LatencyHistogram sessionLatency) throws InterruptedException {
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < sessions; i++) {
+
+            // measure from the scheduled start, so that falling behind the rate shows up as latency
+            long scheduled = start + i * interval;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            List<String> script = script();
+            inFlight.acquire();
+            long began = interval > 0 ? scheduled : System.nanoTime();
+            engine.submit(script, () -> {
+                sessionLatency.record(System.nanoTime() - began);
+                inFlight.release();
+            });
+
+        }
+
+        inFlight.acquire(concurrency);
+        return System.nanoTime() - start;
+
+    }
+
+    /**
+     * Generates one customer session.
+     *
+     * @return the session's input lines; null stands for an inactivity timeout.
+     */
+    public List<String> script() {
+
+        List<String> script = new ArrayList<>();
+
+        // browse
+        if (random.nextInt(10) == 0) {
+            script.add("HELP");
+        }
+
+        long total = 0;
+        int items = 1 + random.nextInt(3);
+        for (int i = 0; i < items; i++) {
+
+            Product p = catalog.get(random.nextInt(catalog.size()));
+            int quantity = 1 + random.nextInt(3);
+
+            script.add(random.nextBoolean() ? String.valueOf(p.getId()) : p.getName().toLowerCase());
+            script.add(String.valueOf(quantity));
+            total += p.getPrice().cents() * quantity;
+
+        }
+
+        int outcome = random.nextInt(10);
+        if (outcome == 0) {
+            script.add("CANCEL");
+            return script;
+        } else if (outcome == 1) {
+            script.add(null);
+            return script;
+        }
+
+        script.add("END");
+
+        // pay with random coins until the total is covered
+        long paid = 0;
+        while (paid < total) {
+            int cents = COINS[random.nextInt(COINS.length)].cents();
+            script.add(String.format("%d.%02d", cents / 100, cents % 100));
+            paid += cents;
+        }
+
+        return script;
+
+    }
+
+    /**
+     * Prints throughput, session outcomes and latency percentiles.
+     */
+    private static void report(SessionEngine engine, LatencyHistogram sessionLatency, long sessions, long elapsed) {
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d sessions in %.2f s: %.0f sessions/s (%s threads)\n", sessions, seconds,
+                sessions / seconds, engine.usesVirtualThreads() ? "virtual" : "platform");
+        System.out.printf("completed %d, cancelled %d, timed out %d\n", engine.getCompleted(), engine.getCancelled(),
+                engine.getTimedOut());
+
+        System.out.printf("\n%-10s %10s %12s %12s %12s\n", "stage", "count", "p50 (us)", "p99 (us)", "p99.9 (us)");
+        for (SessionState state : SessionState.values()) {
+            LatencyHistogram latency = engine.getLatency(state);
+            if (latency.getCount() > 0) {
+                printRow(state.name(), latency);
+            }
+        }
+        printRow("SESSION", sessionLatency);
+
+    }
+
+    private static void printRow(String name, LatencyHistogram latency) {
+
+        StringBuilder row = new StringBuilder(String.format("%-10s %10d", name, latency.getCount()));
+        Arrays.stream(PERCENTILES).forEach(p -> row.append(String.format(" %12.1f", latency.percentile(p) / 1e3)));
+        System.out.println(row);
+
+    }
+
+}
@@ -0,0 +1,74 @@
+import java.util.Map;
+
+/**
+ * The JMX view of a vending machine's sessions and sales, registered as {@code vending:type=Machine}.
+ */
+public interface MachineMetricsMXBean {
+
+    /**
+     * @return the number of customer sessions started.
+     */
+    long getSessionsStarted();
+
+    /**
+     * @return the number of sessions that ended in a purchase.
+     */
+    long getSessionsCompleted();
+
+    /**
+     * @return the number of sessions cancelled by the customer.
+     */
+    long getSessionsCancelled();
+
+    /**
+     * @return the number of sessions that timed out.
+     */
+    long getSessionsTimedOut();
+
+    /**
+     * @return sessions started per second, averaged since the metrics were created.
+     */
+    double getSessionsPerSecond();
+
+    /**
+     * @return purchases per second, averaged since the metrics were created.
+     */
+    double getPurchasesPerSecond();
+
+    /**
+     * @return the total units sold.
+     */
+    long getUnitsSold();
+
+    /**
+     * @return the units sold of each product that has sold, keyed by "[ID id] name".
+     */
+    Map<String, Long> getUnitsSoldByProduct();
+
+    /**
+     * @return the revenue taken, in cents.
+     */
+    long getRevenueCents();
+
+    /**
+     * @return the revenue taken, formatted as dollars.
+     */
+    String getRevenue();
+
+    /**
+     * @return revenue per second in cents, averaged since the metrics were created.
+     */
+    double getRevenueCentsPerSecond();
+
+    /**
+     * @return the number of low stock and sold out events seen since the metrics began watching the stock.
+     */
+    long getStockAlerts();
+
+    /**
+     * @return the units left of each product that has gone low or sold out and not been restocked since, keyed by
+     * "[ID id] name".
+     */
+    Map<String, Integer> getShortOfStock();
+
+}
@@ -1,9 +1,17 @@
 import exceptions.CancellationException;
 import exceptions.TimeoutException;
+import money.Money;
 import product.Product;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -12,14 +20,37 @@ public class Main {
 
     public static long timeoutSeconds = 5;
 
+    /**
+     * A CSV catalog to stock the machine from, set with -Dvending.catalog=path. Without it, the built-in catalog is
+     * used.
+     */
+    public static final String CATALOG_FILE = System.getProperty("vending.catalog");
+
+    /**
+     * The journal file that stock and admin changes are recorded in, set with -Dvending.journal=path. Without it,
+     * changes are kept in memory only.
+     */
+    public static final String JOURNAL_FILE = System.getProperty("vending.journal");
+
+    /**
+     * How often a snapshot of the stock is taken and the journal compacted, in seconds. Override with
+     * -Dvending.snapshotSeconds=n.
+     */
+    public static final long SNAPSHOT_SECONDS = Long.getLong("vending.snapshotSeconds", 60);
+
+    /**
+     * A TCP port to serve kiosk terminals on, set with -Dvending.port=n. Without it, a single customer is served on
+     * standard input.
+     */
+    public static final String PORT = System.getProperty("vending.port");
+
     // instance variables
 
     private static Main instance;
     private VendingMachine vendingMachine;
     private AdminSystem adminSystem;
-  
-    private HashSet<TransactionPair> selections;
-    private static double cumulativePaid;
+    private InputReader input;
+    private Session session;
 
 
     // static methods
@@ -33,18 +64,6 @@ public class Main {
         timeoutSeconds = timeout;
     }
 
-    /**
-     * Reset interim quantities to their actual quantities for the next user. These quantities could differ if the
-     * previous user selected an item but did not pay before timeout.
-     *
-     * @param selections User selections.
-     */
-    private static void resetQuantities(Collection<TransactionPair> selections) {
-        for (TransactionPair tp : selections) {
-            tp.getProduct().increaseQuantity(tp.getQuantity());
-        }
-    }
-
     /**
      * Main method.
      *
@@ -52,8 +71,32 @@ public class Main {
      */
     public static void main(String[] args) {
 
-        instance = new Main();
-        instance.start();
+        if (CATALOG_FILE == null) {
+            instance = new Main();
+        } else {
+            try {
+                instance = new Main(CatalogLoader.load(Paths.get(CATALOG_FILE)), null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read catalog " + CATALOG_FILE, e);
+            }
+        }
+
+        if (JOURNAL_FILE != null) {
+            instance.openJournal(Paths.get(JOURNAL_FILE));
+        }
+
+        try {
+            instance.vendingMachine.getMetrics().register();
+            instance.vendingMachine.getMetrics().watch(instance.vendingMachine.getStockEvents());
+        } catch (JMException e) {
+            System.err.println("Metrics unavailable: " + e.getMessage());
+        }
+
+        if (PORT == null) {
+            instance.start();
+        } else {
+            instance.listen(Integer.parseInt(PORT));
+        }
 
     }
 
@@ -64,58 +107,136 @@ public class Main {
      * Constructor.
      */
     public Main() {
-        this.vendingMachine = new VendingMachine();
+        this(new VendingMachine(), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param vendingMachine The vending machine to serve customers from.
+     * @param input The source of user input, or null to read from System.in.
+     */
+    public Main(VendingMachine vendingMachine, InputReader input) {
+        this.vendingMachine = vendingMachine;
+        this.input = input;
         this.adminSystem = new AdminSystem();
         this.adminSystem.setVendingMachine(vendingMachine);
-        cumulativePaid = 0.0;
+        this.session = new Session(vendingMachine, adminSystem, System.out);
+    }
+
+    /**
+     * Rebuilds stock and admin IDs from the latest snapshot and the journal written since, then records every later
+     * change in the journal and snapshots it periodically in the background.
+     *
+     * @param file The journal file.
+     */
+    private void openJournal(Path file) {
+
+        Path snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+
+        Journal journal;
+        try {
+            journal = new Journal(file);
+            Snapshot snapshot = Snapshot.load(snapshotFile);
+            long fromGeneration = 0;
+            if (snapshot != null) {
+                snapshot.restore(vendingMachine, adminSystem);
+                fromGeneration = snapshot.getGeneration();
+            }
+            journal.replay(vendingMachine, adminSystem, fromGeneration);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + file, e);
+        }
+
+        vendingMachine.setJournal(journal);
+        adminSystem.setJournal(journal);
+
+        ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                Snapshot.checkpoint(journal, snapshotFile, vendingMachine, adminSystem);
+            } catch (IOException e) {
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, SNAPSHOT_SECONDS, SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+
+    }
+
+    /**
+     * Serves kiosk terminals over TCP instead of standard input. The server runs until the process is stopped.
+     *
+     * @param port The TCP port to listen on.
+     */
+    private void listen(int port) {
+
+        try {
+            KioskServer server = new KioskServer(vendingMachine, adminSystem, port,
+                    TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            server.start();
+            System.out.printf("Serving kiosk terminals on port %d\n", server.getPort());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on port " + port, e);
+        }
+
     }
 
     /**
      * Starts the application.
      */
     public void start() {
+        serve(Long.MAX_VALUE);
+    }
 
-        System.out.println("==================\n\nWelcome to the Vending Machine!");
+    /**
+     * Serves customers until the given number of sessions has ended. A session ends when the purchase completes, or
+     * when it is cancelled or times out.
+     * <p>
+     * Every session runs in this one loop, so the stack depth does not grow with the number of sessions served.
+     *
+     * @param sessions The number of sessions to serve.
+     */
+    public void serve(long sessions) {
 
-        selections = new HashSet<>();
-        cumulativePaid = 0;
+        long served = 0;
 
-        while (true) {
+        while (served < sessions) {
 
             try {
 
-                displayAvailable();
+                if (session.getState() == SessionState.IDLE) {
+                    session.begin();
+                }
+
+                session.displayAvailable();
                 run();
 
             } catch (TimeoutException e) {
 
-                System.out.println("\n\n\n [!] Transaction cancelled due to user inactivity. [!]\n");
-                reset();
+                session.timeout();
 
             } catch (CancellationException e) {
 
-                System.out.println("\n\n [!] Transaction cancelled by user. [!]\n");
-                reset();
+                session.cancel();
 
             }
 
+            if (session.getState() == SessionState.IDLE) {
+                served++;
+            }
+
         }
 
     }
 
     /**
-     * Cleanup after transaction for next user.
+     * @return the current state of the customer session.
      */
-    private void reset() {
-
-        // reset selections
-        resetQuantities(selections);
-        selections.clear();
-        cumulativePaid = 0;
-
-        // restart input method
-        instance.start();
-
+    public SessionState getState() {
+        return session.getState();
     }
 
     /**
@@ -133,217 +254,51 @@ public class Main {
     }
 
     /**
-     * Manages user input.
+     * Manages user input. Input that starts a quantity selection, a payment or admin mode keeps reading until the
+     * session is back at product selection, or has ended.
      *
      * @param userInput The user input.
      */
     public void handleInput(String userInput) throws TimeoutException, CancellationException {
 
-        String[] inputArray = userInput.split(" ");
-        String command = inputArray[0];
-        String[] arguments = Arrays.copyOfRange(inputArray, 1, inputArray.length);
-
-        // handle user commands
-
-        if (command.equalsIgnoreCase("HELP")) {
-
-            if (inputArray.length > 1) {
-                System.out.println("\nInvalid input. Type HELP for instructions.");
-                return;
-            }
-
-            displayHelp();
-            return;
-
-        } else if (command.equalsIgnoreCase("CANCEL")) {
-
-            if (inputArray.length > 1) {
-                System.out.println("\nInvalid input. Type HELP for instructions.");
-                return;
-            }
-
-            throw new CancellationException();
-
-        } else if (command.equalsIgnoreCase("ADMIN")) {
-
-            if (arguments.length != 1) {
-                System.out.println("\nInvalid input. Type HELP for instructions.");
-                return;
-            }
+        handle(userInput);
 
-            handleAdminEntry(arguments);
-            return;
-
-        } else if (command.equalsIgnoreCase("FILL")) {
-
-            if (arguments.length != 2) {
-                System.out.println("\nInvalid input. Type HELP for instructions.");
-                return;
-            }
-
-            String productId = arguments[0];
-            String adminId = arguments[1];
-
-            if (!adminSystem.availableAdminId(adminId)) {
-                System.out.printf("\nAdmin id \"%s\" does not exist in the system!\n", adminId);
-                return;
-            }
-
-            System.out.println("\nAdmin identity authenticated. Refilling...");
-            adminSystem.fill(productId);
-            return;
-
-
-        } else if (command.equalsIgnoreCase("QUIT")) {
-
-            if (inputArray.length > 1) {
-                System.out.println("\nInvalid input. Type HELP for instructions.");
-                return;
-            }
-
-            System.out.println("\nExiting system. Have a nice day! :)");
-            System.exit(0);
-
-        }
-
-        // perform transaction
-        // selection -> payment -> retrieval
-
-        // select product
-
-        if (!command.equalsIgnoreCase("end")) {
-
-            Product selection = select(userInput);
-            if (selection == null) {
-                return;
-            }
-
-            TransactionPair newPair = selectMultiple(selection);
-            Optional<TransactionPair> optional = selections.stream().filter(s -> s.getProduct().equals(newPair.getProduct())).findFirst();
-
-            if (optional.isPresent()) {
-                optional.get().increaseQuantity(newPair.getQuantity());
-            } else {
-                selections.add(newPair);
-            }
-
-            System.out.println("\nYou have selected:");
-            System.out.print(vendingMachine.displaySelections(selections));
-
-            return;
-
-        }
-
-        // ensure user has selected something
-        if (selections.isEmpty()) {
-            System.out.println("\nNo items have been selected for purchase. Please try again.");
-            return;
-        }
-
-        // below will run only when user inputs "end"
-        double grandTotal = vendingMachine.grandTotal(selections);
-        System.out.println(String.format("\nGrand total is $%.2f - Please insert money:\n", grandTotal));
-
-        // process payment
-
-        while (true) {
+        while (session.awaitingInput()) {
 
             String input = awaitInput();
             if (input == null) {
                 throw new TimeoutException();
             }
 
-            if (payment(grandTotal, input)) {
-                break;
-            }
+            handle(input);
 
         }
 
-        // receive products (there has to be a better way to do this instead of doubly withdrawing every item)
-        resetQuantities(selections);
-        receiveProducts(selections);
-
-        System.out.println("Thank you for your purchase!\n");
-
-        // transaction finished - reset for next customer
-        instance.start();
-
     }
 
     /**
-     * Attempts to fetch the Product from the data store.
+     * Passes one line of input to the session, exiting if the user quit.
      *
-     * @param input The name or ID of the desired Product.
-     * @return the Product if available, otherwise null.
+     * @param input The user input.
      */
-    public Product select(String input) {
+    private void handle(String input) throws CancellationException {
 
-        Product selection = vendingMachine.getProduct(input);
+        session.handle(input);
 
-        if (selection == null) {
-            System.out.println("\nInvalid selection.");
-        } else if (selection.getQuantity() < 1) {
-            System.out.printf("%s is out of stock.\n", selection.getName());
-            return null;
+        if (session.getState() == SessionState.CLOSED) {
+            System.exit(0);
         }
 
-        return selection;
-
     }
 
     /**
-     * Allow user to select multiple of the same product.
+     * Attempts to fetch the Product from the data store.
      *
-     * @param selection The Product selected.
-     * @return A TransactionPair of the Product and its selected quantity.
-     * @throws TimeoutException Exception thrown after 30 seconds of inactivity.
-     * @throws CancellationException Exception thrown when user cancels transaction.
+     * @param input The name or ID of the desired Product.
+     * @return the Product if available, otherwise null.
      */
-    private TransactionPair selectMultiple(Product selection) throws TimeoutException, CancellationException {
-
-        System.out.println(String.format("\nYou have selected %s. There are %d item(s) in stock. How many would you like " +
-                "to purchase (Type a number)?\n", selection.getName(), selection.getQuantity()));
-
-        // determine qty of item
-        int quantity = 1;
-
-        boolean quantitySuccess = false;
-        while (!quantitySuccess) {
-
-            String quantityInput = awaitInput();
-            if (quantityInput == null) {
-                throw new TimeoutException();
-            } else if (quantityInput.equalsIgnoreCase("CANCEL")) {
-                throw new CancellationException();
-            }
-
-            try {
-
-                quantity = Integer.parseInt(quantityInput);
-                if (quantity <= 0) {
-
-                    System.out.println("\nInvalid input. Please enter a positive, non-zero number.\n");
-                    continue;
-                }
-                if (quantity > selection.getQuantity()) {
-
-                    System.out.println("\nNot enough stock. Please enter a smaller number.\n");
-                    continue;
-                }
-                quantitySuccess = true;
-
-            } catch (NumberFormatException e) {
-
-                System.out.println("\nInvalid input. Please enter a numerical value.\n");
-            }
-
-        }
-
-        TransactionPair tp = new TransactionPair(selection, quantity);
-        vendingMachine.dispenseItems(Collections.singletonList(tp));
-
-        return tp;
-
+    public Product select(String input) {
+        return session.select(input);
     }
 
     /**
@@ -352,46 +307,16 @@ public class Main {
      * @param grandTotal The total price to pay for all products.
      * @return Whether or not the user successfully paid for the transaction.
      */
+    public boolean payment(Money grandTotal, String input) throws CancellationException {
+        return session.payment(grandTotal, input);
+    }
 
-    public boolean payment(double grandTotal, String input) throws CancellationException {
-
-        // try to parse numerical amount
-        double insert;
-        try {
-            insert = Double.parseDouble(input);
-
-        } catch (NumberFormatException e) {
-
-            // cancellation by user
-            if (input.equalsIgnoreCase("CANCEL")) {
-
-                System.out.println();
-                dispenseChange(cumulativePaid, 0);
-
-                throw new CancellationException();
-            }
-            System.out.println("\nInvalid input. Please insert money:\n");
-            return false;
-        }
-
-        // ensuring inserted money is accepted
-        if (!acceptMoney(insert)) {
-            return false;
-        } else {
-            cumulativePaid += insert;
-        }
-
-        // then ensure amount is sufficient for purchase
-        if (cumulativePaid < grandTotal) {
-            System.out.println(String.format("\nInsufficient funds. You have paid $%.2f so far. Owing $%.2f.", cumulativePaid, grandTotal - cumulativePaid));
-            System.out.println("Please insert more money or type 'CANCEL' to cancel transaction:\n");
-            return false;
-        }
-
-        System.out.println("\nPayment successful.");
-        dispenseChange(cumulativePaid, grandTotal);
-        return true;
-
+    /**
+     * Ends the current transaction as if the customer cancelled it, returning the cart's stock and clearing what has
+     * been paid.
+     */
+    public void cancel() {
+        session.cancel();
     }
 
     /**
@@ -400,9 +325,7 @@ public class Main {
      * @param purchased The list of products that has been purchased.
      */
     public void receiveProducts(Collection<TransactionPair> purchased) {
-        System.out.println("\nYou have purchased:");
-        System.out.println(vendingMachine.displaySelections(purchased));
-        vendingMachine.dispenseItems(purchased);
+        session.receiveProducts(purchased);
     }
 
     /**
@@ -413,105 +336,9 @@ public class Main {
     private String awaitInput() {
 
         System.out.print("> ");
-        Scanner scanner = new Scanner(System.in);
-
-        ExecutorService executor = Executors.newCachedThreadPool();
-        Callable<String> task = scanner::nextLine;
-
-        Future<String> future = executor.submit(task);
-
-        try {
-            return future.get(timeoutSeconds, TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | java.util.concurrent.TimeoutException e) {
-            return null;
-        }
-
-    }
-
-    /**
-     * Dispenses change to the user.
-     *
-     * @param paid The amount the user has paid.
-     * @param total The total price of the purchase.
-     */
-    private void dispenseChange(double paid, double total) {
-
-        double change = paid - total;
-
-        if (change != 0) {
-            System.out.println(String.format("Please don't forget to take your change: $%.2f", change));
-        }
-
-    }
-
-
-    /**
-     * Displays the user help menu.
-     */
-    private void displayHelp() {
-
-        List<String> help = List.of(
-                "\n[product id] - Select a product.",
-                "[product name] - Select a product.",
-                "HELP - Display this help dialog.");
-        help.forEach(System.out::println);
-
-    }
-
-    /**
-     * Displays available products to the user.
-     */
-    private void displayAvailable() {
-
-        List<String> welcome = List.of(
-                vendingMachine.displayProducts(false),
-                "Please select a product. Type 'END' to proceed to payment. Type 'CANCEL' to cancel transaction. Type 'HELP' for instructions.\n");
-        welcome.forEach(System.out::println);
-
-    }
-
-    /**
-     * Checks if inserted money is accepted by the machine.
-     *
-     * @param paid inserted coin/note.
-     * @return weather the coin/note is accepted.
-     */
-    private boolean acceptMoney(double paid) {
-
-        double[] validValue = {0.1, 0.2, 0.5, 1.0, 2.0, 5.0, 10.0, 20.0};
-
-        for (double v : validValue) {
-
-            if (paid == v) {
-                return true;
-            }
-        }
-
-        System.out.println("\nInvalid input.\n" +
-                "\nThe Vending Machine accepts:\n" +
-                "$0.10  $0.20  $0.50  $1.00  $2.00  $5.00  $10.00  $20.00\n");
-
-        return false;
-
-
-    }
-
-    /**
-     * Entry to the admin system.
-     *
-     * @param arguments
-     */
-    private void handleAdminEntry(String[] arguments) {
-
-        if (!adminSystem.availableAdminId(arguments[0])) {
-            System.out.printf("\nAdmin id \"%s\" does not exist in the system!\n", arguments[0]);
-            return;
-        }
-
-        System.out.printf("\nWelcome Admin \"%s\" to the admin system!\n", arguments[0]);
-        adminSystem.adminOperations();
+        InputReader reader = input != null ? input : InputReader.standardInput();
+        return reader.poll(timeoutSeconds);
 
     }
 
 }
-
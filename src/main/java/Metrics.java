@@ -0,0 +1,275 @@
+import money.Money;
+import product.Category;
+import product.Product;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a vending machine's sessions and sales, and per-stage input latencies, readable over JMX.
+ * <p>
+ * Every counter is a LongAdder and every histogram is striped, so sessions on different threads record without
+ * locking or contending with each other; the cost falls on the reader, who adds the stripes together.
+ */
+public class Metrics implements MachineMetricsMXBean {
+
+    /**
+     * The JMX view of one stage's latency histogram.
+     */
+    private static class PhaseLatency implements PhaseLatencyMXBean {
+
+        private final LatencyHistogram histogram;
+
+        private PhaseLatency(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getP50Micros() {
+            return histogram.percentile(50) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return histogram.percentile(99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return histogram.percentile(99.9) / 1e3;
+        }
+    }
+
+    private long createdNanos;
+
+    private LongAdder started;
+    private LongAdder completed;
+    private LongAdder cancelled;
+    private LongAdder timedOut;
+    private SalesAnalytics sales;
+
+    private LongAdder stockAlerts;
+    private ConcurrentHashMap<String, Integer> shortOfStock;
+
+    private EnumMap<SessionState, LatencyHistogram> latencies;
+
+    /**
+     * Constructor.
+     */
+    public Metrics() {
+        this.createdNanos = System.nanoTime();
+        this.started = new LongAdder();
+        this.completed = new LongAdder();
+        this.cancelled = new LongAdder();
+        this.timedOut = new LongAdder();
+        this.sales = new SalesAnalytics();
+        this.stockAlerts = new LongAdder();
+        this.shortOfStock = new ConcurrentHashMap<>();
+
+        this.latencies = new EnumMap<>(SessionState.class);
+        for (SessionState state : SessionState.values()) {
+            latencies.put(state, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, where jconsole and similar tools can read them. Replaces
+     * the metrics of any machine registered earlier in the same JVM.
+     *
+     * @throws JMException If the MBeans cannot be registered.
+     */
+    public void register() throws JMException {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, this, new ObjectName("vending:type=Machine"));
+        for (SessionState state : SessionState.values()) {
+            register(server, new PhaseLatency(latencies.get(state)),
+                    new ObjectName("vending:type=Latency,phase=" + state));
+        }
+
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+
+    }
+
+    /**
+     * Records a customer session starting.
+     */
+    public void sessionStarted() {
+        started.increment();
+    }
+
+    /**
+     * Records a session ending in a purchase.
+     */
+    public void sessionCompleted() {
+        completed.increment();
+    }
+
+    /**
+     * Records a session cancelled by the customer.
+     */
+    public void sessionCancelled() {
+        cancelled.increment();
+    }
+
+    /**
+     * Records a session timing out.
+     */
+    public void sessionTimedOut() {
+        timedOut.increment();
+    }
+
+    /**
+     * Records units of a product leaving the machine in a purchase.
+     *
+     * @param product The product sold.
+     * @param quantity The number of units sold.
+     * @param cents The amount paid for them, in cents.
+     */
+    public void sold(Product product, int quantity, long cents) {
+        sales.record(product, quantity, cents);
+    }
+
+    /**
+     * Follows a machine's stock events from now on, on the bus's subscriber thread: low stock and sold out events
+     * raise an alert and list the product as short of stock until it is restocked.
+     *
+     * @param events The machine's stock events.
+     * @return the subscription, for closing it.
+     */
+    public StockEventBus.Subscription watch(StockEventBus events) {
+        return events.subscribe("metrics", this::stockChanged);
+    }
+
+    private void stockChanged(StockEvent event) {
+
+        String product = "[ID " + event.getProduct().getId() + "] " + event.getProduct().getName();
+        switch (event.getType()) {
+            case LOW_STOCK:
+            case SOLD_OUT:
+                stockAlerts.increment();
+                shortOfStock.put(product, event.getQuantity());
+                break;
+            case RESTOCKED:
+                shortOfStock.remove(product);
+                break;
+            default:
+                break;
+        }
+
+    }
+
+    /**
+     * @return the running totals of sales by product, category and hour.
+     */
+    public SalesAnalytics getSales() {
+        return sales;
+    }
+
+    /**
+     * @param category A product category.
+     * @return the revenue taken from products in the category, in cents.
+     */
+    public long getRevenueCents(Category category) {
+        return sales.getRevenueCents(category);
+    }
+
+    /**
+     * @param state A session stage.
+     * @return the handling latencies of input received at that stage.
+     */
+    public LatencyHistogram getLatency(SessionState state) {
+        return latencies.get(state);
+    }
+
+    @Override
+    public long getSessionsStarted() {
+        return started.sum();
+    }
+
+    @Override
+    public long getSessionsCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getSessionsCancelled() {
+        return cancelled.sum();
+    }
+
+    @Override
+    public long getSessionsTimedOut() {
+        return timedOut.sum();
+    }
+
+    @Override
+    public double getSessionsPerSecond() {
+        return perSecond(started.sum());
+    }
+
+    @Override
+    public double getPurchasesPerSecond() {
+        return perSecond(completed.sum());
+    }
+
+    @Override
+    public long getUnitsSold() {
+        return sales.getUnits();
+    }
+
+    @Override
+    public Map<String, Long> getUnitsSoldByProduct() {
+        return sales.getUnitsByProduct();
+    }
+
+    @Override
+    public long getRevenueCents() {
+        return sales.getRevenueCents();
+    }
+
+    @Override
+    public String getRevenue() {
+        return Money.format(sales.getRevenueCents());
+    }
+
+    @Override
+    public double getRevenueCentsPerSecond() {
+        return perSecond(sales.getRevenueCents());
+    }
+
+    @Override
+    public long getStockAlerts() {
+        return stockAlerts.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getShortOfStock() {
+        return new TreeMap<>(shortOfStock);
+    }
+
+    private double perSecond(long count) {
+        double seconds = (System.nanoTime() - createdNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds > 0 ? count / seconds : 0;
+    }
+
+}
@@ -0,0 +1,27 @@
+/**
+ * The JMX view of how long input takes to handle at one session stage, registered as
+ * {@code vending:type=Latency,phase=<stage>}.
+ */
+public interface PhaseLatencyMXBean {
+
+    /**
+     * @return the number of input lines handled at this stage.
+     */
+    long getCount();
+
+    /**
+     * @return the median handling time, in microseconds.
+     */
+    double getP50Micros();
+
+    /**
+     * @return the 99th percentile handling time, in microseconds.
+     */
+    double getP99Micros();
+
+    /**
+     * @return the 99.9th percentile handling time, in microseconds.
+     */
+    double getP999Micros();
+
+}
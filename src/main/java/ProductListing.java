@@ -0,0 +1,164 @@
+import product.Product;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the rendered product listings shown to customers and admins.
+ * <p>
+ * Each product's row is rendered once and kept until that product changes. The assembled customer and admin listings
+ * are kept per stock version, so a prompt with no stock change in between costs a version comparison, and a change
+ * re-renders only the rows that changed.
+ */
+public class ProductListing {
+
+    /**
+     * A rendered row, with whether the product was in stock when it was rendered.
+     */
+    private static class Row {
+        private final String text;
+        private final boolean available;
+
+        private Row(String text, boolean available) {
+            this.text = text;
+            this.available = available;
+        }
+    }
+
+    private Iterable<Product> stock;
+    private LongSupplier version;
+    private String heading;
+
+    private Map<Product, Row> rows;
+    private Set<Product> dirty;
+
+    /**
+     * Whether any listing has been rendered. Until then there are no rows to invalidate, so loading a large catalog
+     * does not fill the dirty set.
+     */
+    private volatile boolean rendered;
+
+    private String customerListing;
+    private long customerVersion;
+    private String adminListing;
+    private long adminVersion;
+
+    /**
+     * Constructor.
+     *
+     * @param stock The products to list, in display order.
+     * @param version The current stock version. It must change after any listed product is marked dirty.
+     */
+    public ProductListing(Iterable<Product> stock, LongSupplier version) {
+        this(stock, version, "Available selections");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param stock The products to list, in display order.
+     * @param version The current stock version. It must change after any listed product is marked dirty.
+     * @param heading The heading of the customer listing, e.g. "Available selections".
+     */
+    public ProductListing(Iterable<Product> stock, LongSupplier version, String heading) {
+        this.heading = heading;
+        this.stock = stock;
+        this.version = version;
+        this.rows = new HashMap<>();
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.customerVersion = -1;
+        this.adminVersion = -1;
+    }
+
+    /**
+     * Marks a product's row for re-rendering, or for dropping if the product has left the machine. Must be called
+     * before the stock version is advanced.
+     *
+     * @param product The product that changed.
+     */
+    public void markDirty(Product product) {
+        if (rendered) {
+            dirty.add(product);
+        }
+    }
+
+    /**
+     * Returns the listing for the current stock version, rendering only what changed since the last call.
+     *
+     * @param isAdmin Whether or not the user is an admin. If they are an admin, show all products.
+     * @return the listing.
+     */
+    public synchronized String render(boolean isAdmin) {
+
+        // set before any row is rendered, so that every later change is marked
+        rendered = true;
+
+        long current = version.getAsLong();
+
+        if (isAdmin && adminVersion == current) {
+            return adminListing;
+        } else if (!isAdmin && customerVersion == current) {
+            return customerListing;
+        }
+
+        for (Product p : dirty) {
+            dirty.remove(p);
+            rows.remove(p);
+        }
+
+        StringBuilder display;
+        if (isAdmin) {
+            display = new StringBuilder("\nProducts:\n");
+        } else {
+            display = new StringBuilder("\n").append(heading).append(":\n");
+        }
+
+        boolean anyAvailable = false;
+
+        for (Product p : stock) {
+
+            Row row = rows.get(p);
+            if (row == null) {
+                row = renderRow(p);
+                rows.put(p, row);
+            }
+
+            anyAvailable |= row.available;
+
+            if (!isAdmin && !row.available) {
+                continue;
+            }
+
+            display.append(row.text);
+
+        }
+
+        if (!anyAvailable) {
+            display.append("(no items available)\n");
+        }
+
+        String listing = display.toString();
+        if (isAdmin) {
+            adminListing = listing;
+            adminVersion = current;
+        } else {
+            customerListing = listing;
+            customerVersion = current;
+        }
+        return listing;
+
+    }
+
+    private static Row renderRow(Product p) {
+
+        int quantity = p.getQuantity();
+        String text = "[ID " + p.getId() + "] " + p.getName() + " - " + p.getPrice()
+                + " (" + quantity + " item(s) in stock)\n";
+        return new Row(text, quantity > 0);
+
+    }
+
+}
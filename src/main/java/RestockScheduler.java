@@ -0,0 +1,369 @@
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a machine's products in the order they are projected to run out, from how fast each has been selling.
+ * <p>
+ * A sale only queues an event on the customer's thread. The events are applied a few milliseconds later on a single
+ * background thread, shared by every machine in the process, which updates each product's depletion rate and moves it
+ * to its new place in the queue: a removal and an insertion in a sorted tree, so O(log n) in the products that have
+ * sold.
+ * <p>
+ * The depletion rate is the units sold, each weighted down exponentially with its age, over the rate window. A
+ * product's projected empty time is worked out from its units in the machine and its rate as of its last sale or
+ * restock. Products that have never sold have no projection and are not in the queue.
+ */
+public class RestockScheduler {
+
+    /**
+     * The default time over which sales are weighted to give a depletion rate.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The quantity of an event that removes a product from the queue.
+     */
+    private static final int REMOVED = -1;
+
+    /**
+     * How long the update thread lets events gather before applying them, so a busy machine wakes it a few times a
+     * second rather than on every sale.
+     */
+    private static final long BATCH_MILLIS = 10;
+
+    /**
+     * The one thread that applies every scheduler's events.
+     */
+    private static final ScheduledExecutorService UPDATES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "restock-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A sale, restock or removal waiting to be applied, or a marker that releases a latch once reached.
+     */
+    private static class Event {
+
+        private final Product product;
+        private final int quantity;
+        private final long time;
+        private final CountDownLatch reached;
+
+        private Event(Product product, int quantity, long time, CountDownLatch reached) {
+            this.product = product;
+            this.quantity = quantity;
+            this.time = time;
+            this.reached = reached;
+        }
+    }
+
+    /**
+     * A product's depletion rate and projection. Its projection changes only while it is out of the queue, so the
+     * queue's order holds.
+     */
+    private static class Depletion {
+
+        private final Product product;
+        private double rate;
+        private long updated;
+        private int stocked;
+        private long emptyAt;
+        private boolean queued;
+
+        private Depletion(Product product) {
+            this.product = product;
+        }
+    }
+
+    private static final Comparator<Depletion> BY_EMPTY_AT = Comparator.<Depletion>comparingLong(d -> d.emptyAt)
+            .thenComparingInt(d -> d.product.getId());
+
+    private LongSupplier clock;
+    private long window;
+
+    private Queue<Event> events;
+    private AtomicBoolean scheduled;
+
+    // changed on the update thread only, under the scheduler's lock
+    private Map<Integer, Depletion> byProduct;
+    private TreeSet<Depletion> queue;
+
+    /**
+     * Constructor. Rates are weighted over the default window, by the system clock.
+     */
+    public RestockScheduler() {
+        this(System::currentTimeMillis, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clock The time of each sale, in milliseconds since the epoch.
+     * @param windowMillis The time over which sales are weighted to give a depletion rate, in milliseconds.
+     */
+    public RestockScheduler(LongSupplier clock, long windowMillis) {
+
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("The rate window must be positive");
+        }
+
+        this.clock = clock;
+        this.window = windowMillis;
+        this.events = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean();
+        this.byProduct = new HashMap<>();
+        this.queue = new TreeSet<>(BY_EMPTY_AT);
+
+    }
+
+    /**
+     * Records units of a product leaving the machine in a purchase. Returns without waiting for the queue to update.
+     *
+     * @param product The product sold.
+     * @param quantity The number of units sold.
+     */
+    public void sold(Product product, int quantity) {
+        offer(new Event(product, quantity, clock.getAsLong(), null));
+    }
+
+    /**
+     * Records a product being restocked, so its projection starts from its new units.
+     *
+     * @param product The product restocked.
+     */
+    public void restocked(Product product) {
+        offer(new Event(product, 0, clock.getAsLong(), null));
+    }
+
+    /**
+     * Records a product leaving the machine's catalog, taking it out of the queue.
+     *
+     * @param product The product removed.
+     */
+    public void removed(Product product) {
+        offer(new Event(product, REMOVED, clock.getAsLong(), null));
+    }
+
+    /**
+     * Waits until every event recorded before the call has been applied to the queue.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void awaitUpdates() throws InterruptedException {
+
+        CountDownLatch reached = new CountDownLatch(1);
+        offer(new Event(null, 0, 0, reached));
+        reached.await();
+
+    }
+
+    /**
+     * Queues an event, and makes sure the update thread will apply it.
+     */
+    private void offer(Event event) {
+
+        events.add(event);
+        if (scheduled.compareAndSet(false, true)) {
+            UPDATES.schedule(this::drain, BATCH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+    /**
+     * Applies every queued event in order, then puts each product they moved back in the queue at its new place, so a
+     * product that sold many times in the batch is moved once. Update thread only; the scheduled flag keeps it to one
+     * drain at a time.
+     */
+    private void drain() {
+
+        List<Depletion> moved = new ArrayList<>();
+        List<CountDownLatch> reached = new ArrayList<>();
+
+        synchronized (this) {
+            Event event;
+            while ((event = events.poll()) != null) {
+                if (event.reached != null) {
+                    reached.add(event.reached);
+                } else {
+                    apply(event, moved);
+                }
+            }
+            for (Depletion d : moved) {
+                // skip products removed or replaced later in the batch
+                if (byProduct.get(d.product.getId()) == d) {
+                    project(d);
+                    queue.add(d);
+                    d.queued = true;
+                }
+            }
+        }
+
+        for (CountDownLatch latch : reached) {
+            latch.countDown();
+        }
+
+        scheduled.set(false);
+        // an event may have arrived after the last poll but before the flag was cleared
+        if (!events.isEmpty() && scheduled.compareAndSet(false, true)) {
+            UPDATES.schedule(this::drain, BATCH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+    /**
+     * Applies one event to its product's rate, taking the product out of the queue if it is still in it.
+     *
+     * @param event A sale, restock or removal.
+     * @param moved The products taken out of the queue in this batch.
+     */
+    private void apply(Event event, List<Depletion> moved) {
+
+        int id = event.product.getId();
+        Depletion d = byProduct.get(id);
+
+        if (event.quantity == REMOVED) {
+            if (d != null && d.product == event.product) {
+                unqueue(d, moved);
+                byProduct.remove(id);
+            }
+            return;
+        }
+
+        if (d != null && d.product != event.product) {
+            // a new product with the same ID starts with no sales
+            unqueue(d, moved);
+            byProduct.remove(id);
+            d = null;
+        }
+        if (d == null && event.quantity == 0) {
+            // a restock says nothing about how fast a product sells
+            return;
+        }
+
+        if (d == null) {
+            d = new Depletion(event.product);
+            d.updated = event.time;
+            byProduct.put(id, d);
+            moved.add(d);
+        } else {
+            unqueue(d, moved);
+        }
+
+        // decay the rate to the event's time, then add the units sold
+        if (event.time > d.updated) {
+            d.rate *= Math.exp(-(double) (event.time - d.updated) / window);
+            d.updated = event.time;
+        }
+        d.rate += (double) event.quantity / window;
+
+    }
+
+    private void unqueue(Depletion d, List<Depletion> moved) {
+
+        if (d.queued) {
+            queue.remove(d);
+            d.queued = false;
+            moved.add(d);
+        }
+
+    }
+
+    /**
+     * Projects when a product runs out, from its units in the machine now and its rate as of its last event.
+     */
+    private static void project(Depletion d) {
+
+        d.stocked = d.product.getStocked();
+        d.emptyAt = d.stocked == 0 ? d.updated : d.updated + (long) Math.min(d.stocked / d.rate, Long.MAX_VALUE / 2);
+
+    }
+
+    /**
+     * @return the products that have sold, soonest to run out first.
+     */
+    public synchronized List<Product> getQueue() {
+
+        List<Product> products = new ArrayList<>(queue.size());
+        for (Depletion d : queue) {
+            products.add(d.product);
+        }
+        return products;
+
+    }
+
+    /**
+     * @param product A product in the machine.
+     * @return the milliseconds from now until the product is projected to run out, 0 if it is overdue, or -1 if it
+     * has not sold.
+     */
+    public synchronized long getMillisToEmpty(Product product) {
+
+        Depletion d = byProduct.get(product.getId());
+        if (d == null || d.product != product) {
+            return -1;
+        }
+        return Math.max(0, d.emptyAt - clock.getAsLong());
+
+    }
+
+    /**
+     * @return the queue as one line per product, soonest to run out first, with its units, rate and time to empty.
+     */
+    @Override
+    public synchronized String toString() {
+
+        StringBuilder display = new StringBuilder("\nRestock queue:\n");
+        if (queue.isEmpty()) {
+            display.append("No sales recorded yet.\n");
+        }
+
+        long now = clock.getAsLong();
+        for (Depletion d : queue) {
+            display.append(String.format("[ID %d] %s - %d unit(s), selling %.1f/hour, %s\n",
+                    d.product.getId(), d.product.getName(), d.stocked,
+                    d.rate * Math.exp(-(double) Math.max(0, now - d.updated) / window) * HOUR_MILLIS,
+                    d.stocked == 0 ? "empty now"
+                            : d.emptyAt <= now ? "due to run out now" : "empty in " + duration(d.emptyAt - now)));
+        }
+        return display.toString();
+
+    }
+
+    /**
+     * @return the milliseconds as days and hours, hours and minutes, or minutes.
+     */
+    private static String duration(long millis) {
+
+        if (millis < MINUTE_MILLIS) {
+            return "under a minute";
+        }
+        if (millis >= DAY_MILLIS) {
+            return String.format("%dd %02dh", millis / DAY_MILLIS, millis % DAY_MILLIS / HOUR_MILLIS);
+        }
+        if (millis >= HOUR_MILLIS) {
+            return String.format("%dh %02dm", millis / HOUR_MILLIS, millis % HOUR_MILLIS / MINUTE_MILLIS);
+        }
+        return String.format("%dm", millis / MINUTE_MILLIS);
+
+    }
+
+}
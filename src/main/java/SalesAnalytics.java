@@ -0,0 +1,230 @@
+import money.Money;
+import product.Category;
+import product.Product;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Running totals of what a vending machine has sold, by product, by category and by hour.
+ * <p>
+ * Each sale is added to its rollups as it happens, so reading the totals costs the same after a million sales as
+ * after one: a pass over the products, the categories and the last day's hours, never over the sales themselves.
+ * Every total is a LongAdder, so sessions on different threads record without contending.
+ */
+public class SalesAnalytics {
+
+    /**
+     * The number of hours kept in the hourly rollup.
+     */
+    public static final int HOURS = 24;
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Units and revenue for one product, category or hour.
+     */
+    private static class Tally {
+
+        private final String label;
+        private final LongAdder units;
+        private final LongAdder cents;
+
+        private Tally(String label) {
+            this.label = label;
+            this.units = new LongAdder();
+            this.cents = new LongAdder();
+        }
+
+        private void add(int quantity, long revenue) {
+            units.add(quantity);
+            cents.add(revenue);
+        }
+
+        private String line() {
+            return String.format("%s - %d unit(s), %s\n", label, units.sum(), Money.format(cents.sum()));
+        }
+    }
+
+    /**
+     * The tally for one clock hour, numbered from the epoch.
+     */
+    private static class HourTally {
+
+        private final long hour;
+        private final Tally tally;
+
+        private HourTally(long hour, String label) {
+            this.hour = hour;
+            this.tally = new Tally(label);
+        }
+    }
+
+    private LongSupplier clock;
+    private DateTimeFormatter hourFormat;
+
+    private Tally total;
+    private ConcurrentHashMap<Integer, Tally> byProduct;
+    private Tally[] byCategory;
+
+    /**
+     * The last day's hours, in slots by hour modulo HOURS. A slot holding an older hour is replaced when that slot's
+     * hour comes round again.
+     */
+    private AtomicReferenceArray<HourTally> byHour;
+
+    /**
+     * Constructor. Sales are put in the current hour by the system clock.
+     */
+    public SalesAnalytics() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clock The time of each sale, in milliseconds since the epoch.
+     */
+    public SalesAnalytics(LongSupplier clock) {
+        this.clock = clock;
+        this.hourFormat = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:00").withZone(ZoneId.systemDefault());
+        this.total = new Tally("Total");
+        this.byProduct = new ConcurrentHashMap<>();
+        this.byCategory = new Tally[CATEGORIES.length];
+        for (Category c : CATEGORIES) {
+            byCategory[c.ordinal()] = new Tally(c.name());
+        }
+        this.byHour = new AtomicReferenceArray<>(HOURS);
+    }
+
+    /**
+     * Adds a sale to every rollup.
+     *
+     * @param product The product sold.
+     * @param quantity The number of units sold.
+     * @param cents The amount paid for them, in cents.
+     */
+    public void record(Product product, int quantity, long cents) {
+
+        total.add(quantity, cents);
+        byProduct.computeIfAbsent(product.getId(), id -> new Tally("[ID " + id + "] " + product.getName()))
+                .add(quantity, cents);
+        byCategory[product.getCategory().ordinal()].add(quantity, cents);
+        hour(clock.getAsLong() / HOUR_MILLIS).tally.add(quantity, cents);
+
+    }
+
+    /**
+     * @return the tally for the given hour, starting a new one if its slot holds an older hour.
+     */
+    private HourTally hour(long hour) {
+
+        int slot = (int) (hour % HOURS);
+        HourTally tally = byHour.get(slot);
+        while (tally == null || tally.hour < hour) {
+            HourTally next = new HourTally(hour, hourFormat.format(Instant.ofEpochMilli(hour * HOUR_MILLIS)));
+            if (byHour.compareAndSet(slot, tally, next)) {
+                return next;
+            }
+            tally = byHour.get(slot);
+        }
+        return tally;
+
+    }
+
+    /**
+     * @return the total units sold.
+     */
+    public long getUnits() {
+        return total.units.sum();
+    }
+
+    /**
+     * @return the total revenue, in cents.
+     */
+    public long getRevenueCents() {
+        return total.cents.sum();
+    }
+
+    /**
+     * @param category A product category.
+     * @return the units sold in the category.
+     */
+    public long getUnits(Category category) {
+        return byCategory[category.ordinal()].units.sum();
+    }
+
+    /**
+     * @param category A product category.
+     * @return the revenue taken in the category, in cents.
+     */
+    public long getRevenueCents(Category category) {
+        return byCategory[category.ordinal()].cents.sum();
+    }
+
+    /**
+     * @param epochMillis A time within the last day.
+     * @return the revenue taken in the clock hour holding that time, in cents, or 0 if it is no longer kept.
+     */
+    public long getRevenueCentsInHour(long epochMillis) {
+
+        long hour = epochMillis / HOUR_MILLIS;
+        HourTally tally = byHour.get((int) (hour % HOURS));
+        return tally != null && tally.hour == hour ? tally.tally.cents.sum() : 0;
+
+    }
+
+    /**
+     * @return the units sold of each product that has sold, keyed by "[ID id] name".
+     */
+    public Map<String, Long> getUnitsByProduct() {
+
+        Map<String, Long> units = new TreeMap<>();
+        for (Tally t : byProduct.values()) {
+            units.put(t.label, t.units.sum());
+        }
+        return units;
+
+    }
+
+    /**
+     * @return the rollups: each product, category and hour of the last day with sales, then the total.
+     */
+    public String report() {
+
+        StringBuilder report = new StringBuilder("Sales by product:\n");
+        for (Tally t : new TreeMap<>(byProduct).values()) {
+            report.append(t.line());
+        }
+
+        report.append("\nSales by category:\n");
+        for (Tally t : byCategory) {
+            if (t.units.sum() > 0) {
+                report.append(t.line());
+            }
+        }
+
+        report.append("\nSales by hour (last ").append(HOURS).append(" hours):\n");
+        long now = clock.getAsLong() / HOUR_MILLIS;
+        for (long hour = now - HOURS + 1; hour <= now; hour++) {
+            HourTally t = byHour.get((int) (hour % HOURS));
+            if (t != null && t.hour == hour && t.tally.units.sum() > 0) {
+                report.append(t.tally.line());
+            }
+        }
+
+        report.append('\n').append(total.line());
+        return report.toString();
+
+    }
+
+}
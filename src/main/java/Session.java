@@ -0,0 +1,649 @@
+import exceptions.CancellationException;
+import exceptions.TimeoutException;
+import money.Denomination;
+import money.Money;
+import product.Category;
+import product.Product;
+
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * A single customer session: the customer's selections and payment so far, and the stage of the transaction they are
+ * at.
+ * <p>
+ * A session does no input handling of its own. Its driver (the console in Main, or a SessionEngine) feeds it one line
+ * at a time through handle(), and reports inactivity through timeout(). Any number of sessions can share one
+ * VendingMachine.
+ */
+public class Session {
+
+    /**
+     * Commands available at product selection. Any other input is taken as a product name or ID.
+     */
+    private static final CommandRegistry<Session> COMMANDS = new CommandRegistry<>(Session::invalidInput)
+            .register("HELP", 0, Session::help)
+            .register("CATEGORY", 1, Session::category)
+            .register("REMOVE", CommandRegistry.ANY, Session::removeSelection)
+            .register("CANCEL", 0, Session::cancelTransaction)
+            .register("ADMIN", 1, Session::admin)
+            .register("FILL", 2, Session::fill)
+            .register("QUIT", 0, Session::quit)
+            .register("END", CommandRegistry.ANY, Session::checkout);
+
+    private VendingMachine vendingMachine;
+    private AdminSystem adminSystem;
+    private PrintStream out;
+    private CommandLine line;
+
+    private SessionState state;
+    private Product pending;
+    private Cart cart;
+    private Money grandTotal;
+    private long paidCents;
+    private List<Denomination> inserted;
+
+    /**
+     * The coins and notes of the last settled payment, and the change given for it, until its sale is committed.
+     */
+    private List<Denomination> settled;
+    private int[] changeGiven;
+
+    /**
+     * Constructor.
+     *
+     * @param vendingMachine The vending machine to sell from.
+     * @param adminSystem The admin system used to authenticate admin commands.
+     * @param out Where to write output for the customer.
+     */
+    public Session(VendingMachine vendingMachine, AdminSystem adminSystem, PrintStream out) {
+        this.vendingMachine = vendingMachine;
+        this.adminSystem = adminSystem;
+        this.out = out;
+        this.cart = new Cart();
+        this.inserted = new ArrayList<>();
+        this.settled = new ArrayList<>();
+        this.line = new CommandLine();
+        this.state = SessionState.IDLE;
+    }
+
+    /**
+     * @return the current stage of the session.
+     */
+    public SessionState getState() {
+        return state;
+    }
+
+    /**
+     * @return whether the session is part way through a step that needs more input before the customer is back at
+     * product selection.
+     */
+    public boolean awaitingInput() {
+        return state == SessionState.QUANTITY || state == SessionState.PAYING || state == SessionState.ADMIN;
+    }
+
+    /**
+     * @return whether the customer has products in their cart, or is part way through a step that needs more input.
+     */
+    public boolean inTransaction() {
+        return awaitingInput() || !cart.isEmpty();
+    }
+
+    /**
+     * Greets the next customer and opens product selection.
+     */
+    public void begin() {
+
+        out.println("==================\n\nWelcome to the Vending Machine!");
+        state = SessionState.SELECTING;
+        vendingMachine.getMetrics().sessionStarted();
+
+    }
+
+    /**
+     * Writes the prompt for the current stage: the product listing at product selection, then the input marker.
+     */
+    public void prompt() {
+
+        if (state == SessionState.SELECTING) {
+            displayAvailable();
+        }
+        out.print("> ");
+
+    }
+
+    /**
+     * Advances the session by one line of input.
+     *
+     * @param input The user input.
+     * @throws CancellationException Exception thrown when user cancels transaction.
+     */
+    public void handle(String input) throws CancellationException {
+
+        if (state == SessionState.IDLE) {
+            state = SessionState.SELECTING;
+            vendingMachine.getMetrics().sessionStarted();
+        }
+
+        LatencyHistogram latency = vendingMachine.getMetrics().getLatency(state);
+        long start = System.nanoTime();
+
+        try {
+            switch (state) {
+                case SELECTING:
+                    handleSelection(input);
+                    break;
+                case QUANTITY:
+                    handleQuantity(input);
+                    break;
+                case PAYING:
+                    handlePayment(input);
+                    break;
+                case ADMIN:
+                    handleAdmin(input);
+                    break;
+                default:
+                    throw new IllegalStateException("No input expected in state " + state);
+            }
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+
+    }
+
+    /**
+     * Ends the session after the customer cancelled it.
+     */
+    public void cancel() {
+
+        out.println("\n\n [!] Transaction cancelled by user. [!]\n");
+        reset();
+        vendingMachine.getMetrics().sessionCancelled();
+
+    }
+
+    /**
+     * Ends the session after the customer stopped responding.
+     */
+    public void timeout() {
+
+        out.println("\n\n\n [!] Transaction cancelled due to user inactivity. [!]\n");
+        reset();
+        vendingMachine.getMetrics().sessionTimedOut();
+
+    }
+
+    /**
+     * Cleanup after transaction for next user.
+     */
+    private void reset() {
+
+        // return reserved stock for the next user
+        vendingMachine.release(cart.getSelections());
+        cart.clear();
+        paidCents = 0;
+        inserted.clear();
+        pending = null;
+
+        state = SessionState.IDLE;
+
+    }
+
+    /**
+     * Handles input at product selection: commands, product selections and END.
+     *
+     * @param userInput The user input.
+     */
+    private void handleSelection(String userInput) throws CancellationException {
+
+        Command<Session> command = COMMANDS.lookup(line.parse(userInput));
+        if (command != null) {
+            command.execute(this, line);
+            return;
+        }
+
+        // perform transaction
+        // selection -> quantity -> payment -> retrieval
+
+        // select product
+
+        Product selection = select(userInput);
+        if (selection == null) {
+            return;
+        }
+
+        out.println(String.format("\nYou have selected %s. There are %d item(s) in stock. How many would you like " +
+                "to purchase (Type a number)?\n", selection.getName(), selection.getQuantity()));
+
+        pending = selection;
+        state = SessionState.QUANTITY;
+
+    }
+
+    private void invalidInput(CommandLine line) {
+        out.println("\nInvalid input. Type HELP for instructions.");
+    }
+
+    private void help(CommandLine line) {
+        displayHelp();
+    }
+
+    private void category(CommandLine line) {
+
+        Category category = Category.forName(line.argument(0));
+        if (category == null) {
+            out.printf("\nUnknown category \"%s\". Categories are %s.\n", line.argument(0),
+                    Arrays.toString(Category.values()));
+            return;
+        }
+
+        out.println(vendingMachine.displayCategory(category, false));
+
+    }
+
+    /**
+     * Takes a product out of the cart and returns its reserved units to stock.
+     */
+    private void removeSelection(CommandLine line) {
+
+        if (line.arguments() == 0) {
+            invalidInput(line);
+            return;
+        }
+
+        // product names may contain spaces
+        Product product = vendingMachine.getProduct(line.text().substring(line.start(1)));
+        int removed = product == null ? 0 : cart.getQuantity(product);
+        if (removed == 0) {
+            out.println("\nThat product is not in your cart.");
+            return;
+        }
+
+        cart.remove(product);
+        vendingMachine.release(List.of(new TransactionPair(product, removed)));
+
+        out.printf("\nRemoved %s from your cart.\n", product.getName());
+        if (!cart.isEmpty()) {
+            out.println("You have selected:");
+            out.print(cart.render());
+        }
+
+    }
+
+    private void cancelTransaction(CommandLine line) throws CancellationException {
+        throw new CancellationException();
+    }
+
+    private void admin(CommandLine line) {
+        handleAdminEntry(line.argument(0));
+    }
+
+    private void fill(CommandLine line) {
+
+        String productId = line.argument(0);
+        String adminId = line.argument(1);
+
+        if (!adminSystem.availableAdminId(adminId)) {
+            out.printf("\nAdmin id \"%s\" does not exist in the system!\n", adminId);
+            return;
+        }
+
+        out.println("\nAdmin identity authenticated. Refilling...");
+        adminSystem.fill(productId);
+
+    }
+
+    private void quit(CommandLine line) {
+
+        // nobody will come back to pay, so return the cart's stock
+        if (inTransaction()) {
+            cancel();
+        }
+        out.println("\nExiting system. Have a nice day! :)");
+        state = SessionState.CLOSED;
+
+    }
+
+    /**
+     * Proceeds to payment once the customer types END.
+     */
+    private void checkout(CommandLine line) {
+
+        // ensure user has selected something
+        if (cart.isEmpty()) {
+            out.println("\nNo items have been selected for purchase. Please try again.");
+            return;
+        }
+
+        grandTotal = cart.getTotal();
+        out.println("\nGrand total is " + grandTotal + " - Please insert money:\n");
+
+        state = SessionState.PAYING;
+
+    }
+
+    /**
+     * Allow user to select multiple of the same product.
+     *
+     * @param quantityInput The quantity entered for the pending selection.
+     * @throws CancellationException Exception thrown when user cancels transaction.
+     */
+    private void handleQuantity(String quantityInput) throws CancellationException {
+
+        if (quantityInput.equalsIgnoreCase("CANCEL")) {
+            throw new CancellationException();
+        }
+
+        // determine qty of item
+        int quantity;
+
+        try {
+
+            quantity = Integer.parseInt(quantityInput);
+
+        } catch (NumberFormatException e) {
+
+            out.println("\nInvalid input. Please enter a numerical value.\n");
+            return;
+        }
+
+        if (quantity <= 0) {
+
+            out.println("\nInvalid input. Please enter a positive, non-zero number.\n");
+            return;
+        }
+        if (!vendingMachine.reserve(pending, quantity)) {
+
+            out.println("\nNot enough stock. Please enter a smaller number.\n");
+            return;
+        }
+
+        cart.add(pending, quantity);
+        pending = null;
+
+        out.println("\nYou have selected:");
+        out.print(cart.render());
+
+        state = SessionState.SELECTING;
+
+    }
+
+    /**
+     * Handles input at payment, then dispenses the products once the grand total has been paid.
+     *
+     * @param input The user input.
+     * @throws CancellationException Exception thrown when user cancels transaction.
+     */
+    private void handlePayment(String input) throws CancellationException {
+
+        if (!payment(grandTotal, input)) {
+            return;
+        }
+
+        state = SessionState.DISPENSING;
+
+        // the reserved units are paid for and leave the machine
+        try {
+            vendingMachine.commit(cart.getSelections());
+        } catch (RuntimeException e) {
+            // nothing left the machine, so the customer gets their money back and the cart is released
+            System.err.println("Sale failed: " + e.getMessage());
+            refund();
+            throw new CancellationException();
+        }
+        settled.clear();
+        changeGiven = null;
+        displayPurchased(cart.render());
+
+        out.println("Thank you for your purchase!\n");
+
+        // transaction finished - reset for next customer
+        cart.clear();
+        paidCents = 0;
+        state = SessionState.IDLE;
+        vendingMachine.getMetrics().sessionCompleted();
+
+    }
+
+    /**
+     * Attempts to fetch the Product from the data store. Input that is not an exact name or ID selects the one
+     * Product it starts a word of or nearly spells, and otherwise suggests the Products it could mean.
+     *
+     * @param input The name or ID of the desired Product.
+     * @return the Product if available, otherwise null.
+     */
+    public Product select(String input) {
+
+        Product selection = vendingMachine.getProduct(input);
+
+        if (selection == null) {
+            // not an exact name or ID, so try it as part of a name or a misspelling
+            List<Product> matches = vendingMachine.searchProducts(input);
+            if (matches.size() != 1) {
+                out.println("\nInvalid selection.");
+                if (!matches.isEmpty()) {
+                    List<String> names = new ArrayList<>(matches.size());
+                    for (Product p : matches) {
+                        names.add(p.getName());
+                    }
+                    out.printf("Did you mean: %s?\n", String.join(", ", names));
+                }
+                return null;
+            }
+            selection = matches.get(0);
+        }
+
+        if (selection.getQuantity() < 1) {
+            out.printf("%s is out of stock.\n", selection.getName());
+            return null;
+        }
+
+        return selection;
+
+    }
+
+    /**
+     * Handles user payment.
+     *
+     * @param grandTotal The total price to pay for all products.
+     * @return Whether or not the user successfully paid for the transaction.
+     */
+
+    public boolean payment(Money grandTotal, String input) throws CancellationException {
+
+        // try to parse numerical amount
+        long insert = Money.parseCents(input);
+        if (insert == Money.INVALID) {
+
+            // cancellation by user
+            if (input.equalsIgnoreCase("CANCEL")) {
+
+                out.println();
+                dispenseChange(paidCents, 0);
+
+                throw new CancellationException();
+            }
+            out.println("\nInvalid input. Please insert money:\n");
+            return false;
+        }
+
+        // ensuring inserted money is accepted
+        if (!acceptMoney(insert)) {
+            return false;
+        }
+
+        // then ensure amount is sufficient for purchase
+        long total = grandTotal.cents();
+        if (paidCents + insert < total) {
+            paidCents += insert;
+            inserted.add(Denomination.forCents(insert));
+            out.println("\nInsufficient funds. You have paid " + Money.format(paidCents) + " so far. Owing "
+                    + Money.format(total - paidCents) + ".");
+            out.println("Please insert more money or type 'CANCEL' to cancel transaction:\n");
+            return false;
+        }
+
+        // the inserted coins stay in escrow until the machine is sure it can give change
+        long change = paidCents + insert - total;
+        inserted.add(Denomination.forCents(insert));
+        int[] given = vendingMachine.getCashBox().canMakeChange(change)
+                ? vendingMachine.getCashBox().pay(inserted, change)
+                : null;
+        if (given == null) {
+            inserted.remove(inserted.size() - 1);
+            out.println("\nSorry, the machine cannot give " + Money.format(change) + " in change. Your "
+                    + Money.format(insert) + " has been returned.");
+            out.println("Please insert a smaller amount or type 'CANCEL' to cancel transaction:\n");
+            return false;
+        }
+
+        // the payment is settled once the change is given, so nothing paid is carried over; its coins are kept until
+        // the sale is committed, in case it has to be refunded
+        List<Denomination> swap = settled;
+        settled = inserted;
+        inserted = swap;
+        inserted.clear();
+        changeGiven = given;
+        out.println("\nPayment successful.");
+        dispenseChange(paidCents + insert, total);
+        paidCents = 0;
+        return true;
+
+    }
+
+    /**
+     * Undoes the settled payment of a sale that could not be committed, and tells the customer.
+     */
+    private void refund() {
+
+        long cents = 0;
+        for (Denomination d : settled) {
+            cents += d.cents();
+        }
+        vendingMachine.getCashBox().refund(settled, changeGiven);
+        settled.clear();
+        changeGiven = null;
+        out.println("\nSorry, the machine could not complete your purchase. Your " + Money.format(cents)
+                + " has been returned.");
+
+    }
+
+    /**
+     * Gives the Product to the user after successful payment, taking it straight from available stock.
+     *
+     * @param purchased The list of products that has been purchased.
+     */
+    public void receiveProducts(Collection<TransactionPair> purchased) {
+        displayPurchased(vendingMachine.displaySelections(purchased).toString());
+        vendingMachine.dispenseItems(purchased);
+    }
+
+    /**
+     * Displays the products purchased.
+     *
+     * @param purchased The rendered list of products that has been purchased.
+     */
+    private void displayPurchased(String purchased) {
+        out.println("\nYou have purchased:");
+        out.println(purchased);
+    }
+
+    /**
+     * Dispenses change to the user.
+     *
+     * @param paid The amount the user has paid, in cents.
+     * @param total The total price of the purchase, in cents.
+     */
+    private void dispenseChange(long paid, long total) {
+
+        long change = paid - total;
+
+        if (change != 0) {
+            out.println("Please don't forget to take your change: " + Money.format(change));
+        }
+
+    }
+
+
+    /**
+     * Displays the user help menu.
+     */
+    private void displayHelp() {
+
+        List<String> help = List.of(
+                "\n[product id] - Select a product.",
+                "[product name] - Select a product.",
+                "CATEGORY [category] - List the products in a category.",
+                "REMOVE [product] - Remove a product from your selections.",
+                "HELP - Display this help dialog.");
+        help.forEach(out::println);
+
+    }
+
+    /**
+     * Displays available products to the user.
+     */
+    public void displayAvailable() {
+
+        List<String> welcome = List.of(
+                vendingMachine.displayProducts(false),
+                "Please select a product. Type 'END' to proceed to payment. Type 'CANCEL' to cancel transaction. Type 'HELP' for instructions.\n");
+        welcome.forEach(out::println);
+
+    }
+
+    /**
+     * Checks if inserted money is accepted by the machine.
+     *
+     * @param paid inserted coin/note, in cents.
+     * @return weather the coin/note is accepted.
+     */
+    private boolean acceptMoney(long paid) {
+
+        if (Denomination.forCents(paid) != null) {
+            return true;
+        }
+
+        out.println("\nInvalid input.\n" +
+                "\nThe Vending Machine accepts:\n" +
+                "$0.10  $0.20  $0.50  $1.00  $2.00  $5.00  $10.00  $20.00\n");
+
+        return false;
+
+
+    }
+
+    /**
+     * Entry to the admin system.
+     *
+     * @param adminId The admin ID to log in with.
+     */
+    private void handleAdminEntry(String adminId) {
+
+        if (!adminSystem.availableAdminId(adminId)) {
+            out.printf("\nAdmin id \"%s\" does not exist in the system!\n", adminId);
+            return;
+        }
+
+        out.printf("\nWelcome Admin \"%s\" to the admin system!\n", adminId);
+        state = SessionState.ADMIN;
+
+    }
+
+    /**
+     * Passes input to the admin system until the admin types END.
+     *
+     * @param input The admin input.
+     */
+    private void handleAdmin(String input) {
+
+        try {
+            adminSystem.handleInput(line.parse(input));
+        } catch (CancellationException | TimeoutException e) {
+            out.println("\n\nYou are exiting admin mode\n===========================\n");
+            state = SessionState.SELECTING;
+        }
+
+    }
+
+}
@@ -0,0 +1,226 @@
+import exceptions.CancellationException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many customer sessions concurrently against one shared VendingMachine.
+ * <p>
+ * Each session is driven by a script of input lines, where a null line stands for the customer going quiet until the
+ * session times out. On Java 21 and later every session runs on its own virtual thread; on older runtimes sessions
+ * share a fixed pool with one platform thread per core.
+ */
+public class SessionEngine implements AutoCloseable {
+
+    private VendingMachine vendingMachine;
+    private AdminSystem adminSystem;
+    private ExecutorService executor;
+    private boolean virtualThreads;
+
+    private LongAdder completed;
+    private LongAdder cancelled;
+    private LongAdder timedOut;
+
+    /**
+     * Constructor.
+     *
+     * @param vendingMachine The vending machine all sessions sell from.
+     * @param adminSystem The admin system all sessions authenticate admin commands against.
+     */
+    public SessionEngine(VendingMachine vendingMachine, AdminSystem adminSystem) {
+        this.vendingMachine = vendingMachine;
+        this.adminSystem = adminSystem;
+        this.completed = new LongAdder();
+        this.cancelled = new LongAdder();
+        this.timedOut = new LongAdder();
+
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtualThreads
+                ? virtual
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per task, or null if the runtime has no virtual threads.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+
+    }
+
+    /**
+     * @return whether sessions run on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Starts a session that plays the given script. Sessions submitted together run concurrently.
+     *
+     * @param script The customer's input lines; null stands for an inactivity timeout.
+     * @return a Future that completes when the script has been played.
+     */
+    public Future<?> submit(List<String> script) {
+        return executor.submit(() -> play(script));
+    }
+
+    /**
+     * Starts a session that plays the given script, then runs a callback on the session's thread.
+     *
+     * @param script The customer's input lines; null stands for an inactivity timeout.
+     * @param onDone Run once the script has been played, whether or not it finished normally.
+     * @return a Future that completes when the script has been played.
+     */
+    public Future<?> submit(List<String> script, Runnable onDone) {
+        return executor.submit(() -> {
+            try {
+                play(script);
+            } finally {
+                onDone.run();
+            }
+        });
+    }
+
+    /**
+     * @param state A session stage.
+     * @return the handling latencies of input received at that stage, as recorded by every session in the machine's
+     * metrics.
+     */
+    public LatencyHistogram getLatency(SessionState state) {
+        return vendingMachine.getMetrics().getLatency(state);
+    }
+
+    /**
+     * Plays every script concurrently and waits for them all to finish.
+     *
+     * @param scripts One script per session.
+     * @return the wall-clock time taken, in nanoseconds.
+     */
+    public long runAll(List<List<String>> scripts) throws InterruptedException {
+
+        long start = System.nanoTime();
+
+        List<Future<?>> futures = new ArrayList<>(scripts.size());
+        for (List<String> script : scripts) {
+            futures.add(submit(script));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Session failed", e.getCause());
+            }
+        }
+
+        return System.nanoTime() - start;
+
+    }
+
+    /**
+     * Plays one script through a new Session. The script may contain several back-to-back transactions. A
+     * transaction the script leaves unfinished is cancelled, so its cart's stock is returned.
+     *
+     * @param script The customer's input lines.
+     */
+    private void play(List<String> script) {
+
+        PrintStream discarded = new PrintStream(OutputStream.nullOutputStream());
+        Session session = new Session(vendingMachine, adminSystem.withOutput(discarded), discarded);
+        session.begin();
+
+        try {
+            for (String line : script) {
+
+                session.prompt();
+
+                if (line == null) {
+                    session.timeout();
+                    timedOut.increment();
+                } else {
+                    try {
+                        boolean inTransaction = session.inTransaction();
+                        session.handle(line);
+                        if (session.getState() == SessionState.IDLE) {
+                            completed.increment();
+                        } else if (session.getState() == SessionState.CLOSED && inTransaction) {
+                            // QUIT cancelled the transaction on the way out
+                            cancelled.increment();
+                        }
+                    } catch (CancellationException e) {
+                        session.cancel();
+                        cancelled.increment();
+                    }
+                }
+
+                if (session.getState() == SessionState.CLOSED) {
+                    return;
+                } else if (session.getState() == SessionState.IDLE) {
+                    session.begin();
+                }
+
+            }
+        } finally {
+            // the customer walked away, so nobody is left to pay for the cart
+            if (session.inTransaction()) {
+                session.cancel();
+                cancelled.increment();
+            }
+        }
+
+    }
+
+    /**
+     * @return the number of sessions that ended in a purchase.
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of sessions cancelled by the customer, or left unfinished at the end of their script.
+     */
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return the number of sessions that timed out.
+     */
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Stops accepting sessions and waits for running ones to finish. If interrupted while waiting, interrupts the
+     * running sessions instead and returns with the interrupt flag set.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+/**
+ * The stages of a customer session. A session moves through them in order, returning to IDLE when the purchase
+ * completes or the session is cancelled or times out. ADMIN is entered from SELECTING and returns to it, and CLOSED
+ * is final.
+ */
+public enum SessionState {
+    IDLE,
+    SELECTING,
+    QUANTITY,
+    PAYING,
+    DISPENSING,
+    ADMIN,
+    CLOSED
+}
@@ -0,0 +1,257 @@
+import money.Money;
+import product.Category;
+import product.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of the stock table and admin IDs, taken at a journal checkpoint.
+ * <p>
+ * Startup loads the latest snapshot through a memory-mapped file and replays only the journal segments written after
+ * it, so cold start is bounded by the snapshot size plus a short journal tail rather than the machine's whole history.
+ * <p>
+ * The file holds a magic number, the first journal segment not covered, the products (ID, price in cents, units in
+ * the machine, capacity, par level, category and name), the admin IDs, and a CRC32 of everything before it. Reserved
+ * units count as in the machine, since carts do not survive a restart.
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x564D5332; // "VMS2"
+    private static final Category[] CATEGORIES = Category.values();
+
+    private long generation;
+    private List<Product> products;
+    private Set<String> adminIds;
+
+    /**
+     * Constructor.
+     *
+     * @param generation The first journal segment the snapshot does not cover.
+     * @param products The products, with their quantities as at the checkpoint.
+     * @param adminIds The admin IDs.
+     */
+    public Snapshot(long generation, List<Product> products, Set<String> adminIds) {
+        this.generation = generation;
+        this.products = products;
+        this.adminIds = adminIds;
+    }
+
+    /**
+     * @return the first journal segment the snapshot does not cover.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the products, with their quantities as at the checkpoint.
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * @return the admin IDs.
+     */
+    public Set<String> getAdminIds() {
+        return adminIds;
+    }
+
+    /**
+     * Copies the current state.
+     *
+     * @param generation The journal segment that follows the snapshot.
+     * @param vendingMachine The machine to copy.
+     * @param adminSystem The admin system to copy.
+     * @return the snapshot.
+     */
+    public static Snapshot capture(long generation, VendingMachine vendingMachine, AdminSystem adminSystem) {
+        return new Snapshot(generation, vendingMachine.copyProducts(), new HashSet<>(adminSystem.getAdminIDs()));
+    }
+
+    /**
+     * Checkpoints the journal, writes a snapshot of the state at the checkpoint, then deletes the journal segments it
+     * covers. Does nothing if nothing has been journaled since the last checkpoint.
+     * <p>
+     * Changes are held off only while the journal starts its new segment and the admin IDs are copied. The products
+     * are copied afterwards, while changes continue: each product changed in the meantime is taken as it was before
+     * its first change, so the snapshot is the state exactly at the start of the new segment, and replaying that
+     * segment applies each purchase once.
+     *
+     * @param journal The journal to checkpoint.
+     * @param file The snapshot file.
+     * @param vendingMachine The machine to snapshot.
+     * @param adminSystem The admin system to snapshot.
+     * @return the snapshot written, or null if none was needed.
+     * @throws IOException If the snapshot or journal cannot be written.
+     */
+    public static Snapshot checkpoint(Journal journal, Path file, VendingMachine vendingMachine,
+                                      AdminSystem adminSystem) throws IOException {
+
+        Snapshot snapshot = journal.checkpoint(g -> {
+            vendingMachine.beginCapture();
+            return new Snapshot(g, null, new HashSet<>(adminSystem.getAdminIDs()));
+        });
+        if (snapshot == null) {
+            return null;
+        }
+
+        try {
+            snapshot.products = vendingMachine.copyProducts();
+        } finally {
+            vendingMachine.endCapture();
+        }
+
+        snapshot.write(file);
+        journal.deleteSegmentsBefore(snapshot.getGeneration());
+        return snapshot;
+
+    }
+
+    /**
+     * Replaces the machine's products and the admin IDs with those in the snapshot.
+     *
+     * @param vendingMachine The machine to restore.
+     * @param adminSystem The admin system to restore.
+     */
+    public void restore(VendingMachine vendingMachine, AdminSystem adminSystem) {
+
+        for (Product p : new ArrayList<>(vendingMachine.getProducts())) {
+            vendingMachine.removeProduct(p.getId());
+        }
+        for (Product p : products) {
+            vendingMachine.addProduct(p);
+        }
+
+        adminSystem.getAdminIDs().clear();
+        adminSystem.getAdminIDs().addAll(adminIds);
+
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, forces it to disk, then renames it over the given file, so a crash
+     * leaves either the old snapshot or the new one.
+     *
+     * @param file The snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+
+        List<byte[]> names = new ArrayList<>(products.size());
+        int size = 4 + 8 + 4 + 4 + 4;
+        for (Product p : products) {
+            byte[] name = p.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 4 + 8 + 4 + 4 + 4 + 1 + 2 + name.length;
+        }
+        List<byte[]> ids = new ArrayList<>(adminIds.size());
+        for (String id : adminIds) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            ids.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putLong(generation).putInt(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            buffer.putInt(p.getId()).putLong(p.getPrice().cents()).putInt(p.getQuantity())
+                    .putInt(p.getCapacity()).putInt(p.getParLevel())
+                    .put((byte) p.getCategory().ordinal())
+                    .putShort((short) names.get(i).length).put(names.get(i));
+        }
+        buffer.putInt(ids.size());
+        for (byte[] id : ids) {
+            buffer.putShort((short) id.length).put(id);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /**
+     * Loads a snapshot through a memory-mapped file.
+     *
+     * @param file The snapshot file.
+     * @return the snapshot, or null if there is no snapshot file.
+     * @throws IOException If the file cannot be read, or is not an intact snapshot.
+     */
+    public static Snapshot load(Path file) throws IOException {
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.limit() < 4 + 8 + 4 + 4 + 4 || map.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer body = map.duplicate();
+            body.limit(map.limit() - 4);
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(map.limit() - 4)) {
+                throw new IOException("Snapshot is corrupt: " + file);
+            }
+
+            map.position(4);
+            long generation = map.getLong();
+
+            int count = map.getInt();
+            List<Product> products = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = map.getInt();
+                long cents = map.getLong();
+                int quantity = map.getInt();
+                int capacity = map.getInt();
+                int parLevel = map.getInt();
+                Category category = CATEGORIES[map.get()];
+                products.add(new Product(id, text(map), Money.ofCents(cents), quantity, capacity, parLevel,
+                        category));
+            }
+
+            int admins = map.getInt();
+            Set<String> adminIds = new HashSet<>();
+            for (int i = 0; i < admins; i++) {
+                adminIds.add(text(map));
+            }
+
+            return new Snapshot(generation, products, adminIds);
+
+        }
+
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,91 @@
+import money.Money;
+import product.Product;
+
+/**
+ * A change to a product's stock or price, as delivered to a StockEventBus subscriber.
+ * <p>
+ * Each subscription reuses one StockEvent for every event it delivers, so a subscriber must copy anything it keeps
+ * past the call.
+ */
+public class StockEvent {
+
+    /**
+     * The kinds of stock event.
+     */
+    public enum Type {
+
+        /**
+         * The product's units in the machine fell below its par level.
+         */
+        LOW_STOCK,
+
+        /**
+         * The product's last unit in the machine was sold.
+         */
+        SOLD_OUT,
+
+        /**
+         * The product's coil was filled to capacity.
+         */
+        RESTOCKED,
+
+        /**
+         * The product's price changed.
+         */
+        PRICE_CHANGED
+
+    }
+
+    private long sequence;
+    private Type type;
+    private Product product;
+    private int quantity;
+    private long priceCents;
+
+    /**
+     * Fills the event in from a slot of the ring buffer.
+     */
+    void set(long sequence, Type type, Product product, int quantity, long priceCents) {
+        this.sequence = sequence;
+        this.type = type;
+        this.product = product;
+        this.quantity = quantity;
+        this.priceCents = priceCents;
+    }
+
+    /**
+     * @return the event's position in the machine's stream of events, counting from 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * @return the units in the machine just after the change, whether available or reserved.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the product's price just after the change.
+     */
+    public Money getPrice() {
+        return Money.ofCents(priceCents);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s [ID %d] %s - %d unit(s) @ %s", sequence, type, product.getId(),
+                product.getName(), quantity, Money.format(priceCents));
+    }
+
+}
@@ -0,0 +1,275 @@
+import product.Product;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Publishes a vending machine's stock events to subscribers, each of which reads them on its own thread.
+ * <p>
+ * Events go into a ring buffer of slots allocated when the first subscriber joins. Publishing claims the next
+ * sequence number, fills that slot in place and marks it with the sequence, so it allocates nothing, takes no lock and
+ * never waits for a subscriber. Each subscriber follows the sequence at its own pace. One that falls a whole ring
+ * behind skips the events overwritten in the meantime, and counts them as missed, rather than holding up a purchase.
+ * A subscriber that has caught up parks until a publisher wakes it, so an idle bus uses no CPU. With no subscribers,
+ * publishing returns at once.
+ * <p>
+ * The application subscribes the machine's Metrics, which turn low stock and sold out events into alerts readable over
+ * JMX. Other consumers, such as a notifier for the operator, can subscribe alongside it.
+ */
+public class StockEventBus {
+
+    /**
+     * The number of slots in the ring buffer, unless given.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Marks a slot being written.
+     */
+    private static final long WRITING = Long.MIN_VALUE;
+
+    /**
+     * One slot of the ring buffer. Its fields are valid while its sequence is unchanged.
+     */
+    private static class Slot {
+
+        private final AtomicLong sequence;
+        private StockEvent.Type type;
+        private Product product;
+        private int quantity;
+        private long priceCents;
+
+        private Slot(long sequence) {
+            this.sequence = new AtomicLong(sequence);
+        }
+    }
+
+    /**
+     * A subscriber's place in the stream, and the thread that delivers events to it.
+     */
+    public class Subscription {
+
+        private final Consumer<StockEvent> subscriber;
+        private final StockEvent event;
+        private final Thread thread;
+        private volatile long next;
+        private volatile long missed;
+        private volatile boolean closed;
+        private volatile boolean waiting;
+
+        private Subscription(String name, Consumer<StockEvent> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.event = new StockEvent();
+            this.next = next;
+            this.thread = new Thread(this::run, "stock-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Subscriber thread body: delivers each event in turn, parking whenever it has caught up.
+         */
+        private void run() {
+
+            Slot[] ring = slots;
+            long n = next;
+            while (!closed) {
+                Slot slot = ring[(int) n & mask];
+                long s = slot.sequence.get();
+                if (s == n) {
+                    event.set(n, slot.type, slot.product, slot.quantity, slot.priceCents);
+                    // the copy must be read before the sequence is checked again
+                    VarHandle.loadLoadFence();
+                    if (slot.sequence.get() == n) {
+                        deliver();
+                        next = ++n;
+                        continue;
+                    }
+                }
+
+                long oldest = cursor.get() - capacity;
+                if (n < oldest) {
+                    // overwritten before it was read
+                    missed += oldest - n;
+                    next = n = oldest;
+                } else if (s < n || s == WRITING) {
+                    // say so before looking again, so a publisher either sees this or has already written the slot
+                    waiting = true;
+                    if (slot.sequence.get() == s && !closed) {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                }
+            }
+
+        }
+
+        private void deliver() {
+
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                // a failing subscriber loses that event only
+                System.err.println("Stock event subscriber failed on " + event + ": " + e);
+            }
+
+        }
+
+        /**
+         * @return the number of events delivered or missed so far: the sequence of the next event to deliver.
+         */
+        public long getPosition() {
+            return next;
+        }
+
+        /**
+         * @return the number of events overwritten before this subscriber read them.
+         */
+        public long getMissed() {
+            return missed;
+        }
+
+        /**
+         * Stops delivering events, and waits for the subscriber thread to finish its current event.
+         *
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        public void close() throws InterruptedException {
+
+            closed = true;
+            LockSupport.unpark(thread);
+            thread.join();
+            unsubscribe(this);
+
+        }
+    }
+
+    private int capacity;
+    private int mask;
+    private AtomicLong cursor;
+    private volatile Slot[] slots;
+    private volatile Subscription[] subscriptions;
+
+    /**
+     * Constructor. The ring buffer has the default capacity.
+     */
+    public StockEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of events a subscriber can fall behind before it misses some, rounded up to a power
+     * of two.
+     */
+    public StockEventBus(int capacity) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A stock event bus needs at least one slot");
+        }
+
+        this.capacity = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.cursor = new AtomicLong();
+        this.subscriptions = new Subscription[0];
+
+    }
+
+    /**
+     * Publishes an event to every subscriber, waking those that have caught up. Never waits for a subscriber.
+     *
+     * @param type The kind of event.
+     * @param product The product that changed.
+     * @param quantity The units in the machine just after the change.
+     */
+    public void publish(StockEvent.Type type, Product product, int quantity) {
+
+        Slot[] ring = slots;
+        if (ring == null) {
+            return;
+        }
+
+        long sequence = cursor.getAndIncrement();
+        Slot slot = ring[(int) sequence & mask];
+        while (true) {
+            long s = slot.sequence.get();
+            if (s > sequence) {
+                // a publisher a whole ring ahead has already reused the slot
+                return;
+            }
+            if (s != WRITING && slot.sequence.compareAndSet(s, WRITING)) {
+                break;
+            }
+            // a publisher a whole ring behind is still writing the slot
+            Thread.onSpinWait();
+        }
+
+        slot.type = type;
+        slot.product = product;
+        slot.quantity = quantity;
+        slot.priceCents = product.getPrice().cents();
+        slot.sequence.set(sequence);
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.waiting) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+
+    }
+
+    /**
+     * Starts delivering events published from now on to a subscriber, on a new daemon thread.
+     *
+     * @param name Names the subscriber's thread.
+     * @param subscriber Receives each event. The event is reused after the call returns.
+     * @return the subscription, for closing it.
+     */
+    public synchronized Subscription subscribe(String name, Consumer<StockEvent> subscriber) {
+
+        if (slots == null) {
+            Slot[] ring = new Slot[capacity];
+            for (int i = 0; i < capacity; i++) {
+                // slot i is free for sequence i, which is later than anything it could be said to hold
+                ring[i] = new Slot(i - capacity);
+            }
+            slots = ring;
+        }
+
+        Subscription subscription = new Subscription(name, subscriber, cursor.get());
+        Subscription[] more = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        more[more.length - 1] = subscription;
+        subscriptions = more;
+        subscription.thread.start();
+        return subscription;
+
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+
+        List<Subscription> remaining = new ArrayList<>(Arrays.asList(subscriptions));
+        remaining.remove(subscription);
+        subscriptions = remaining.toArray(new Subscription[0]);
+
+    }
+
+    /**
+     * @return the number of events published since the first subscriber joined.
+     */
+    public long getPublished() {
+        return cursor.get();
+    }
+
+    /**
+     * @return the current subscriptions.
+     */
+    public List<Subscription> getSubscriptions() {
+        return List.of(subscriptions);
+    }
+
+}
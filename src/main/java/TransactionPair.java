@@ -1,3 +1,4 @@
+import money.Money;
 import product.Product;
 
 public class TransactionPair {
@@ -18,8 +19,8 @@ public class TransactionPair {
         return quantity;
     }
 
-    public double getTotalPrice() {
-        return product.getPrice() * quantity;
+    public Money getTotalPrice() {
+        return product.getPrice().times(quantity);
     }
 
     public void increaseQuantity(int extra) {
@@ -1,19 +1,85 @@
+import money.CashBox;
+import money.Money;
 import product.Category;
 import product.Product;
+import product.ProductIndex;
+import product.RestockPlan;
+import product.StockChange;
+import product.StockObserver;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 public class VendingMachine {
 
     private Set<Product> stock;
+    private ProductIndex index;
+    private AtomicLong stockVersion;
+    private ProductListing listing;
+    private EnumMap<Category, Set<Product>> byCategory;
+    private EnumMap<Category, ProductListing> categoryListings;
+    private Journal journal;
+    private Metrics metrics;
+    private CashBox cashBox;
+    private RestockScheduler restockScheduler;
+    private StockEventBus stockEvents;
+
+    /**
+     * Registered on every product; one instance, rather than a new method reference per product.
+     */
+    private StockObserver observer;
+
+    /**
+     * While a snapshot is being copied, each product as it was before its first journaled change since the copy
+     * began; otherwise null.
+     */
+    private volatile Map<Product, Product> captured;
 
     /**
      * Constructor. Adds stock to vending machine.
      */
     public VendingMachine() {
+        this(defaultCatalog());
+    }
+
+    /**
+     * Constructor. Adds the given stock to the vending machine.
+     *
+     * @param products The Products to stock.
+     */
+    public VendingMachine(Collection<Product> products) {
         // Sort Products by increasing ID to group related Products together.
         Comparator<Product> byId = Comparator.comparing(Product::getId);
         stock = new TreeSet<>(byId);
+        index = new ProductIndex();
+        stockVersion = new AtomicLong();
+        listing = new ProductListing(stock, stockVersion::get);
+        byCategory = new EnumMap<>(Category.class);
+        categoryListings = new EnumMap<>(Category.class);
+        metrics = new Metrics();
+        cashBox = CashBox.standardFloat();
+        restockScheduler = new RestockScheduler();
+        stockEvents = new StockEventBus();
+        observer = this::stockChanged;
+        for (Category c : Category.values()) {
+            Set<Product> inCategory = new TreeSet<>(byId);
+            byCategory.put(c, inCategory);
+            categoryListings.put(c, new ProductListing(inCategory, stockVersion::get, "Available selections in " + c));
+        }
+
+        for (Product p : products) {
+            addProduct(p);
+        }
+    }
+
+    /**
+     * @return the built-in catalog of Products.
+     */
+    private static List<Product> defaultCatalog() {
+        List<Product> stock = new ArrayList<>();
 
         stock.add(new Product(0, "Original", 5, 2, Category.CHIPS));
         stock.add(new Product(1, "Chicken", 3.50, 10, Category.CHIPS));
@@ -35,6 +101,147 @@ public class VendingMachine {
         // Client requirements state 'Sneakers', development team is happy to change this to 'Snickers' if this was
         // a typo.
         stock.add(new Product(14, "Sneakers", 1, 10, Category.CHOCOLATE));
+
+        return stock;
+    }
+
+    /**
+     * Adds a Product to the vending machine, replacing any Product with the same ID.
+     *
+     * @param product The Product to add.
+     */
+    public void addProduct(Product product) {
+        removeProduct(product.getId());
+        stock.add(product);
+        byCategory.get(product.getCategory()).add(product);
+        index.add(product);
+        product.setObserver(observer);
+        stockChanged(product);
+    }
+
+    /**
+     * Removes a Product from the vending machine.
+     *
+     * @param id The ID of the Product to remove.
+     * @return The removed Product, or null if no Product has that ID.
+     */
+    public Product removeProduct(int id) {
+        Product removed = index.remove(id);
+        if (removed != null) {
+            stock.remove(removed);
+            byCategory.get(removed.getCategory()).remove(removed);
+            removed.setObserver(null);
+            stockChanged(removed);
+            restockScheduler.removed(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * @return the coins and notes the machine gives change from.
+     */
+    public CashBox getCashBox() {
+        return cashBox;
+    }
+
+    /**
+     * Replaces the cash box, e.g. with one emptied or refilled by an operator.
+     *
+     * @param cashBox The new cash box.
+     */
+    public void setCashBox(CashBox cashBox) {
+        this.cashBox = cashBox;
+    }
+
+    /**
+     * @return the queue of products in the order they are projected to run out.
+     */
+    public RestockScheduler getRestockScheduler() {
+        return restockScheduler;
+    }
+
+    /**
+     * @return the stream of low stock, sold out, restock and price change events, for subscribers to follow.
+     */
+    public StockEventBus getStockEvents() {
+        return stockEvents;
+    }
+
+    /**
+     * @return the machine's session and sales metrics.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the journal that purchases, fills and price changes are recorded in. Replay the journal before setting it.
+     *
+     * @param journal The journal, or null to stop journaling.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Starts a capture: from now on each journaled change keeps a copy of its product as it was before, so
+     * copyProducts() gives the stock as at this point while changes continue. Call while the journal holds changes
+     * off, so the capture starts exactly at a journal position.
+     */
+    void beginCapture() {
+        captured = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Ends a capture started by beginCapture().
+     */
+    void endCapture() {
+        captured = null;
+    }
+
+    /**
+     * Keeps a copy of a product before a journaled change to it, if a capture is running and this is the product's
+     * first change since it began. Called inside the change, before the product is touched.
+     */
+    private void beforeChange(Product p) {
+
+        Map<Product, Product> before = captured;
+        if (before != null && !before.containsKey(p)) {
+            before.putIfAbsent(p, copy(p));
+        }
+
+    }
+
+    /**
+     * Copies every product, counting reserved units as in the machine. During a capture, products changed since it
+     * began are copied as they were when it began.
+     *
+     * @return the copies, in ID order.
+     */
+    public List<Product> copyProducts() {
+
+        Map<Product, Product> before = captured;
+        List<Product> products = new ArrayList<>(stock.size());
+        for (Product p : stock) {
+            // copy first: a change after the copy has already kept the product as it was
+            Product now = copy(p);
+            Product then = before == null ? null : before.get(p);
+            products.add(then == null ? now : then);
+        }
+        return products;
+
+    }
+
+    private static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getPrice(), p.getStocked(), p.getCapacity(), p.getParLevel(),
+                p.getCategory());
+    }
+
+    /**
+     * @return a read-only view of the products in the machine, in ID order.
+     */
+    public Collection<Product> getProducts() {
+        return Collections.unmodifiableCollection(stock);
     }
 
     /**
@@ -45,69 +252,224 @@ public class VendingMachine {
      */
     public Product getProduct(String input) {
         // If User inputted an integer, assume they are selecting by ID.
-        try {
-            int id = Integer.parseInt(input);
-            for (Product p : stock) {
-                if (p.getId() == id) {
-                    return p;
-                }
-            }
-        } catch (NumberFormatException e) {
-            for (Product p : stock) {
-                if (p.getName().equalsIgnoreCase(input)) {
-                    return p;
-                }
-            }
+        return index.lookup(input);
+    }
+
+    /**
+     * Returns the Product with the given ID, without parsing any text.
+     *
+     * @param id The ID of the requested Product.
+     * @return The Product if found in stock, null if not.
+     */
+    public Product getProduct(int id) {
+        return index.byId(id);
+    }
+
+    /**
+     * Finds the Products a customer may mean by input that is not an exact name or ID: the start of a word in a name,
+     * or a name with a typo.
+     *
+     * @param input The customer's input.
+     * @return no Products if nothing matches, one if the input picks out a single Product, otherwise the candidates.
+     */
+    public List<Product> searchProducts(String input) {
+        return index.search(input);
+    }
+
+    /**
+     * Called by a product whenever its quantity or price changes. Publishes a stock event if the change is one
+     * subscribers are told about. Stock events follow the units in the machine, so reserving units for a cart that is
+     * later cancelled reports nothing.
+     *
+     * @param product The product that changed.
+     * @param change What kind of change it was.
+     * @param before The units in the machine before the change.
+     * @param after The units in the machine after the change.
+     */
+    private void stockChanged(Product product, StockChange change, int before, int after) {
+
+        // a sale takes reserved units, which the listings already leave out
+        if (change != StockChange.SALE) {
+            stockChanged(product);
         }
-        return null;
+
+        if (change == StockChange.RESTOCK) {
+            stockEvents.publish(StockEvent.Type.RESTOCKED, product, after);
+        } else if (change == StockChange.PRICE) {
+            stockEvents.publish(StockEvent.Type.PRICE_CHANGED, product, after);
+        } else if (after == 0 && before > 0) {
+            stockEvents.publish(StockEvent.Type.SOLD_OUT, product, after);
+        } else if (after < product.getParLevel() && before >= product.getParLevel()) {
+            stockEvents.publish(StockEvent.Type.LOW_STOCK, product, after);
+        }
+
+    }
+
+    /**
+     * Called whenever a product's quantity or price changes, or a product is added or removed.
+     *
+     * @param product The product that changed.
+     */
+    private void stockChanged(Product product) {
+        // the row must be marked before the version moves, so a render that sees the new version re-renders it
+        listing.markDirty(product);
+        categoryListings.get(product.getCategory()).markDirty(product);
+        stockVersion.incrementAndGet();
     }
 
     /**
-     * Constructs a string representation of all available products.
+     * @return a counter that changes whenever any product's quantity or price changes.
+     */
+    public long getStockVersion() {
+        return stockVersion.get();
+    }
+
+    /**
+     * Constructs a string representation of all available products. The listing is cached per stock version, so
+     * repeated calls with no stock change in between do not re-render it.
      *
      * @return A String representation of available products.
      * @param isAdmin Whether or not the user is an admin. If they are an admin, show all products.
      */
     public String displayProducts(boolean isAdmin) {
+        return listing.render(isAdmin);
+    }
 
-        StringBuilder display;
-        if (isAdmin) {
-            display = new StringBuilder("\nProducts:\n");
-        } else {
-            display = new StringBuilder("\nAvailable selections:\n");
-        }
+    /**
+     * Constructs a string representation of the products in one category, cached per stock version like
+     * displayProducts().
+     *
+     * @param category The category to list.
+     * @param isAdmin Whether or not the user is an admin. If they are an admin, show all products in the category.
+     * @return A String representation of the category's products.
+     */
+    public String displayCategory(Category category, boolean isAdmin) {
+        return categoryListings.get(category).render(isAdmin);
+    }
 
-        for (Product p : stock) {
+    /**
+     * Dispenses the selected products in the specified quantities to the purchaser.
+     *
+     * @param selections The products and amounts selected.
+     */
+    public void dispenseItems(Collection<TransactionPair> selections) {
+
+        // more logic could be implemented here - negative or zero checks
+        // to prevent product from taking a negative quantity
 
-            if (! isAdmin && p.getQuantity() <= 0) {
-                continue;
+        journaled(() -> {
+            for (TransactionPair tp : selections) {
+                beforeChange(tp.getProduct());
+                tp.getProduct().reduceQuantity(tp.getQuantity());
             }
+            return true;
+        }, () -> journalPurchase(selections));
+
+        recordSales(selections);
+
+    }
+
+    /**
+     * Reserves units of a Product for a customer's cart. Reserved units are no longer available to other customers
+     * until they are released or committed.
+     *
+     * @param product The Product to reserve.
+     * @param quantity The number of units to reserve.
+     * @return Whether or not there was enough stock to reserve.
+     */
+    public boolean reserve(Product product, int quantity) {
+        return product.tryReserve(quantity);
+    }
 
-            display.append(String.format("[ID %d] %s - $%.2f (%d item(s) in stock)\n",
-                    p.getId(), p.getName(), p.getPrice(), p.getQuantity()));
+    /**
+     * Completes the reservations for paid-for selections, removing the units from the machine. Once the units have
+     * left the machine the sale stands, even if its journal record then cannot be written: the journal refuses every
+     * later change instead.
+     *
+     * @param selections The products and amounts purchased.
+     * @throws RuntimeException If nothing was committed, e.g. because the journal has failed. The units stay
+     * reserved.
+     */
+    public void commit(Collection<TransactionPair> selections) {
 
+        boolean[] committed = new boolean[1];
+        try {
+            journaled(() -> {
+                for (TransactionPair tp : selections) {
+                    beforeChange(tp.getProduct());
+                    tp.getProduct().commit(tp.getQuantity());
+                }
+                committed[0] = true;
+                return true;
+            }, () -> journalPurchase(selections));
+        } catch (RuntimeException e) {
+            if (!committed[0]) {
+                throw e;
+            }
+            System.err.println("Sale not journaled: " + e.getMessage());
         }
 
-        if (stock.stream().allMatch(p -> p.getQuantity() <= 0)) {
-            display.append("(no items available)\n");
+        recordSales(selections);
+
+    }
+
+    /**
+     * Adds a completed purchase to the sales metrics and the restock queue.
+     *
+     * @param selections The products and amounts purchased.
+     */
+    private void recordSales(Collection<TransactionPair> selections) {
+
+        for (TransactionPair tp : selections) {
+            metrics.sold(tp.getProduct(), tp.getQuantity(), tp.getTotalPrice().cents());
+            restockScheduler.sold(tp.getProduct(), tp.getQuantity());
         }
 
-        return display.toString();
+    }
+
+    /**
+     * Applies a change, recording it in the journal if there is one and waiting until it is durable. Concurrent
+     * changes are journaled in the order they were applied, and share one fsync.
+     *
+     * @param apply Applies the change, returning true.
+     * @param record Appends the change to the journal, returning the last sequence number.
+     */
+    private void journaled(BooleanSupplier apply, LongSupplier record) {
+
+        Journal j = journal;
+        if (j == null) {
+            apply.getAsBoolean();
+        } else {
+            j.change(apply, record);
+        }
 
     }
 
     /**
-     * Dispenses the selected products in the specified quantities to the purchaser.
+     * Appends a purchase to the journal.
      *
-     * @param selections The products and amounts selected.
+     * @param selections The products and amounts purchased.
+     * @return the sequence number of the last record.
      */
-    public void dispenseItems(Collection<TransactionPair> selections) {
+    private long journalPurchase(Collection<TransactionPair> selections) {
 
-        // more logic could be implemented here - negative or zero checks
-        // to prevent product from taking a negative quantity
+        long sequence = 0;
+        for (TransactionPair tp : selections) {
+            sequence = journal.purchase(tp.getProduct().getId(), tp.getQuantity());
+        }
+        return sequence;
+
+    }
+
+    /**
+     * Returns reserved units to stock after a cart is abandoned.
+     *
+     * @param selections The products and amounts that were reserved.
+     */
+    public void release(Collection<TransactionPair> selections) {
 
         for (TransactionPair tp : selections) {
-            tp.getProduct().reduceQuantity(tp.getQuantity());
+            tp.getProduct().release(tp.getQuantity());
         }
 
     }
@@ -122,7 +484,7 @@ public class VendingMachine {
         StringBuilder display = new StringBuilder();
 
         for (TransactionPair tp : selections) {
-            display.append(String.format("[ID %d] %s - quantity %d @ $%.2f each = total $%.2f\n",
+            display.append(String.format("[ID %d] %s - quantity %d @ %s each = total %s\n",
                     tp.getProduct().getId(),
                     tp.getProduct().getName(),
                     tp.getQuantity(),
@@ -139,15 +501,16 @@ public class VendingMachine {
      * @param selections The Products and quantities selected.
      * @return The total price.
      */
-    public double grandTotal(Collection<TransactionPair> selections) {
+    public Money grandTotal(Collection<TransactionPair> selections) {
 
-        double total = 0;
+        // sum in cents to avoid allocating a Money per line
+        long total = 0;
 
         for (TransactionPair tp : selections) {
-            total += tp.getTotalPrice();
+            total += tp.getProduct().getPrice().cents() * tp.getQuantity();
         }
 
-        return total;
+        return Money.ofCents(total);
 
     }
 
@@ -159,22 +522,92 @@ public class VendingMachine {
      */
     public boolean fill(String product) {
         // If Admin inputted an integer, assume they are selecting by ID.
-        try {
-            int id = Integer.parseInt(product);
-            for (Product p : stock) {
-                if (p.getId() == id) {
-                    p.restock();
-                    return true;
-                }
-            }
-        } catch (NumberFormatException e) {
-            for (Product p : stock) {
-                if (p.getName().equalsIgnoreCase(product)) {
-                    p.restock();
-                    return true;
-                }
+        Product p = index.lookup(product);
+        if (p == null) {
+            return false;
+        }
+        journaled(() -> {
+            beforeChange(p);
+            p.restock();
+            return true;
+        }, () -> journal.fill(p.getId()));
+        restockScheduler.restocked(p);
+        return true;
+    }
+
+    /**
+     * Admin function: restock every product in the vending machine.
+     *
+     * @return The products restocked.
+     */
+    public List<Product> fillAll() {
+        return fill(new ArrayList<>(stock));
+    }
+
+    /**
+     * Admin function: restock every product in a category.
+     *
+     * @param category The category to restock.
+     * @return The products restocked.
+     */
+    public List<Product> fillCategory(Category category) {
+
+        return fill(new ArrayList<>(byCategory.get(category)));
+
+    }
+
+    /**
+     * Admin function: restock several products as one batch, with one journal record and one fsync.
+     *
+     * @param products The products to restock.
+     * @return The products restocked.
+     */
+    public List<Product> fill(List<Product> products) {
+
+        if (products.isEmpty()) {
+            return products;
+        }
+
+        journaled(() -> {
+            for (Product p : products) {
+                beforeChange(p);
+                p.restock();
             }
+            return true;
+        }, () -> journal.fill(products));
+        for (Product p : products) {
+            restockScheduler.restocked(p);
+        }
+        return products;
+
+    }
+
+    /**
+     * Admin function: work out how many units each product needs, in one pass over the stock.
+     *
+     * @return The restock plan.
+     */
+    public RestockPlan restockPlan() {
+        return RestockPlan.of(stock);
+    }
+
+    /**
+     * Admin function: change the price of a product.
+     *
+     * @param product The name or ID of the product.
+     * @param price The new price.
+     * @return Whether or not the product exists.
+     */
+    public boolean setPrice(String product, Money price) {
+        Product p = index.lookup(product);
+        if (p == null) {
+            return false;
         }
-        return false;
+        journaled(() -> {
+            beforeChange(p);
+            p.setPrice(price);
+            return true;
+        }, () -> journal.price(p.getId(), price));
+        return true;
     }
 }
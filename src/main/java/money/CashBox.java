@@ -0,0 +1,276 @@
+package money;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The coins and notes held by the vending machine, used to give change.
+ * <p>
+ * Change is always given in the fewest coins and notes the box can make it from. Since the largest amount ever
+ * inserted is one note, change is always less than the largest denomination, so the box keeps a table of the fewest
+ * coins needed for every such amount given its current counts. "Can the machine make this change?" is one read of
+ * that table. The table is rebuilt, with one pass per denomination, the first time it is needed after a count it
+ * depends on changes.
+ */
+public class CashBox {
+
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+
+    /**
+     * Values of the denominations in units of ten cents, the smallest denomination.
+     */
+    private static final int[] UNITS = new int[DENOMINATIONS.length];
+
+    /**
+     * The largest change ever given, in units of ten cents: just under the largest denomination.
+     */
+    private static final int MAX_UNITS;
+
+    private static final int IMPOSSIBLE = Integer.MAX_VALUE;
+
+    static {
+        for (int i = 0; i < DENOMINATIONS.length; i++) {
+            UNITS[i] = DENOMINATIONS[i].cents() / 10;
+        }
+        MAX_UNITS = UNITS[UNITS.length - 1] - 1;
+    }
+
+    private int[] counts;
+
+    /**
+     * The fewest coins needed for each amount using only the first i denominations, in row i; or null if the counts
+     * have changed since it was built.
+     */
+    private volatile int[][] table;
+
+    /**
+     * Constructor. The box starts empty.
+     */
+    public CashBox() {
+        this.counts = new int[DENOMINATIONS.length];
+    }
+
+    /**
+     * @return a box holding the float a machine starts the day with: 20 of each coin, 10 five dollar notes and 5 ten
+     * dollar notes.
+     */
+    public static CashBox standardFloat() {
+
+        CashBox box = new CashBox();
+        for (Denomination d : DENOMINATIONS) {
+            if (d.cents() <= Denomination.TWO_DOLLARS.cents()) {
+                box.deposit(d, 20);
+            }
+        }
+        box.deposit(Denomination.FIVE_DOLLARS, 10);
+        box.deposit(Denomination.TEN_DOLLARS, 5);
+        return box;
+
+    }
+
+    /**
+     * Adds coins or notes to the box.
+     *
+     * @param denomination The coin or note.
+     * @param count How many.
+     */
+    public synchronized void deposit(Denomination denomination, int count) {
+
+        if (count < 0) {
+            throw new IllegalArgumentException("Cannot deposit a negative count");
+        }
+        add(denomination.ordinal(), count);
+
+    }
+
+    /**
+     * @param denomination A coin or note.
+     * @return how many the box holds.
+     */
+    public synchronized int getCount(Denomination denomination) {
+        return counts[denomination.ordinal()];
+    }
+
+    /**
+     * @return the total value of the box, in cents.
+     */
+    public synchronized long getTotalCents() {
+
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += (long) counts[i] * DENOMINATIONS[i].cents();
+        }
+        return total;
+
+    }
+
+    /**
+     * Checks whether the box can give the given change. Constant time once the table is built.
+     *
+     * @param cents The change, in cents.
+     * @return whether the box holds coins and notes that add up to exactly that amount.
+     */
+    public boolean canMakeChange(long cents) {
+
+        if (cents == 0) {
+            return true;
+        }
+        if (cents < 0 || cents % 10 != 0 || cents / 10 > MAX_UNITS) {
+            return false;
+        }
+
+        int[][] t = table;
+        if (t == null) {
+            t = build();
+        }
+        return t[DENOMINATIONS.length][(int) (cents / 10)] != IMPOSSIBLE;
+
+    }
+
+    /**
+     * Completes a sale: gives change from the box in the fewest coins and notes, then adds the customer's payment.
+     * Nothing changes if the change cannot be made.
+     *
+     * @param inserted The coins and notes the customer inserted.
+     * @param change The change owed, in cents.
+     * @return how many of each denomination to give as change, indexed by Denomination ordinal, or null if the box
+     * cannot make the change.
+     */
+    public synchronized int[] pay(Collection<Denomination> inserted, long change) {
+
+        if (!canMakeChange(change)) {
+            return null;
+        }
+        int[] given = new int[DENOMINATIONS.length];
+
+        // walk back through the table, from the largest denomination down
+        int[][] t = table;
+        int amount = (int) (change / 10);
+        for (int i = DENOMINATIONS.length; i > 0 && amount > 0; i--) {
+            int d = UNITS[i - 1];
+            int coins = t[i][amount];
+            for (int k = 0; k <= counts[i - 1] && k * d <= amount; k++) {
+                int rest = t[i - 1][amount - k * d];
+                if (rest != IMPOSSIBLE && rest + k == coins) {
+                    given[i - 1] = k;
+                    amount -= k * d;
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < given.length; i++) {
+            add(i, -given[i]);
+        }
+        for (Denomination d : inserted) {
+            add(d.ordinal(), 1);
+        }
+        return given;
+
+    }
+
+    /**
+     * Undoes a sale completed by pay(): takes the customer's payment back out and returns the change.
+     *
+     * @param inserted The coins and notes the customer inserted, as passed to pay().
+     * @param given The change pay() gave.
+     */
+    public synchronized void refund(Collection<Denomination> inserted, int[] given) {
+
+        for (Denomination d : inserted) {
+            add(d.ordinal(), -1);
+        }
+        for (int i = 0; i < given.length; i++) {
+            add(i, given[i]);
+        }
+
+    }
+
+    /**
+     * Changes a count, dropping the table only if it depends on the change. Counts beyond what the largest change
+     * could use do not affect it, so a well-stocked box never rebuilds.
+     */
+    private void add(int i, int count) {
+
+        int cap = MAX_UNITS / UNITS[i];
+        int before = counts[i];
+        counts[i] += count;
+        if (Math.min(before, cap) != Math.min(counts[i], cap)) {
+            table = null;
+        }
+
+    }
+
+    /**
+     * Builds the table of the fewest coins for every amount of change, a bounded coin change over the current counts.
+     * <p>
+     * Row i + 1 follows from row i: for each amount a, the fewest coins using up to c coins of value d is the minimum
+     * over k from 0 to c of row i at a - k*d, plus k. Amounts with the same remainder mod d form a chain, and each
+     * minimum is taken over a sliding window of the chain, so a monotonic queue gives every entry in constant time.
+     *
+     * @return the table.
+     */
+    private synchronized int[][] build() {
+
+        if (table != null) {
+            return table;
+        }
+
+        int[][] t = new int[DENOMINATIONS.length + 1][MAX_UNITS + 1];
+        Arrays.fill(t[0], IMPOSSIBLE);
+        t[0][0] = 0;
+
+        // the queue holds chain positions j, with row[a_j] - j increasing from head to tail
+        int[] positions = new int[MAX_UNITS + 1];
+        int[] keys = new int[MAX_UNITS + 1];
+
+        for (int i = 0; i < DENOMINATIONS.length; i++) {
+
+            int d = UNITS[i];
+            int limit = Math.min(counts[i], MAX_UNITS / d);
+            int[] previous = t[i];
+            int[] next = t[i + 1];
+
+            for (int r = 0; r < d && r <= MAX_UNITS; r++) {
+                int head = 0;
+                int tail = 0;
+                for (int j = 0, a = r; a <= MAX_UNITS; j++, a += d) {
+                    if (previous[a] != IMPOSSIBLE) {
+                        int key = previous[a] - j;
+                        while (tail > head && keys[tail - 1] >= key) {
+                            tail--;
+                        }
+                        positions[tail] = j;
+                        keys[tail] = key;
+                        tail++;
+                    }
+                    while (tail > head && positions[head] < j - limit) {
+                        head++;
+                    }
+                    next[a] = tail > head ? keys[head] + j : IMPOSSIBLE;
+                }
+            }
+
+        }
+
+        table = t;
+        return t;
+
+    }
+
+    /**
+     * @return one line per denomination with its count, then the total.
+     */
+    @Override
+    public synchronized String toString() {
+
+        StringBuilder display = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            display.append(Money.format(DENOMINATIONS[i].cents())).append(" x ").append(counts[i]).append('\n');
+        }
+        display.append("Total: ").append(Money.format(getTotalCents())).append('\n');
+        return display.toString();
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package money;
+
+/**
+ * The coins and notes the vending machine accepts.
+ */
+public enum Denomination {
+    TEN_CENTS(10),
+    TWENTY_CENTS(20),
+    FIFTY_CENTS(50),
+    ONE_DOLLAR(100),
+    TWO_DOLLARS(200),
+    FIVE_DOLLARS(500),
+    TEN_DOLLARS(1000),
+    TWENTY_DOLLARS(2000);
+
+    /**
+     * Denominations indexed by value in units of ten cents, so that recognising an inserted amount is one array read.
+     */
+    private static final Denomination[] BY_TEN_CENTS = new Denomination[TWENTY_DOLLARS.cents / 10 + 1];
+
+    static {
+        for (Denomination d : values()) {
+            BY_TEN_CENTS[d.cents / 10] = d;
+        }
+    }
+
+    private final int cents;
+
+    Denomination(int cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * @return the value in cents.
+     */
+    public int cents() {
+        return cents;
+    }
+
+    /**
+     * Finds the denomination with the given value.
+     *
+     * @param cents The inserted amount, in cents.
+     * @return the denomination, or null if the machine does not accept that amount.
+     */
+    public static Denomination forCents(long cents) {
+
+        if (cents <= 0 || cents % 10 != 0 || cents / 10 >= BY_TEN_CENTS.length) {
+            return null;
+        }
+        return BY_TEN_CENTS[(int) (cents / 10)];
+
+    }
+
+}
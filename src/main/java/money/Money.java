@@ -0,0 +1,190 @@
+package money;
+
+/**
+ * An exact amount of money, held as a whole number of cents.
+ * <p>
+ * All pricing, totals and payments use Money so that amounts such as $0.10 add up exactly and compare correctly.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Value returned by parseCents() for text that is not a whole number of cents.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * @param cents The amount in cents.
+     * @return the amount as Money.
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts a dollar amount, rounding to the nearest cent. Intended for literal prices such as 3.50.
+     *
+     * @param dollars The amount in dollars.
+     * @return the amount as Money.
+     */
+    public static Money of(double dollars) {
+        return ofCents(Math.round(dollars * 100));
+    }
+
+    /**
+     * Parses a dollar amount such as "5", "0.1" or "2.50" without going through floating point.
+     *
+     * @param text The text to parse.
+     * @return the amount as Money, or null if the text is not a whole number of cents.
+     */
+    public static Money parse(String text) {
+        long cents = parseCents(text);
+        return cents == INVALID ? null : ofCents(cents);
+    }
+
+    /**
+     * Parses a dollar amount into cents without allocating.
+     *
+     * @param text The text to parse.
+     * @return the amount in cents, or INVALID if the text is not a whole number of cents.
+     */
+    public static long parseCents(CharSequence text) {
+        return parseCents(text, 0, text.length());
+    }
+
+    /**
+     * Parses a dollar amount from part of a text into cents without allocating.
+     *
+     * @param text The text holding the amount.
+     * @param start The offset of the amount's first character.
+     * @param end The offset just past the amount's last character.
+     * @return the amount in cents, or INVALID if that part of the text is not a whole number of cents.
+     */
+    public static long parseCents(CharSequence text, int start, int end) {
+
+        int i = start;
+        boolean negative = false;
+
+        if (end > i && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long dollars = 0;
+        int digits = 0;
+        for (; i < end && text.charAt(i) != '.'; i++, digits++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || dollars > Long.MAX_VALUE / 1000) {
+                return INVALID;
+            }
+            dollars = dollars * 10 + digit;
+        }
+
+        long cents = 0;
+        if (i < end) {
+            // skip the decimal point; anything past the second decimal place must be zero
+            i++;
+            for (int place = 0; i < end; i++, place++, digits++) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || (place >= 2 && digit != 0)) {
+                    return INVALID;
+                }
+                if (place == 0) {
+                    cents += digit * 10;
+                } else if (place == 1) {
+                    cents += digit;
+                }
+            }
+        }
+
+        // too many dollars to hold in cents, even before the cents are added
+        if (digits == 0 || dollars > (Long.MAX_VALUE - 99) / 100) {
+            return INVALID;
+        }
+
+        long total = dollars * 100 + cents;
+        return negative ? -total : total;
+
+    }
+
+    /**
+     * @return the amount in cents.
+     */
+    public long cents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(cents + other.cents);
+    }
+
+    public Money minus(Money other) {
+        return ofCents(cents - other.cents);
+    }
+
+    public Money times(int quantity) {
+        return ofCents(cents * quantity);
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * @return the amount formatted for display, e.g. "$3.50".
+     */
+    @Override
+    public String toString() {
+        return format(cents);
+    }
+
+    /**
+     * Formats an amount in cents for display, e.g. "$3.50".
+     *
+     * @param cents The amount in cents.
+     * @return the formatted amount.
+     */
+    public static String format(long cents) {
+
+        long magnitude = Math.abs(cents);
+        long fraction = magnitude % 100;
+
+        StringBuilder text = new StringBuilder(12).append('$');
+        if (cents < 0) {
+            text.append('-');
+        }
+        text.append(magnitude / 100).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+
+    }
+
+}
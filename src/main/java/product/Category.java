@@ -4,5 +4,24 @@ public enum Category {
     CHIPS,
     CHOCOLATE,
     DRINK,
-    LOLLIES
+    LOLLIES;
+
+    private static final Category[] VALUES = values();
+
+    /**
+     * Finds a category by name, ignoring case.
+     *
+     * @param name The category name.
+     * @return the category, or null if there is none with that name.
+     */
+    public static Category forName(String name) {
+
+        for (Category c : VALUES) {
+            if (c.name().equalsIgnoreCase(name)) {
+                return c;
+            }
+        }
+        return null;
+
+    }
 }
@@ -1,18 +1,68 @@
 package product;
 
+import money.Money;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Product {
     private final int id;
     private String name;
-    private double price;
-    private int quantity;
+    private volatile Money price;
     private Category category;
+    private final int capacity;
+    private final int parLevel;
+
+    /**
+     * Units available for sale (low 32 bits) and units reserved in customers' carts (high 32 bits). Packing both
+     * counts into one word lets every stock transition happen in a single compare-and-set, so concurrent sessions can
+     * never sell the same unit twice.
+     */
+    private final AtomicLong stock;
+
+    private volatile StockObserver observer;
+
+    /**
+     * The capacity of a product created without one.
+     */
+    public static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * The par level of a product created without one: half its coil, so a product needs restocking once it is half
+     * empty rather than after its first sale.
+     */
+    public static final int DEFAULT_PAR_LEVEL = DEFAULT_CAPACITY / 2;
 
     public Product(int id, String name, double price, int quantity, Category category) {
+        this(id, name, Money.of(price), quantity, category);
+    }
+
+    public Product(int id, String name, Money price, int quantity, Category category) {
+        this(id, name, price, quantity, DEFAULT_CAPACITY, DEFAULT_PAR_LEVEL, category);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param id The product ID.
+     * @param name The product name.
+     * @param price The price of one unit.
+     * @param quantity The units in the machine.
+     * @param capacity The most units the product's coil holds; restocking fills to this.
+     * @param parLevel The product needs restocking when it has fewer units than this.
+     * @param category The product category.
+     */
+    public Product(int id, String name, Money price, int quantity, int capacity, int parLevel, Category category) {
+        if (capacity <= 0 || parLevel < 0 || parLevel > capacity) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d and par level %d for %s",
+                    capacity, parLevel, name));
+        }
         this.id = id;
         this.name = name;
         this.price = price;
-        this.quantity = quantity;
+        this.stock = new AtomicLong(pack(quantity, 0));
         this.category = category;
+        this.capacity = capacity;
+        this.parLevel = parLevel;
     }
 
     public int getId() { return id; }
@@ -21,28 +71,200 @@ public class Product {
         return name;
     }
 
-    public double getPrice() {
+    public Money getPrice() {
         return price;
     }
 
+    /**
+     * @return the number of units available for sale, excluding units reserved in carts.
+     */
     public int getQuantity() {
-        return quantity;
+        return available(stock.get());
+    }
+
+    /**
+     * @return the number of units reserved in carts but not yet paid for.
+     */
+    public int getReserved() {
+        return reserved(stock.get());
+    }
+
+    /**
+     * @return the number of units in the machine, whether available or reserved, read in one step.
+     */
+    public int getStocked() {
+        long current = stock.get();
+        return available(current) + reserved(current);
     }
 
     public Category getCategory() {
         return category;
     }
 
-    public void setPrice(double price) {
+    /**
+     * @return the most units the product's coil holds.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the level below which the product needs restocking.
+     */
+    public int getParLevel() {
+        return parLevel;
+    }
+
+    /**
+     * @return the units needed to fill the product to capacity if it is below its par level, otherwise 0.
+     */
+    public int getRestockNeed() {
+        int stocked = getStocked();
+        return stocked < parLevel ? capacity - stocked : 0;
+    }
+
+    public void setPrice(Money price) {
         this.price = price;
+        int stocked = getStocked();
+        changed(StockChange.PRICE, stocked, stocked);
     }
 
-    public void increaseQuantity(int quantity) {this.quantity += quantity;}
+    /**
+     * Registers the observer to notify of stock level and price changes, replacing any previous observer.
+     *
+     * @param observer The observer, or null for none.
+     */
+    public void setObserver(StockObserver observer) {
+        this.observer = observer;
+    }
+
+    private void changed(StockChange change, int before, int after) {
+        StockObserver o = observer;
+        if (o != null) {
+            o.stockChanged(this, change, before, after);
+        }
+    }
+
+    public void increaseQuantity(int quantity) {
+        adjustAvailable(quantity);
+    }
 
     public void reduceQuantity(int quantity) {
-        this.quantity -= quantity;
+        adjustAvailable(-quantity);
     }
 
-    public void restock() {this.quantity = 10;}
+    private void adjustAvailable(int delta) {
+
+        while (true) {
+            long current = stock.get();
+            if (stock.compareAndSet(current, pack(available(current) + delta, reserved(current)))) {
+                changed(StockChange.QUANTITY, stocked(current), stocked(current) + delta);
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Moves units from available stock into a reservation, if enough are available.
+     *
+     * @param quantity The number of units to reserve.
+     * @return true if the units were reserved, false if there was not enough stock.
+     */
+    public boolean tryReserve(int quantity) {
+
+        if (quantity <= 0) {
+            return false;
+        }
+
+        while (true) {
+            long current = stock.get();
+            int available = available(current);
+            if (available < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(current, pack(available - quantity, reserved(current) + quantity))) {
+                changed(StockChange.QUANTITY, stocked(current), stocked(current));
+                return true;
+            }
+        }
+
+    }
+
+    /**
+     * Completes a reservation: the reserved units have been paid for and leave the machine.
+     *
+     * @param quantity The number of reserved units sold.
+     */
+    public void commit(int quantity) {
+
+        while (true) {
+            long current = stock.get();
+            int reserved = reserved(current);
+            if (reserved < quantity) {
+                throw new IllegalStateException(String.format("Cannot commit %d of %d reserved units of %s",
+                        quantity, reserved, name));
+            }
+            if (stock.compareAndSet(current, pack(available(current), reserved - quantity))) {
+                changed(StockChange.SALE, stocked(current), stocked(current) - quantity);
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Cancels a reservation, returning the units to available stock.
+     *
+     * @param quantity The number of reserved units to return.
+     */
+    public void release(int quantity) {
+
+        while (true) {
+            long current = stock.get();
+            int reserved = reserved(current);
+            if (reserved < quantity) {
+                throw new IllegalStateException(String.format("Cannot release %d of %d reserved units of %s",
+                        quantity, reserved, name));
+            }
+            if (stock.compareAndSet(current, pack(available(current) + quantity, reserved - quantity))) {
+                changed(StockChange.QUANTITY, stocked(current), stocked(current));
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Fills the product's coil so that available and reserved units together make its capacity.
+     */
+    public void restock() {
+
+        while (true) {
+            long current = stock.get();
+            int reserved = reserved(current);
+            if (stock.compareAndSet(current, pack(Math.max(0, capacity - reserved), reserved))) {
+                changed(StockChange.RESTOCK, stocked(current), Math.max(capacity, reserved));
+                return;
+            }
+        }
+
+    }
+
+    private static long pack(int available, int reserved) {
+        return ((long) reserved << 32) | (available & 0xFFFFFFFFL);
+    }
+
+    private static int available(long stock) {
+        return (int) stock;
+    }
+
+    private static int stocked(long stock) {
+        return available(stock) + reserved(stock);
+    }
+
+    private static int reserved(long stock) {
+        return (int) (stock >>> 32);
+    }
 
 }
@@ -0,0 +1,274 @@
+package product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lookup structure for the Products held by a vending machine.
+ * <p>
+ * Products are indexed twice: by ID in a dense table (the slot number is the ID) and by case-folded name in a hash
+ * index. Both lookups are constant time regardless of catalog size, and neither uses exceptions for control flow.
+ * The names also back a ProductSearch, for input that is only part of a name or has a typo.
+ */
+public class ProductIndex {
+
+    /**
+     * IDs above this value are kept in an overflow map rather than the dense table, so a single large SKU does not
+     * allocate a huge array.
+     */
+    private static final int MAX_DENSE_ID = 1 << 20;
+
+    private static final long NOT_AN_ID = Long.MIN_VALUE;
+
+    private Product[] byId;
+    private Map<Integer, Product> sparseById;
+    /**
+     * Each case-folded name to the Product it resolves to: of the Products with that name, the one with the lowest ID.
+     */
+    private Map<String, Product> byName;
+
+    /**
+     * Each case-folded name held by more than one Product, to those Products in ID order. Most names are unique, so
+     * they cost no list.
+     */
+    private Map<String, List<Product>> sharedNames;
+    private ProductSearch search;
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public ProductIndex() {
+        byId = new Product[16];
+        sparseById = new HashMap<>();
+        byName = new HashMap<>();
+        sharedNames = new HashMap<>();
+        search = new ProductSearch(this);
+    }
+
+    /**
+     * Adds a Product to the index, replacing any Product with the same ID.
+     *
+     * @param product The Product to index.
+     */
+    public void add(Product product) {
+
+        int id = product.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Product ID must not be negative: " + id);
+        }
+
+        remove(id);
+
+        if (id <= MAX_DENSE_ID) {
+            if (id >= byId.length) {
+                int capacity = byId.length;
+                while (capacity <= id) {
+                    capacity <<= 1;
+                }
+                Product[] grown = new Product[capacity];
+                System.arraycopy(byId, 0, grown, 0, byId.length);
+                byId = grown;
+            }
+            byId[id] = product;
+        } else {
+            sparseById.put(id, product);
+        }
+
+        // a name shared by several Products resolves to the lowest ID, matching the ordering of a linear scan by ID
+        String name = fold(product.getName());
+        Product first = byName.putIfAbsent(name, product);
+        if (first != null) {
+            List<Product> named = sharedNames.computeIfAbsent(name, n -> new ArrayList<>(List.of(first)));
+            int at = named.size();
+            while (at > 0 && named.get(at - 1).getId() > id) {
+                at--;
+            }
+            named.add(at, product);
+            byName.put(name, named.get(0));
+        }
+        search.add(product, name);
+        size++;
+
+    }
+
+    /**
+     * Removes the Product with the given ID from the index.
+     *
+     * @param id The ID of the Product to remove.
+     * @return The removed Product, or null if there was none.
+     */
+    public Product remove(int id) {
+
+        Product removed;
+        if (id < 0) {
+            return null;
+        } else if (id <= MAX_DENSE_ID) {
+            if (id >= byId.length || byId[id] == null) {
+                return null;
+            }
+            removed = byId[id];
+            byId[id] = null;
+        } else {
+            removed = sparseById.remove(id);
+            if (removed == null) {
+                return null;
+            }
+        }
+
+        String name = fold(removed.getName());
+        List<Product> named = sharedNames.get(name);
+        if (named == null) {
+            byName.remove(name, removed);
+        } else {
+            named.remove(removed);
+            byName.put(name, named.get(0));
+            if (named.size() == 1) {
+                sharedNames.remove(name);
+            }
+        }
+        search.remove(removed, name);
+        size--;
+        return removed;
+
+    }
+
+    /**
+     * Finds a Product by ID.
+     *
+     * @param id The ID of the Product.
+     * @return The Product, or null if no Product has that ID.
+     */
+    public Product byId(int id) {
+
+        if (id < 0) {
+            return null;
+        } else if (id <= MAX_DENSE_ID) {
+            return id < byId.length ? byId[id] : null;
+        }
+        return sparseById.get(id);
+
+    }
+
+    /**
+     * Finds a Product by name, ignoring case.
+     *
+     * @param name The name of the Product.
+     * @return The Product with the lowest ID of those with that name, or null if no Product has that name.
+     */
+    public Product byName(String name) {
+        return byName.get(fold(name));
+    }
+
+    /**
+     * Resolves user input the same way a customer would type it: input that is an integer selects by ID, anything
+     * else selects by name.
+     *
+     * @param input The name or ID of the requested Product.
+     * @return The Product, or null if there is no match.
+     */
+    public Product lookup(String input) {
+
+        long id = parseId(input);
+        if (id == NOT_AN_ID) {
+            return byName(input);
+        }
+        return byId((int) id);
+
+    }
+
+    /**
+     * Resolves user input that may be only part of a name, or misspelt. Input that lookup() resolves gives that
+     * Product; otherwise the input, trimmed, is matched against the start of each word of every name, and failing
+     * that against whole names within a typo or two.
+     *
+     * @param input What the customer typed.
+     * @return no Products if nothing matches, one if the input picks out a single Product, otherwise up to
+     * ProductSearch.MAX_SUGGESTIONS candidates in ID order.
+     */
+    public List<Product> search(String input) {
+
+        Product exact = lookup(input);
+        if (exact != null) {
+            return List.of(exact);
+        }
+        return search.search(fold(input.trim()));
+
+    }
+
+    /**
+     * @return the number of indexed Products.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parses input with the same acceptance rules as {@link Integer#parseInt(String)}, without throwing.
+     *
+     * @param input The text to parse.
+     * @return The parsed value (negative values map to -1, and a signed zero to 0), or NOT_AN_ID if the text is not an
+     * int.
+     */
+    private static long parseId(String input) {
+
+        int length = input.length();
+        if (length == 0) {
+            return NOT_AN_ID;
+        }
+
+        int start = 0;
+        boolean negative = false;
+        char first = input.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return NOT_AN_ID;
+            }
+            negative = first == '-';
+            start = 1;
+        }
+
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0) {
+                return NOT_AN_ID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_AN_ID;
+            }
+        }
+
+        if (negative && value != 0) {
+            return -1;
+        }
+        return value > Integer.MAX_VALUE ? NOT_AN_ID : value;
+
+    }
+
+    /**
+     * Passes every indexed Product to the action, in no particular order.
+     *
+     * @param action The action.
+     */
+    void forEach(Consumer<Product> action) {
+
+        for (Product p : byId) {
+            if (p != null) {
+                action.accept(p);
+            }
+        }
+        sparseById.values().forEach(action);
+
+    }
+
+    static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+}
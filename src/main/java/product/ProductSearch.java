@@ -0,0 +1,369 @@
+package product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds Products from what a customer typed when it is not a product's exact name: the start of any word of the name,
+ * or the name with a typo or two.
+ * <p>
+ * Prefixes are looked up in a sorted map holding each name from the start of every word, so "worm" finds "Sour
+ * Worms". The names starting with a prefix sit together in the map, so a lookup is a binary search then a walk that
+ * stops at one more product than it will suggest: O(log n) however large the catalog. It does the job of a prefix trie
+ * with one entry per word rather than one node per letter.
+ * <p>
+ * Typos are looked up in an index of each name's runs of three letters, with the name padded by two boundary marks at
+ * each end. An edit changes at most three runs, so a name within k edits of the input has all but 3k of the input's
+ * runs, and so has at least one of any 3k + 1 of them. A lookup reads only the names under the input's 3k + 1 rarest
+ * runs, and works out the edit distance only for those that share enough runs. The rest of the catalog is never read.
+ * <p>
+ * Nothing is indexed until the first search, so loading a catalog costs nothing here however large it is. The first
+ * search builds both indexes from the catalog's names; after that, add() and remove() keep them up to date.
+ * <p>
+ * Names are compared in lower case. Searches may run concurrently with each other, but not with add() or remove().
+ */
+public class ProductSearch {
+
+    /**
+     * The most products suggested for input that matches more than one.
+     */
+    public static final int MAX_SUGGESTIONS = 5;
+
+    /**
+     * Stands for the start or end of a name in a run of letters.
+     */
+    private static final char BOUNDARY = '\0';
+
+    private static final Comparator<Product> BY_ID = Comparator.comparingInt(Product::getId);
+
+    /**
+     * A distinct name and the products that have it. A name whose products have all been removed keeps its slot, and
+     * gets products again if the name is added again.
+     */
+    private static class Name {
+
+        private final String text;
+        private final List<Product> products = new ArrayList<>(1);
+
+        private Name(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * A growable list of name slots.
+     */
+    private static class Slots {
+
+        private static final Slots EMPTY = new Slots();
+
+        private int[] slots = new int[2];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    /**
+     * The catalog the indexes are built from.
+     */
+    private final ProductIndex catalog;
+
+    /**
+     * Whether the indexes below have been built from the catalog.
+     */
+    private volatile boolean built;
+
+    /**
+     * Each name from the start of each of its words, to the products with that name.
+     */
+    private TreeMap<String, List<Product>> byWord;
+
+    private List<Name> names;
+    private Map<String, Integer> slotByName;
+
+    /**
+     * Each run of three letters, packed into a long, to the slots of the names that contain it.
+     */
+    private Map<Long, Slots> byRun;
+
+    /**
+     * Constructor.
+     *
+     * @param catalog The catalog, which passes every later add and remove on. It is read once, by the first search.
+     */
+    ProductSearch(ProductIndex catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Builds the indexes from the catalog, unless another search already has.
+     */
+    private synchronized void build() {
+
+        if (built) {
+            return;
+        }
+
+        byWord = new TreeMap<>();
+        names = new ArrayList<>();
+        slotByName = new HashMap<>();
+        byRun = new HashMap<>();
+        catalog.forEach(product -> index(product, ProductIndex.fold(product.getName())));
+        built = true;
+
+    }
+
+    /**
+     * Adds a Product under its name, once the indexes are built.
+     *
+     * @param product The Product.
+     * @param name Its lower case name.
+     */
+    void add(Product product, String name) {
+        if (built) {
+            index(product, name);
+        }
+    }
+
+    private void index(Product product, String name) {
+
+        for (int start : wordStarts(name)) {
+            byWord.computeIfAbsent(name.substring(start), k -> new ArrayList<>(1)).add(product);
+        }
+
+        Integer slot = slotByName.get(name);
+        if (slot == null) {
+            int added = names.size();
+            names.add(new Name(name));
+            slotByName.put(name, added);
+            for (long run : runs(name)) {
+                byRun.computeIfAbsent(run, r -> new Slots()).add(added);
+            }
+            slot = added;
+        }
+        names.get(slot).products.add(product);
+
+    }
+
+    /**
+     * Removes a Product added under the given name.
+     *
+     * @param product The Product.
+     * @param name Its lower case name, as it was added.
+     */
+    void remove(Product product, String name) {
+
+        if (!built) {
+            return;
+        }
+
+        for (int start : wordStarts(name)) {
+            String key = name.substring(start);
+            List<Product> products = byWord.get(key);
+            if (products != null && products.remove(product) && products.isEmpty()) {
+                byWord.remove(key);
+            }
+        }
+
+        Integer slot = slotByName.get(name);
+        if (slot != null) {
+            names.get(slot).products.remove(product);
+        }
+
+    }
+
+    /**
+     * Finds the Products the input could mean: those with a word starting with the input, or failing that, those
+     * whose names are closest to the input within a few typos.
+     *
+     * @param input The lower case input.
+     * @return no Products if nothing is close, one if the input picks out a single Product, otherwise up to
+     * MAX_SUGGESTIONS candidates in ID order.
+     */
+    List<Product> search(String input) {
+
+        if (input.isEmpty()) {
+            return List.of();
+        }
+        if (!built) {
+            build();
+        }
+
+        Set<Product> found = new LinkedHashSet<>();
+        for (Map.Entry<String, List<Product>> e : byWord.tailMap(input).entrySet()) {
+            // stop at the first name past the prefix, or once there are too many to suggest
+            if (!e.getKey().startsWith(input) || found.size() > MAX_SUGGESTIONS) {
+                break;
+            }
+            found.addAll(e.getValue());
+        }
+        if (found.isEmpty()) {
+            found.addAll(closest(input));
+        }
+
+        List<Product> matches = new ArrayList<>(found);
+        matches.sort(BY_ID);
+        return matches.size() > MAX_SUGGESTIONS ? matches.subList(0, MAX_SUGGESTIONS) : matches;
+
+    }
+
+    /**
+     * @return the Products whose names are nearest the input, if any is within the typos allowed for its length.
+     */
+    private List<Product> closest(String input) {
+
+        int limit = input.length() < 3 ? 0 : input.length() < 6 ? 1 : 2;
+        long[] runs = runs(input);
+        List<Product> nearest = new ArrayList<>();
+        // too short, or too repetitive, for every close name to be sure to share a run with it
+        if (limit == 0 || runs.length <= 3 * limit) {
+            return nearest;
+        }
+
+        // a close name has at least one of the input's 3k + 1 rarest runs
+        Slots[] lists = new Slots[runs.length];
+        for (int i = 0; i < runs.length; i++) {
+            lists[i] = byRun.getOrDefault(runs[i], Slots.EMPTY);
+        }
+        Arrays.sort(lists, Comparator.comparingInt(l -> l.size));
+        Slots candidates = new Slots();
+        for (int i = 0; i <= 3 * limit; i++) {
+            for (int j = 0; j < lists[i].size; j++) {
+                candidates.add(lists[i].slots[j]);
+            }
+        }
+        int[] slots = Arrays.copyOf(candidates.slots, candidates.size);
+        Arrays.sort(slots);
+
+        int best = limit + 1;
+        for (int i = 0; i < slots.length; i++) {
+            if (i > 0 && slots[i] == slots[i - 1]) {
+                continue;
+            }
+            Name name = names.get(slots[i]);
+            if (name.products.isEmpty() || Math.abs(name.text.length() - input.length()) > limit) {
+                continue;
+            }
+            long[] nameRuns = runs(name.text);
+            if (shared(runs, nameRuns) < Math.max(runs.length, nameRuns.length) - 3 * limit) {
+                continue;
+            }
+            int d = distance(input, name.text);
+            if (d < best) {
+                best = d;
+                nearest.clear();
+            }
+            if (d == best) {
+                nearest.addAll(name.products);
+            }
+        }
+        return nearest;
+
+    }
+
+    /**
+     * @return the distinct runs of three letters in the name, padded with two boundary marks at each end, each packed
+     * into a long, in order.
+     */
+    private static long[] runs(String name) {
+
+        long[] runs = new long[name.length() + 2];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = (long) charAt(name, i - 2) << 32 | (long) charAt(name, i - 1) << 16 | charAt(name, i);
+        }
+
+        Arrays.sort(runs);
+        int distinct = 0;
+        for (int i = 0; i < runs.length; i++) {
+            if (i == 0 || runs[i] != runs[i - 1]) {
+                runs[distinct++] = runs[i];
+            }
+        }
+        return Arrays.copyOf(runs, distinct);
+
+    }
+
+    private static char charAt(String name, int i) {
+        return i < 0 || i >= name.length() ? BOUNDARY : name.charAt(i);
+    }
+
+    /**
+     * @return the number of values in both sorted arrays.
+     */
+    private static int shared(long[] a, long[] b) {
+
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+
+    }
+
+    /**
+     * @return the positions in the name where a word starts.
+     */
+    private static List<Integer> wordStarts(String name) {
+
+        List<Integer> starts = new ArrayList<>(2);
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != ' ' && (i == 0 || name.charAt(i - 1) == ' ')) {
+                starts.add(i);
+            }
+        }
+        if (starts.isEmpty()) {
+            starts.add(0);
+        }
+        return starts;
+
+    }
+
+    /**
+     * @return the Levenshtein distance between a and b: the fewest insertions, deletions and substitutions that turn
+     * one into the other.
+     */
+    static int distance(String a, String b) {
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How many units of each product a machine needs, for loading a route driver's van.
+ * <p>
+ * A product is on the plan when it has fewer units than its par level, and needs enough units to fill it to capacity.
+ */
+public class RestockPlan {
+
+    private List<Product> products;
+    private int[] units;
+    private long totalUnits;
+
+    /**
+     * Builds the plan in one pass over the products.
+     *
+     * @param stock The products in the machine.
+     * @return the plan.
+     */
+    public static RestockPlan of(Iterable<Product> stock) {
+
+        RestockPlan plan = new RestockPlan();
+        for (Product p : stock) {
+            int need = p.getRestockNeed();
+            if (need > 0) {
+                plan.add(p, need);
+            }
+        }
+        return plan;
+
+    }
+
+    private RestockPlan() {
+        this.products = new ArrayList<>();
+        this.units = new int[8];
+    }
+
+    private void add(Product product, int need) {
+
+        if (products.size() == units.length) {
+            units = Arrays.copyOf(units, units.length * 2);
+        }
+        units[products.size()] = need;
+        products.add(product);
+        totalUnits += need;
+
+    }
+
+    /**
+     * @return the products that need restocking, in the order they were found.
+     */
+    public List<Product> getProducts() {
+        return Collections.unmodifiableList(products);
+    }
+
+    /**
+     * @param i A position in getProducts().
+     * @return the units needed by that product.
+     */
+    public int getUnits(int i) {
+        return units[i];
+    }
+
+    /**
+     * @return the units needed across the machine.
+     */
+    public long getTotalUnits() {
+        return totalUnits;
+    }
+
+    /**
+     * @return the plan as one line per product, then the total.
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder display = new StringBuilder("\nRestock plan:\n");
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            display.append("[ID ").append(p.getId()).append("] ").append(p.getName()).append(" - ")
+                    .append(units[i]).append(" unit(s) to fill to ").append(p.getCapacity()).append('\n');
+        }
+        return display.append("Total: ").append(totalUnits).append(" unit(s)\n").toString();
+
+    }
+
+}
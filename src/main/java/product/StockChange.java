@@ -0,0 +1,28 @@
+package product;
+
+/**
+ * The kinds of change a StockObserver is told about.
+ */
+public enum StockChange {
+
+    /**
+     * Units reserved, released, or sold or added by hand.
+     */
+    QUANTITY,
+
+    /**
+     * Reserved units paid for, leaving the machine. Units available for sale are unchanged.
+     */
+    SALE,
+
+    /**
+     * The product's coil filled to capacity.
+     */
+    RESTOCK,
+
+    /**
+     * A new price.
+     */
+    PRICE
+
+}
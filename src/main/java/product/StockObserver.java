@@ -0,0 +1,19 @@
+package product;
+
+/**
+ * Receives a callback whenever a Product's stock level or price changes.
+ */
+public interface StockObserver {
+
+    /**
+     * Called after the change has been applied.
+     *
+     * @param product The Product that changed.
+     * @param change What kind of change it was.
+     * @param before The units in the machine before the change, whether available or reserved.
+     * @param after The units in the machine after the change: the same as before for a reservation, a release or a
+     * price change.
+     */
+    void stockChanged(Product product, StockChange change, int before, int after);
+
+}
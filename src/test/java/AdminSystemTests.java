@@ -124,6 +124,54 @@ public class AdminSystemTests {
 
     }
 
+    /**
+     * Testing that SALES shows the sales rollups after a purchase.
+     * We expect the water sold to be listed under its product, its category and the total.
+     * Test passes because the purchase is added to the rollups as it completes.
+     */
+    @Test
+    public void handleInput_salesTest() {
+
+        systemIn.provideLines("water", "2", "END", "5", "ADMIN admin", "SALES");
+
+        try {
+            // selection and quantity, then payment, then admin mode
+            instance.run();
+            instance.run();
+            instance.run();
+        } catch (TimeoutException | CancellationException ignored) {
+        }
+
+        String log = systemOut.getLog();
+        assertTrue(log.contains("Sales by product:\n[ID 8] Water - 2 unit(s), $5.00\n"));
+        assertTrue(log.contains("Sales by category:\nDRINK - 2 unit(s), $5.00\n"));
+        assertTrue(log.contains("\nTotal - 2 unit(s), $5.00\n"));
+
+    }
+
+    /**
+     * Testing that QUEUE shows the products that have sold, soonest to run out first.
+     * We expect the water bought to be listed with its units left.
+     * Test passes because the purchase is queued for the restock scheduler, and QUEUE waits for it to be applied.
+     */
+    @Test
+    public void handleInput_queueTest() {
+
+        systemIn.provideLines("water", "2", "END", "5", "ADMIN admin", "QUEUE");
+
+        try {
+            // selection and quantity, then payment, then admin mode
+            instance.run();
+            instance.run();
+            instance.run();
+        } catch (TimeoutException | CancellationException ignored) {
+        }
+
+        String log = systemOut.getLog();
+        assertTrue(log.contains("\nRestock queue:\n[ID 8] Water - 8 unit(s), selling "));
+
+    }
+
     /**
      * Testing if available products displayed in admin mode when command entered in lower case.
      * We expect products to be listed as commands are case insensitive
@@ -235,4 +283,43 @@ public class AdminSystemTests {
         assertTrue(systemOut.getLog().contains("\nAdmin id \"invalid\" does not exist in the system!\n"));
     }
 
+    /**
+     * Testing that FILL ALL, FILL CATEGORY and a multi-product FILL each restock as one batch.
+     * We expect the named products to be back at 10 units, others untouched, and one restock line per command.
+     * Test passes because each form collects its products and restocks them in one VendingMachine.fill() call.
+     */
+    @Test
+    public void handleInput_bulkFillTest() throws TimeoutException, CancellationException {
+
+        VendingMachine vm = new VendingMachine();
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        for (int id = 0; id < 15; id++) {
+            vm.getProduct(String.valueOf(id)).reduceQuantity(1);
+        }
+
+        adminSystem.handleInput("FILL CATEGORY drink");
+        assertEquals(10, vm.getProduct("water").getQuantity());
+        assertEquals(9, vm.getProduct("mars").getQuantity());
+        assertTrue(systemOut.getLog().contains("(3 product(s): Water, Soft Drink, Juice)"));
+
+        adminSystem.handleInput("FILL 11 bounty 11 nothing");
+        assertEquals(10, vm.getProduct("m&m").getQuantity());
+        assertEquals(10, vm.getProduct("bounty").getQuantity());
+        assertEquals(9, vm.getProduct("mars").getQuantity());
+        assertTrue(systemOut.getLog().contains("(2 product(s): M&M, Bounty)"));
+        assertTrue(systemOut.getLog().contains("nothing is not a valid product or product ID. Restock failed."));
+
+        adminSystem.handleInput("fill all");
+        for (int id = 0; id < 15; id++) {
+            assertEquals(10, vm.getProduct(String.valueOf(id)).getQuantity());
+        }
+        assertTrue(systemOut.getLog().contains("All products successfully restocked at "));
+        assertTrue(systemOut.getLog().contains(" (15 product(s))\n"));
+
+        adminSystem.handleInput("FILL CATEGORY snacks");
+        assertTrue(systemOut.getLog().contains("snacks is not a valid category. Restock failed."));
+
+    }
+
 }
@@ -0,0 +1,96 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Cart class.
+ */
+public class CartTests {
+
+    private Product water = new Product(0, "Water", Money.of(2.5), 10, Category.DRINK);
+    private Product chips = new Product(1, "Smiths", Money.of(3), 10, Category.CHIPS);
+
+    /**
+     * Testing if selecting a product already in the cart adds to its line.
+     * We expect one line for water with 3 units, and a total of $7.50.
+     * Test passes because lines are keyed by product ID.
+     */
+    @Test
+    public void add_mergeTest() {
+
+        Cart cart = new Cart();
+        cart.add(water, 1);
+        cart.add(water, 2);
+
+        assertEquals(1, cart.getSelections().size());
+        assertEquals(3, cart.getQuantity(water));
+        assertEquals(Money.of(7.5), cart.getTotal());
+
+    }
+
+    /**
+     * Testing if removing a product drops its line and its price from the total.
+     * We expect 2 units removed, then 0 for a product no longer in the cart, and only the chips left in the total.
+     * Test passes because remove() subtracts the line's total from the running total.
+     */
+    @Test
+    public void removeTest() {
+
+        Cart cart = new Cart();
+        cart.add(water, 2);
+        cart.add(chips, 1);
+
+        assertEquals(2, cart.remove(water));
+        assertEquals(0, cart.remove(water));
+        assertEquals(Money.of(3), cart.getTotal());
+        assertFalse(cart.isEmpty());
+
+        cart.remove(chips);
+        assertTrue(cart.isEmpty());
+        assertEquals(Money.ofCents(0), cart.getTotal());
+
+    }
+
+    /**
+     * Testing if the quantity of a line can be changed, and set to 0 to remove it.
+     * We expect the total to follow each change, and false for a product not in the cart.
+     * Test passes because setQuantity() adjusts the running total by the difference.
+     */
+    @Test
+    public void setQuantityTest() {
+
+        Cart cart = new Cart();
+        cart.add(water, 1);
+
+        assertTrue(cart.setQuantity(water, 4));
+        assertEquals(Money.of(10), cart.getTotal());
+        assertTrue(cart.setQuantity(water, 2));
+        assertEquals(Money.of(5), cart.getTotal());
+        assertFalse(cart.setQuantity(chips, 2));
+        assertTrue(cart.setQuantity(water, 0));
+        assertTrue(cart.isEmpty());
+
+    }
+
+    /**
+     * Testing if a price change after selection leaves the cart's prices alone.
+     * We expect the water to be charged and shown at $2.50.
+     * Test passes because each line keeps the unit price from when it was selected.
+     */
+    @Test
+    public void getTotal_priceChangeTest() {
+
+        Product cola = new Product(2, "Cola", Money.of(2.5), 10, Category.DRINK);
+        Cart cart = new Cart();
+        cart.add(cola, 2);
+        cola.setPrice(Money.of(4));
+
+        assertEquals(Money.of(5), cart.getTotal());
+        assertEquals("[ID 2] Cola - quantity 2 @ $2.50 each = total $5.00\n", cart.render());
+
+    }
+
+}
@@ -0,0 +1,147 @@
+import money.CashBox;
+import money.Denomination;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the CashBox class.
+ */
+public class CashBoxTests {
+
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+
+    /**
+     * Testing if change is given in the fewest coins, where taking the largest coin first would fail.
+     * We expect $0.60 from one 50c and three 20c coins to be given as three 20c coins.
+     * Test passes because pay() follows the table of fewest coins, which respects the counts.
+     */
+    @Test
+    public void pay_notGreedyTest() {
+
+        CashBox box = new CashBox();
+        box.deposit(Denomination.FIFTY_CENTS, 1);
+        box.deposit(Denomination.TWENTY_CENTS, 3);
+
+        assertTrue(box.canMakeChange(60));
+        int[] given = box.pay(Collections.emptyList(), 60);
+
+        assertNotNull(given);
+        assertEquals(3, given[Denomination.TWENTY_CENTS.ordinal()]);
+        assertEquals(0, given[Denomination.FIFTY_CENTS.ordinal()]);
+        assertEquals(0, box.getCount(Denomination.TWENTY_CENTS));
+        assertEquals(1, box.getCount(Denomination.FIFTY_CENTS));
+
+    }
+
+    /**
+     * Testing if a sale the box cannot make change for is refused without touching the box.
+     * We expect no way to give $0.30 from 20c and 50c coins, and the counts unchanged.
+     * Test passes because pay() checks the table before taking anything.
+     */
+    @Test
+    public void pay_impossibleTest() {
+
+        CashBox box = new CashBox();
+        box.deposit(Denomination.TWENTY_CENTS, 5);
+        box.deposit(Denomination.FIFTY_CENTS, 5);
+
+        assertFalse(box.canMakeChange(30));
+        assertNull(box.pay(List.of(Denomination.ONE_DOLLAR), 30));
+        assertEquals(0, box.getCount(Denomination.ONE_DOLLAR));
+        assertEquals(5, box.getCount(Denomination.TWENTY_CENTS));
+        assertFalse(box.canMakeChange(-10));
+        assertFalse(box.canMakeChange(15));
+        assertTrue(box.canMakeChange(0));
+
+    }
+
+    /**
+     * Testing if a completed sale adds the inserted coins and removes the change.
+     * We expect a $5 note paying $3.50 to leave the note in the box and $1.50 taken out as $1 and 50c.
+     * Test passes because pay() removes the change, then adds the payment, and rebuilds the table on next use.
+     */
+    @Test
+    public void pay_updatesInventoryTest() {
+
+        CashBox box = CashBox.standardFloat();
+        long before = box.getTotalCents();
+
+        int[] given = box.pay(List.of(Denomination.FIVE_DOLLARS), 150);
+
+        assertEquals(1, given[Denomination.ONE_DOLLAR.ordinal()]);
+        assertEquals(1, given[Denomination.FIFTY_CENTS.ordinal()]);
+        assertEquals(11, box.getCount(Denomination.FIVE_DOLLARS));
+        assertEquals(19, box.getCount(Denomination.ONE_DOLLAR));
+        assertEquals(before + 500 - 150, box.getTotalCents());
+
+    }
+
+    /**
+     * Testing the table against an exhaustive search, over random small inventories.
+     * We expect the same answer to "can the box make this change?", and the same number of coins, for every amount.
+     * Test passes because the sliding window minimum gives the same result as trying every combination.
+     */
+    @Test
+    public void canMakeChange_exhaustiveTest() {
+
+        Random random = new Random(7);
+        for (int trial = 0; trial < 50; trial++) {
+
+            int[] counts = new int[DENOMINATIONS.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(4);
+            }
+
+            for (int units = 1; units < 200; units++) {
+
+                CashBox box = new CashBox();
+                for (int i = 0; i < counts.length; i++) {
+                    box.deposit(DENOMINATIONS[i], counts[i]);
+                }
+
+                int fewest = fewest(counts, 0, units);
+                assertEquals(fewest != Integer.MAX_VALUE, box.canMakeChange(units * 10L));
+                if (fewest != Integer.MAX_VALUE) {
+                    int given = 0;
+                    for (int coins : box.pay(Collections.emptyList(), units * 10L)) {
+                        given += coins;
+                    }
+                    assertEquals(fewest, given);
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * @return the fewest coins from denomination i upwards that make the amount, trying every combination.
+     */
+    private static int fewest(int[] counts, int i, int units) {
+
+        if (units == 0) {
+            return 0;
+        }
+        if (i == counts.length) {
+            return Integer.MAX_VALUE;
+        }
+
+        int best = Integer.MAX_VALUE;
+        int value = DENOMINATIONS[i].cents() / 10;
+        for (int k = 0; k <= counts[i] && k * value <= units; k++) {
+            int rest = fewest(counts, i + 1, units - k * value);
+            if (rest != Integer.MAX_VALUE) {
+                best = Math.min(best, rest + k);
+            }
+        }
+        return best;
+
+    }
+
+}
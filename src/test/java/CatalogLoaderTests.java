@@ -0,0 +1,178 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the CatalogLoader class.
+ */
+public class CatalogLoaderTests {
+
+    /**
+     * Testing if every field of a catalog line is read.
+     * We expect products with the listed prices, quantities and categories, and defaults for missing capacity and par
+     * level.
+     * Test passes because parse() reads each field by offset, and falls back to the default capacity.
+     */
+    @Test
+    public void load_fieldsTest() throws IOException {
+
+        String csv = "id,name,price,quantity,category,capacity,parLevel\n" +
+                "# drinks\n" +
+                "0,Water,2.50,8,DRINK\n" +
+                "\n" +
+                "1,\"Salt, Vinegar\",3,5,chips,20,4\n" +
+                "2,\"The \"\"Big\"\" Bar\",1.2,0,Chocolate,12\n";
+
+        VendingMachine vm = new VendingMachine(Collections.emptyList());
+        assertEquals(3, new CatalogLoader().load(new StringReader(csv), vm));
+
+        Product water = vm.getProduct("water");
+        assertEquals(Money.of(2.5), water.getPrice());
+        assertEquals(8, water.getQuantity());
+        assertEquals(Category.DRINK, water.getCategory());
+        assertEquals(10, water.getCapacity());
+        assertEquals(5, water.getParLevel());
+
+        Product chips = vm.getProduct("1");
+        assertEquals("Salt, Vinegar", chips.getName());
+        assertEquals(20, chips.getCapacity());
+        assertEquals(4, chips.getParLevel());
+
+        Product bar = vm.getProduct("2");
+        assertEquals("The \"Big\" Bar", bar.getName());
+        assertEquals(Money.of(1.2), bar.getPrice());
+        assertEquals(6, bar.getParLevel());
+
+    }
+
+    /**
+     * Testing if invalid lines are rejected with their line number.
+     * We expect an IllegalArgumentException naming line 2 for each kind of bad line.
+     * Test passes because parse() checks every field, and invalid() adds the line number.
+     */
+    @Test
+    public void load_invalidLinesTest() throws IOException {
+
+        String[] bad = {
+                "1,Water,2.50,8",
+                "x,Water,2.50,8,DRINK",
+                "1,Water,2.555,8,DRINK",
+                "1,Water,2.50,8,SOUP",
+                "1,Water,2.50,8,DRINK,5,6",
+                "1,,2.50,8,DRINK"
+        };
+
+        for (String line : bad) {
+            try {
+                new CatalogLoader().load(new StringReader("0,Mars,1,1,CHOCOLATE\n" + line + "\n"),
+                        new VendingMachine(Collections.emptyList()));
+                fail("Expected " + line + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Catalog line 2: "));
+            }
+        }
+
+    }
+
+    /**
+     * Testing if a 100,000-row catalog can be streamed in.
+     * We expect every product to be indexed by ID and name.
+     * Test passes because the catalog is read one line at a time, straight into the machine.
+     */
+    @Test
+    public void load_manyRowsTest() throws IOException {
+
+        int rows = 100_000;
+        VendingMachine vm = new VendingMachine(Collections.emptyList());
+
+        assertEquals(rows, new CatalogLoader().load(new GeneratedCatalog(rows), vm));
+        assertEquals("Product 99999", vm.getProduct("99999").getName());
+        assertEquals(99_999, vm.getProduct("product 99999").getId());
+
+    }
+
+    /**
+     * Testing if a one-million-row catalog can be streamed in without holding more than the products themselves.
+     * We expect every product to be indexed by ID and name, and the machine to take less than 500 bytes of heap per
+     * product.
+     * Test passes because the catalog is read one line at a time, straight into the machine, and nothing is built for
+     * search until the first search.
+     */
+    @Test
+    @org.junit.experimental.categories.Category(SlowTests.class)
+    public void load_millionRowsTest() throws IOException {
+
+        int rows = 1_000_000;
+        long before = usedHeap();
+        VendingMachine vm = new VendingMachine(Collections.emptyList());
+
+        assertEquals(rows, new CatalogLoader().load(new GeneratedCatalog(rows), vm));
+        long used = usedHeap() - before;
+
+        assertEquals("Product 999999", vm.getProduct("999999").getName());
+        assertEquals(999_999, vm.getProduct("product 999999").getId());
+        assertTrue(used / 1_000_000 + " MB used", used < 500L * rows);
+
+    }
+
+    /**
+     * @return the heap in use after a full collection.
+     */
+    private static long usedHeap() {
+
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+
+    }
+
+    /**
+     * Generates catalog lines on demand, so the test does not hold the whole catalog as text.
+     */
+    private static class GeneratedCatalog extends Reader {
+
+        private final int rows;
+        private int row;
+        private String line = "";
+        private int offset;
+
+        GeneratedCatalog(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) {
+
+            if (offset == line.length()) {
+                if (row == rows) {
+                    return -1;
+                }
+                line = row + ",Product " + row + "," + (1 + row % 9) + ".50,10," + Category.values()[row % 4] + "\n";
+                row++;
+                offset = 0;
+            }
+
+            int n = Math.min(len, line.length() - offset);
+            line.getChars(offset, offset + n, buffer, off);
+            offset += n;
+            return n;
+
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  Tests for the CommandLine class.
+ */
+public class CommandLineTests {
+
+    /**
+     * Testing if lines are split into the same tokens as String.split(" ").
+     * We expect matching token counts and arguments for a range of spacing.
+     * Test passes because parse() keeps empty tokens between spaces and drops trailing ones, as split() does.
+     */
+    @Test
+    public void parse_matchesSplitTest() {
+
+        CommandLine line = new CommandLine();
+
+        for (String text : Arrays.asList("HELP", "FILL 3 admin", "fill  3", "sour worms ", "a b c d e f g h i", " x")) {
+            String[] split = text.split(" ");
+            line.parse(text);
+
+            assertEquals(text, split.length, line.size());
+            for (int i = 1; i < split.length; i++) {
+                assertEquals(text, split[i], line.argument(i - 1));
+            }
+        }
+
+    }
+
+    /**
+     * Testing if a reused CommandLine forgets the previous line.
+     * We expect the argument count of the second line only.
+     * Test passes because parse() resets the token count.
+     */
+    @Test
+    public void parse_reuseTest() {
+
+        CommandLine line = new CommandLine();
+        line.parse("FILL 3 admin");
+
+        assertEquals(0, line.parse("HELP").arguments());
+        assertEquals("HELP", line.text());
+
+    }
+
+}
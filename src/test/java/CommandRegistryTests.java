@@ -0,0 +1,86 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the CommandRegistry class.
+ */
+public class CommandRegistryTests {
+
+    private final Command<List<String>> wrongArguments = (log, line) -> log.add("wrong");
+
+    /**
+     * Testing if verbs match ignoring case, and other words do not match.
+     * We expect "help", "HeLp" and "HELP" to find the command, and "helper" and "he" not to.
+     * Test passes because lookup() compares the first token's characters ignoring case, and its length.
+     */
+    @Test
+    public void lookup_caseInsensitiveTest() throws Exception {
+
+        CommandRegistry<List<String>> registry = new CommandRegistry<List<String>>(wrongArguments)
+                .register("HELP", 0, (log, line) -> log.add("help"));
+        CommandLine line = new CommandLine();
+        List<String> log = new ArrayList<>();
+
+        for (String text : List.of("help", "HeLp", "HELP")) {
+            registry.lookup(line.parse(text)).execute(log, line);
+        }
+
+        assertEquals(List.of("help", "help", "help"), log);
+        assertNull(registry.lookup(line.parse("helper")));
+        assertNull(registry.lookup(line.parse("he")));
+        assertNull(registry.lookup(line.parse("")));
+
+    }
+
+    /**
+     * Testing if argument counts are checked.
+     * We expect the wrong-arguments command for a bad count, and the command itself for the right count or ANY.
+     * Test passes because each verb is registered with its argument count.
+     */
+    @Test
+    public void lookup_argumentsTest() throws Exception {
+
+        CommandRegistry<List<String>> registry = new CommandRegistry<List<String>>(wrongArguments)
+                .register("FILL", 2, (log, line) -> log.add("fill " + line.argument(0)))
+                .register("END", CommandRegistry.ANY, (log, line) -> log.add("end"));
+        CommandLine line = new CommandLine();
+        List<String> log = new ArrayList<>();
+
+        registry.lookup(line.parse("fill 3")).execute(log, line);
+        registry.lookup(line.parse("fill 3 admin")).execute(log, line);
+        registry.lookup(line.parse("end now please")).execute(log, line);
+
+        assertEquals(List.of("wrong", "fill 3", "end"), log);
+
+    }
+
+    /**
+     * Testing if many commands can be registered.
+     * We expect each of 100 verbs to find its own command.
+     * Test passes because the table grows and rehashes as commands are added.
+     */
+    @Test
+    public void register_growTest() throws Exception {
+
+        CommandRegistry<List<String>> registry = new CommandRegistry<>(wrongArguments);
+        for (int i = 0; i < 100; i++) {
+            String verb = "CMD" + i;
+            registry.register(verb, 0, (log, line) -> log.add(verb));
+        }
+
+        CommandLine line = new CommandLine();
+        List<String> log = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            registry.lookup(line.parse("cmd" + i)).execute(log, line);
+        }
+
+        assertEquals(100, log.size());
+        assertEquals("CMD57", log.get(57));
+
+    }
+
+}
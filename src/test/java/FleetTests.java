@@ -0,0 +1,157 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+import product.RestockPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Fleet class.
+ */
+public class FleetTests {
+
+    /**
+     * Builds a machine with the given number of products, IDs 0 upwards, each with capacity 10 and par level 5.
+     * Product i has (i + machine) % 11 units, so about 5 in 11 are below par and 1 in 11 is out.
+     */
+    private static VendingMachine machine(int machine, int products) {
+
+        List<Product> stock = new ArrayList<>(products);
+        Category[] categories = Category.values();
+        for (int id = 0; id < products; id++) {
+            stock.add(new Product(id, "Product " + id, Money.of(1), (id + machine) % 11, 10, 5,
+                    categories[id % categories.length]));
+        }
+        return new VendingMachine(stock);
+
+    }
+
+    /**
+     * Testing if machines are added, found and removed by ID.
+     * We expect each ID to find its machine, a duplicate ID to be rejected, and a removed machine to be gone.
+     * Test passes because each ID hashes to one partition.
+     */
+    @Test
+    public void add_getRemoveTest() {
+
+        Fleet fleet = new Fleet();
+        VendingMachine first = new VendingMachine();
+        VendingMachine second = new VendingMachine();
+
+        fleet.add("site-1/a", first);
+        fleet.add("site-1/b", second);
+
+        assertSame(first, fleet.get("site-1/a"));
+        assertSame(second, fleet.get("site-1/b"));
+        assertNull(fleet.get("site-2/a"));
+        assertEquals(2, fleet.size());
+
+        try {
+            fleet.add("site-1/a", new VendingMachine());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertSame(first, fleet.get("site-1/a"));
+        }
+
+        assertSame(first, fleet.remove("site-1/a"));
+        assertNull(fleet.get("site-1/a"));
+        assertEquals(1, fleet.size());
+
+    }
+
+    /**
+     * Testing if stock and sold-out queries cover the whole fleet.
+     * We expect the sum of every machine's units of product 0, and exactly the machines where it is out, in order.
+     * Test passes because the query visits every partition, and combines each machine's answer.
+     */
+    @Test
+    public void totalStock_machinesOutOfTest() {
+
+        Fleet fleet = new Fleet();
+        long expected = 0;
+        List<String> out = new ArrayList<>();
+        for (int m = 0; m < 100; m++) {
+            String id = String.format("machine-%03d", m);
+            fleet.add(id, machine(m, 20));
+            expected += m % 11;
+            if (m % 11 == 0) {
+                out.add(id);
+            }
+        }
+
+        assertEquals(expected, fleet.totalStock("0"));
+        assertEquals(expected, fleet.totalStock("product 0"));
+        assertEquals(0, fleet.totalStock("no such product"));
+        assertEquals(out, fleet.machinesOutOf("0"));
+
+        assertEquals(0, new Fleet().totalStock("0"));
+        assertTrue(new Fleet().machinesOutOf("0").isEmpty());
+
+    }
+
+    /**
+     * Testing if revenue is added up by category across machines.
+     * We expect $5.00 of drinks from one machine and $3.00 of drinks and $7.00 of chips from another.
+     * Test passes because each machine's metrics count revenue by category, and the fleet adds them.
+     */
+    @Test
+    public void revenueByCategoryTest() {
+
+        Fleet fleet = new Fleet();
+        VendingMachine first = new VendingMachine();
+        VendingMachine second = new VendingMachine();
+        fleet.add("first", first);
+        fleet.add("second", second);
+
+        first.commit(List.of(reserve(first, "water", 2)));
+        second.commit(List.of(reserve(second, "soft drink", 1), reserve(second, "chicken", 2)));
+
+        Map<Category, Money> revenue = fleet.revenueByCategory();
+        assertEquals(Money.of(8), revenue.get(Category.DRINK));
+        assertEquals(Money.of(7), revenue.get(Category.CHIPS));
+        assertEquals(Money.ofCents(0), revenue.get(Category.CHOCOLATE));
+
+    }
+
+    private static TransactionPair reserve(VendingMachine vm, String product, int quantity) {
+
+        Product p = vm.getProduct(product);
+        assertTrue(vm.reserve(p, quantity));
+        return new TransactionPair(p, quantity);
+
+    }
+
+    /**
+     * Testing the low stock report over 1,000 machines of 500 products each.
+     * We expect every machine to be listed, each with the units to fill its products below par.
+     * Test passes because each machine builds its own restock plan, and the plans are gathered in parallel.
+     */
+    @Test
+    public void lowStockReport_largeFleetTest() {
+
+        Fleet fleet = new Fleet();
+        for (int m = 0; m < 1_000; m++) {
+            fleet.add(String.format("machine-%04d", m), machine(m, 500));
+        }
+
+        Map<String, RestockPlan> report = fleet.lowStockReport();
+
+        assertEquals(1_000, report.size());
+        RestockPlan plan = report.get("machine-0000");
+        long units = 0;
+        for (int id = 0; id < 500; id++) {
+            if (id % 11 < 5) {
+                units += 10 - id % 11;
+            }
+        }
+        assertEquals(units, plan.getTotalUnits());
+        assertEquals("machine-0000", report.keySet().iterator().next());
+
+    }
+
+}
@@ -0,0 +1,124 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the InputReader class.
+ */
+public class InputReaderTests {
+
+    /**
+     * Testing if every buffered line is delivered, in order, across separate polls.
+     * We expect "a", "b" and "c" followed by null at the end of the stream.
+     * Test passes because one reader owns the stream for its whole life, so no buffered input is lost between prompts.
+     */
+    @Test
+    public void poll_bufferedLinesTest() {
+
+        InputReader reader = new InputReader(new ByteArrayInputStream("a\nb\nc\n".getBytes()));
+
+        assertEquals("a", reader.poll(5));
+        assertEquals("b", reader.poll(5));
+        assertEquals("c", reader.poll(5));
+        assertNull(reader.poll(5));
+        assertNull(reader.poll(5));
+
+    }
+
+    /**
+     * Testing if poll() times out when no input arrives, and still receives input sent afterwards.
+     * We expect null first, then the line written after the timeout.
+     * Test passes because a timed-out poll leaves the reader thread waiting on the stream.
+     */
+    @Test
+    public void poll_timeoutTest() throws IOException {
+
+        PipedOutputStream keyboard = new PipedOutputStream();
+        InputReader reader = new InputReader(new PipedInputStream(keyboard));
+
+        assertNull(reader.poll(1));
+
+        keyboard.write("late\n".getBytes());
+        keyboard.flush();
+        assertEquals("late", reader.poll(5));
+
+    }
+
+    /**
+     * Testing if serving many prompts does not create threads.
+     * We expect the live thread count not to grow over 10,000 prompts.
+     * Test passes because all prompts are served by the same reader thread.
+     */
+    @Test
+    public void poll_constantThreadCountTest() {
+
+        InputReader reader = new InputReader(new ByteArrayInputStream("1\n".repeat(10_000).getBytes()));
+        int threads = Thread.activeCount();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("1", reader.poll(5));
+        }
+
+        assertTrue(Thread.activeCount() <= threads);
+
+    }
+
+    /**
+     * Testing if the shared reader follows System.in when it is replaced.
+     * We expect the same instance while System.in is unchanged, and a new one afterwards.
+     * Test passes because standardInput() compares the bound stream with System.in on each call.
+     */
+    @Test
+    public void standardInputTest() {
+
+        java.io.InputStream stdin = System.in;
+
+        try {
+            System.setIn(new ByteArrayInputStream("first\n".getBytes()));
+            InputReader first = InputReader.standardInput();
+            assertSame(first, InputReader.standardInput());
+            assertEquals("first", first.poll(5));
+
+            System.setIn(new ByteArrayInputStream("second\n".getBytes()));
+            assertNotSame(first, InputReader.standardInput());
+            assertEquals("second", InputReader.standardInput().poll(5));
+        } finally {
+            System.setIn(stdin);
+        }
+
+    }
+
+    /**
+     * Testing if replacing System.in does not leave a reader thread behind for each replaced stream.
+     * We expect the live thread count to settle back to at most one more than before 100 replacements.
+     * Test passes because standardInput() closes the replaced reader, whose thread stops waiting for room in its queue.
+     */
+    @Test
+    public void standardInput_closesReplacedReaderTest() throws InterruptedException {
+
+        java.io.InputStream stdin = System.in;
+        byte[] unread = "line\n".repeat(200).getBytes();
+        int threads = Thread.activeCount();
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                System.setIn(new ByteArrayInputStream(unread));
+                InputReader.standardInput();
+            }
+
+            for (int i = 0; i < 500 && Thread.activeCount() > threads + 1; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(Thread.activeCount() <= threads + 1);
+        } finally {
+            System.setIn(stdin);
+        }
+
+    }
+
+}
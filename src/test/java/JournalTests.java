@@ -0,0 +1,336 @@
+import exceptions.CancellationException;
+import money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Journal class.
+ */
+public class JournalTests {
+
+    private Path directory;
+    private Path file;
+
+    /**
+     * Creating an empty directory for the journal.
+     */
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("vending");
+        file = directory.resolve("vending.journal");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path f : files.toArray(Path[]::new)) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing if purchases, fills, price changes and admin changes survive a restart.
+     * We expect a fresh machine replaying the journal to show the same stock, prices and admin IDs.
+     * Test passes because every change is journaled and synced before it returns, and replay() applies each record.
+     */
+    @Test
+    public void replay_rebuildsStateTest() throws IOException {
+
+        try (Journal journal = new Journal(file)) {
+            VendingMachine vm = new VendingMachine();
+            AdminSystem adminSystem = new AdminSystem();
+            adminSystem.setVendingMachine(vm);
+            assertEquals(0, journal.replay(vm, adminSystem));
+            vm.setJournal(journal);
+            adminSystem.setJournal(journal);
+
+            // sell 3 water, then restock it and sell 2 more; sell 1 Mars directly; sell 5 BBQ and juice, then restock
+            // the drinks in one batch
+            List<TransactionPair> cart = new ArrayList<>();
+            cart.add(new TransactionPair(vm.getProduct("water"), 3));
+            assertTrue(vm.reserve(vm.getProduct("water"), 3));
+            vm.commit(cart);
+            vm.fill("water");
+            assertTrue(vm.reserve(vm.getProduct("water"), 2));
+            vm.commit(List.of(new TransactionPair(vm.getProduct("water"), 2)));
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("mars"), 1)));
+
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("bbq"), 5),
+                    new TransactionPair(vm.getProduct("juice"), 5)));
+            vm.fillCategory(Category.DRINK);
+
+            assertTrue(vm.setPrice("juice", Money.of(4.2)));
+            adminSystem.addAdminId("night shift");
+            adminSystem.removeAdminId("admin");
+        }
+
+        VendingMachine restarted = new VendingMachine();
+        AdminSystem restartedAdmin = new AdminSystem();
+        try (Journal journal = new Journal(file)) {
+            assertEquals(10, journal.replay(restarted, restartedAdmin));
+        }
+
+        assertEquals(10, restarted.getProduct("water").getQuantity());
+        assertEquals(9, restarted.getProduct("mars").getQuantity());
+        assertEquals(5, restarted.getProduct("bbq").getQuantity());
+        assertEquals(10, restarted.getProduct("juice").getQuantity());
+        assertEquals(Money.of(4.2), restarted.getProduct("juice").getPrice());
+        assertEquals(Set.of("night shift"), restartedAdmin.getAdminIDs());
+
+    }
+
+    /**
+     * Testing if a record torn by a crash is discarded, and new records follow the last intact one.
+     * We expect the intact purchase to be replayed, the torn one to be dropped, and a later purchase to be replayed.
+     * Test passes because the torn record fails its checksum, and replay() truncates the file before it.
+     */
+    @Test
+    public void replay_tornTailTest() throws IOException {
+
+        try (Journal journal = new Journal(file)) {
+            journal.sync(journal.purchase(8, 1));
+            journal.sync(journal.purchase(8, 4));
+        }
+
+        // a crash cut the second record short
+        try (FileChannel channel = FileChannel.open(file.resolveSibling("vending.journal.1"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+
+        VendingMachine vm = new VendingMachine();
+        try (Journal journal = new Journal(file)) {
+            assertEquals(1, journal.replay(vm, new AdminSystem()));
+            journal.sync(journal.purchase(8, 2));
+        }
+        assertEquals(9, vm.getProduct("8").getQuantity());
+
+        VendingMachine restarted = new VendingMachine();
+        try (Journal journal = new Journal(file)) {
+            assertEquals(2, journal.replay(restarted, new AdminSystem()));
+        }
+        assertEquals(7, restarted.getProduct("8").getQuantity());
+
+    }
+
+    /**
+     * Testing if concurrent purchases share fsyncs.
+     * We expect every purchase to be replayed, with fewer fsyncs than purchases.
+     * Test passes because purchases that arrive while an fsync is in progress are written together by the next one.
+     */
+    @Test
+    public void sync_groupCommitTest() throws Exception {
+
+        int threads = 8;
+        int perThread = 200;
+
+        try (Journal journal = new Journal(file)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.sync(journal.purchase(0, 1));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            assertTrue(journal.getSyncCount() < threads * perThread);
+        }
+
+        try (Journal journal = new Journal(file)) {
+            assertEquals(threads * perThread, journal.replay(new VendingMachine(), new AdminSystem()));
+        }
+
+    }
+
+    /**
+     * Testing if concurrent purchases, fills and price changes replay to the state they left behind.
+     * We expect a fresh machine replaying the journal to show the same stock and price as the machine that made them.
+     * Test passes because each change is applied and appended in one critical section, so the journal holds the
+     * changes in the order they were applied.
+     */
+    @Test
+    public void replay_concurrentChangesTest() throws Exception {
+
+        int threads = 4;
+        int perThread = 500;
+
+        VendingMachine vm = new VendingMachine();
+        try (Journal journal = new Journal(file)) {
+            journal.replay(vm, new AdminSystem());
+            vm.setJournal(journal);
+
+            Product water = vm.getProduct("water");
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        if (vm.reserve(water, 1)) {
+                            vm.commit(List.of(new TransactionPair(water, 1)));
+                        }
+                        if (i % 3 == 0) {
+                            vm.fill("water");
+                        }
+                        vm.setPrice("water", Money.ofCents(100 + worker * perThread + i));
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        VendingMachine restarted = new VendingMachine();
+        try (Journal journal = new Journal(file)) {
+            journal.replay(restarted, new AdminSystem());
+        }
+
+        assertEquals(vm.getProduct("water").getQuantity(), restarted.getProduct("water").getQuantity());
+        assertEquals(vm.getProduct("water").getPrice(), restarted.getProduct("water").getPrice());
+
+    }
+
+    /**
+     * Testing if a customer who pays after the journal has failed gets their money back and the stock is released.
+     * We expect a refund message, the cash box and the stock as they were before, and the transaction cancelled.
+     * Test passes because a failed journal refuses the sale before any stock leaves the machine, and the session then
+     * undoes the settled payment.
+     */
+    @Test
+    public void commit_failedJournalRefundsTest() throws Exception {
+
+        VendingMachine vm = new VendingMachine();
+        Journal journal = new Journal(file);
+        journal.replay(vm, new AdminSystem());
+        vm.setJournal(journal);
+        journal.close();
+        try {
+            journal.sync(journal.purchase(8, 1));
+            fail("Expected a write to a closed journal to fail");
+        } catch (UncheckedIOException e) {
+            // the journal has now failed for good
+        }
+
+        long cash = vm.getCashBox().getTotalCents();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Session session = new Session(vm, new AdminSystem(), new PrintStream(out, true));
+        session.begin();
+        session.handle("water");
+        session.handle("1");
+        session.handle("END");
+        try {
+            session.handle("5");
+            fail("Expected the sale to be cancelled");
+        } catch (CancellationException e) {
+            session.cancel();
+        }
+
+        assertTrue(out.toString().contains("Sorry, the machine could not complete your purchase. Your $5.00 has been "
+                + "returned."));
+        assertEquals(cash, vm.getCashBox().getTotalCents());
+        assertEquals(10, vm.getProduct("water").getQuantity());
+        assertEquals(0, vm.getProduct("water").getReserved());
+
+    }
+
+    /**
+     * Testing if replay continues across segments after a checkpoint.
+     * We expect purchases from both segments to be replayed, in order, into a machine that had no snapshot.
+     * Test passes because checkpoint() starts a new segment and replay() reads every segment from the first.
+     */
+    @Test
+    public void replay_acrossSegmentsTest() throws IOException {
+
+        try (Journal journal = new Journal(file)) {
+            journal.sync(journal.purchase(8, 1));
+            assertEquals(Long.valueOf(2), journal.checkpoint(g -> g));
+            journal.sync(journal.fill(8));
+            journal.sync(journal.purchase(8, 3));
+        }
+
+        VendingMachine vm = new VendingMachine();
+        try (Journal journal = new Journal(file)) {
+            assertEquals(2, journal.getGeneration());
+            assertEquals(3, journal.replay(vm, new AdminSystem()));
+        }
+        assertEquals(7, vm.getProduct("8").getQuantity());
+
+    }
+
+    /**
+     * Testing if restocking more products than fit in one record survives a restart, with the records after it.
+     * We expect 20,000 products filled at once, then an admin added and a price changed, all to be replayed.
+     * Test passes because fill() splits the products over records whose lengths fit the record's length field.
+     */
+    @Test
+    public void replay_largeFillTest() throws IOException {
+
+        List<Product> products = new ArrayList<>();
+        for (int id = 0; id < 20_000; id++) {
+            products.add(new Product(id, "Product " + id, Money.of(1), 10, Category.CHIPS));
+        }
+
+        try (Journal journal = new Journal(file)) {
+            VendingMachine vm = new VendingMachine(products);
+            AdminSystem adminSystem = new AdminSystem();
+            adminSystem.setVendingMachine(vm);
+            journal.replay(vm, adminSystem);
+            vm.setJournal(journal);
+            adminSystem.setJournal(journal);
+
+            for (Product p : products) {
+                p.reduceQuantity(5);
+            }
+            assertEquals(20_000, vm.fillAll().size());
+            adminSystem.addAdminId("bob");
+            assertTrue(vm.setPrice("3", Money.of(2.5)));
+        }
+
+        List<Product> restartedProducts = new ArrayList<>();
+        for (int id = 0; id < 20_000; id++) {
+            restartedProducts.add(new Product(id, "Product " + id, Money.of(1), 5, 10, 5, Category.CHIPS));
+        }
+        VendingMachine restarted = new VendingMachine(restartedProducts);
+        AdminSystem restartedAdmin = new AdminSystem();
+        try (Journal journal = new Journal(file)) {
+            // two FILL_MANY records, then the admin and the price
+            assertEquals(4, journal.replay(restarted, restartedAdmin));
+        }
+
+        for (Product p : restartedProducts) {
+            assertEquals(10, p.getQuantity());
+        }
+        assertTrue(restartedAdmin.getAdminIDs().contains("bob"));
+        assertEquals(Money.of(2.5), restarted.getProduct("3").getPrice());
+
+    }
+
+}
@@ -0,0 +1,294 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the KioskServer class, over localhost.
+ */
+public class KioskServerTests {
+
+    private VendingMachine vm;
+    private KioskServer server;
+
+    /**
+     * A test client: one kiosk terminal.
+     */
+    private class Kiosk implements AutoCloseable {
+
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final StringBuilder screen;
+
+        private Kiosk() throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            this.socket.setSoTimeout(5_000);
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+            this.screen = new StringBuilder();
+        }
+
+        private void send(String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * Reads until the screen shows the given text, and returns everything read up to and including it.
+         */
+        private String readUntil(String text) throws IOException {
+
+            byte[] buffer = new byte[4096];
+            while (screen.indexOf(text) < 0) {
+                int read = in.read(buffer);
+                if (read < 0) {
+                    throw new IOException("Disconnected before \"" + text + "\": " + screen);
+                }
+                screen.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+            }
+
+            int end = screen.indexOf(text) + text.length();
+            String shown = screen.substring(0, end);
+            screen.delete(0, end);
+            return shown;
+
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+
+        vm = new VendingMachine();
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        server = new KioskServer(vm, adminSystem, 0, 300);
+        server.start();
+
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Testing if a terminal can make a purchase over TCP.
+     * We expect the welcome and product listing, then the purchase, and 3 fewer units of water.
+     * Test passes because each line received is handed to the terminal's session, and its output is written back.
+     */
+    @Test
+    public void purchaseTest() throws IOException {
+
+        try (Kiosk kiosk = new Kiosk()) {
+
+            assertTrue(kiosk.readUntil("> ").contains("Welcome to the Vending Machine!"));
+
+            kiosk.send("water");
+            kiosk.send("3");
+            kiosk.send("END");
+            kiosk.send("10");
+
+            String shown = kiosk.readUntil("Thank you for your purchase!");
+            assertTrue(shown.contains("You have purchased:"));
+            assertTrue(shown.contains("[ID 8] Water - quantity 3"));
+
+        }
+
+        assertEquals(7, vm.getProduct("water").getQuantity());
+
+    }
+
+    /**
+     * Testing if terminals are independent sessions.
+     * We expect one terminal to cancel its selection while the other's reservation stays in place.
+     * Test passes because every connection has its own Session.
+     */
+    @Test
+    public void independentSessionsTest() throws IOException {
+
+        try (Kiosk first = new Kiosk(); Kiosk second = new Kiosk()) {
+
+            first.readUntil("> ");
+            second.readUntil("> ");
+
+            first.send("water");
+            first.send("2");
+            first.readUntil("You have selected:");
+            second.send("water");
+            second.send("3");
+            second.readUntil("You have selected:");
+            assertEquals(5, vm.getProduct("water").getReserved());
+
+            second.send("CANCEL");
+            second.readUntil("Transaction cancelled by user.");
+            assertEquals(2, vm.getProduct("water").getReserved());
+
+        }
+
+    }
+
+    /**
+     * Testing if a terminal that goes quiet part way through a transaction times out on its own.
+     * We expect the inactivity message and the reservation released, while an idle terminal is left alone.
+     * Test passes because the selector loop times out only silent terminals that are in a transaction.
+     */
+    @Test
+    public void timeoutTest() throws IOException {
+
+        try (Kiosk busy = new Kiosk(); Kiosk idle = new Kiosk()) {
+
+            busy.readUntil("> ");
+            idle.readUntil("> ");
+
+            busy.send("juice");
+            busy.send("2");
+            busy.readUntil("You have selected:");
+            assertEquals(2, vm.getProduct("juice").getReserved());
+
+            assertTrue(busy.readUntil("Welcome").contains("cancelled due to user inactivity"));
+            assertEquals(0, vm.getProduct("juice").getReserved());
+
+            idle.socket.setSoTimeout(600);
+            try {
+                idle.readUntil("inactivity");
+                fail();
+            } catch (SocketTimeoutException e) {
+                // nothing was sent to the idle terminal
+            }
+
+        }
+
+    }
+
+    /**
+     * Testing if admin commands work from a terminal, with their output sent to it.
+     * We expect the price change message on the terminal, and the new price in the machine.
+     * Test passes because each terminal's admin commands write to that terminal.
+     */
+    @Test
+    public void adminTest() throws IOException {
+
+        try (Kiosk kiosk = new Kiosk()) {
+
+            kiosk.readUntil("> ");
+            kiosk.send("ADMIN admin");
+            kiosk.readUntil("Welcome Admin");
+            kiosk.send("PRICE 8 4");
+            kiosk.readUntil("Product 8 now costs $4.00");
+            kiosk.send("END");
+            kiosk.readUntil("You are exiting admin mode");
+
+        }
+
+        assertEquals("$4.00", vm.getProduct("water").getPrice().toString());
+
+    }
+
+    /**
+     * Testing if QUIT and dropped connections end their sessions.
+     * We expect the server to close the quitting terminal's connection, and to release a dropped terminal's cart.
+     * Test passes because a closed session or a closed socket disconnects the terminal and returns its stock.
+     */
+    @Test
+    public void disconnectTest() throws IOException, InterruptedException {
+
+        try (Kiosk kiosk = new Kiosk()) {
+            kiosk.readUntil("> ");
+            kiosk.send("QUIT");
+            kiosk.readUntil("Have a nice day!");
+            assertEquals(-1, kiosk.in.read());
+        }
+
+        try (Kiosk kiosk = new Kiosk()) {
+            kiosk.readUntil("> ");
+            kiosk.send("mars");
+            kiosk.send("4");
+            kiosk.readUntil("You have selected:");
+        }
+
+        for (int i = 0; i < 100 && vm.getProduct("mars").getReserved() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, vm.getProduct("mars").getReserved());
+
+    }
+
+    /**
+     * Testing if quitting with products in the cart returns their stock.
+     * We expect 3 units of water reserved after the selection, and none once the terminal quits and disconnects.
+     * Test passes because QUIT cancels the transaction before it closes the session.
+     */
+    @Test
+    public void quitWithCartTest() throws IOException {
+
+        try (Kiosk kiosk = new Kiosk()) {
+            kiosk.readUntil("> ");
+            kiosk.send("water");
+            kiosk.send("3");
+            kiosk.readUntil("You have selected:");
+            assertEquals(3, vm.getProduct("water").getReserved());
+
+            kiosk.send("QUIT");
+            assertTrue(kiosk.readUntil("Have a nice day!").contains("Transaction cancelled by user"));
+            assertEquals(-1, kiosk.in.read());
+        }
+
+        assertEquals(0, vm.getProduct("water").getReserved());
+        assertEquals(10, vm.getProduct("water").getQuantity());
+
+    }
+
+    /**
+     * Testing if the server holds many idle terminals while serving one.
+     * We expect 500 connected terminals and a purchase to complete alongside them.
+     * Test passes because idle terminals only cost a socket and a session, not a thread.
+     */
+    @Test
+    public void manyTerminalsTest() throws IOException, InterruptedException {
+
+        List<Kiosk> idle = new ArrayList<>();
+        try {
+            for (int i = 0; i < 500; i++) {
+                idle.add(new Kiosk());
+            }
+            for (Kiosk kiosk : idle) {
+                kiosk.readUntil("> ");
+            }
+            assertEquals(500, server.getTerminalCount());
+
+            try (Kiosk kiosk = new Kiosk()) {
+                kiosk.readUntil("> ");
+                kiosk.send("bounty");
+                kiosk.send("1");
+                kiosk.send("END");
+                kiosk.send("1");
+                kiosk.readUntil("Thank you for your purchase!");
+            }
+        } finally {
+            for (Kiosk kiosk : idle) {
+                kiosk.close();
+            }
+        }
+
+        assertEquals(9, vm.getProduct("bounty").getQuantity());
+
+    }
+
+}
@@ -0,0 +1,120 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  Tests for the LatencyHistogram class.
+ */
+public class LatencyHistogramTests {
+
+    /**
+     * Testing if an empty histogram reports no latency.
+     * We expect a count of 0 and every percentile to be 0.
+     * Test passes because percentile() returns 0 when nothing has been recorded.
+     */
+    @Test
+    public void percentile_emptyTest() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.percentile(99.9));
+
+    }
+
+    /**
+     * Testing if percentiles of 1 to 100,000 nanoseconds are within the histogram's precision.
+     * We expect p50, p99 and p99.9 to be no lower than the exact value, and at most 1/16 above it.
+     * Test passes because each bucket spans a sixteenth of its power of two, and reports its upper bound.
+     */
+    @Test
+    public void percentile_precisionTest() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertWithin(50_000, histogram.percentile(50));
+        assertWithin(99_000, histogram.percentile(99));
+        assertWithin(99_900, histogram.percentile(99.9));
+        assertWithin(100_000, histogram.percentile(100));
+
+    }
+
+    /**
+     * Testing if the smallest and largest latencies can be recorded.
+     * We expect 0 for negative and zero latencies, and Long.MAX_VALUE for the largest.
+     * Test passes because negative values are clamped to zero and the top bucket's upper bound is Long.MAX_VALUE.
+     */
+    @Test
+    public void record_extremesTest() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+
+    }
+
+    /**
+     * Testing if stripes are only allocated when they are used.
+     * We expect none for a new histogram, one after a single thread records, and every count kept when 8 threads
+     * record at once.
+     * Test passes because a stripe's counts are allocated on first use, and threads spread out only when they collide.
+     */
+    @Test
+    public void record_allocatesOnUseTest() throws InterruptedException {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getAllocatedStripes());
+
+        for (int i = 0; i < 1_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1, histogram.getAllocatedStripes());
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(801_000, histogram.getCount());
+
+    }
+
+    /**
+     * Testing if latencies beyond the precise range are counted in one overflow bucket.
+     * We expect 2^36 - 1 nanoseconds to be reported exactly, and anything longer as Long.MAX_VALUE.
+     * Test passes because the largest precise bucket ends at 2^36 - 1, and the overflow bucket reports no bound.
+     */
+    @Test
+    public void record_overflowTest() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record((1L << 36) - 1);
+        histogram.record(1L << 36);
+
+        assertEquals((1L << 36) - 1, histogram.percentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+
+    }
+
+    private static void assertWithin(long exact, long reported) {
+        assertTrue(reported + " < " + exact, reported >= exact);
+        assertTrue(reported + " > " + exact + " + 1/16", reported <= exact + exact / 16);
+    }
+
+}
@@ -0,0 +1,100 @@
+import money.Denomination;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  Tests for the LoadGenerator class.
+ */
+public class LoadGeneratorTests {
+
+    private List<Product> catalog;
+    private SessionEngine engine;
+
+    /**
+     * Creating an engine over a machine with two well-stocked products and plenty of change, recording latencies.
+     */
+    @Before
+    public void setup() {
+        catalog = new ArrayList<>();
+        catalog.add(new Product(0, "Water", 2.50, 1_000_000, Category.DRINK));
+        catalog.add(new Product(1, "Mars", 1, 1_000_000, Category.CHOCOLATE));
+
+        VendingMachine vm = new VendingMachine(catalog);
+        for (Denomination d : Denomination.values()) {
+            // enough change that no payment is refused
+            vm.getCashBox().deposit(d, 1_000_000);
+        }
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        engine = new SessionEngine(vm, adminSystem);
+    }
+
+    @After
+    public void teardown() {
+        engine.close();
+    }
+
+    /**
+     * Testing if the same seed generates the same sessions.
+     * We expect identical scripts from two generators with seed 42.
+     * Test passes because all choices come from a Random seeded in the constructor.
+     */
+    @Test
+    public void script_repeatableTest() {
+
+        LoadGenerator first = new LoadGenerator(catalog, 42);
+        LoadGenerator second = new LoadGenerator(catalog, 42);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.script(), second.script());
+        }
+
+    }
+
+    /**
+     * Testing if every generated session ends in exactly one purchase, cancellation or timeout.
+     * We expect the three outcomes to add up to the number of sessions, with purchases the most common.
+     * Test passes because scripts always pay enough to cover their grand total, or end with CANCEL or a timeout.
+     */
+    @Test
+    public void run_outcomesTest() throws InterruptedException {
+
+        LoadGenerator generator = new LoadGenerator(catalog, 1);
+        LatencyHistogram sessionLatency = new LatencyHistogram();
+
+        generator.run(engine, 5_000, 0, 100, sessionLatency);
+
+        assertEquals(5_000, engine.getCompleted() + engine.getCancelled() + engine.getTimedOut());
+        assertTrue(engine.getCompleted() > engine.getCancelled() + engine.getTimedOut());
+        assertEquals(5_000, sessionLatency.getCount());
+
+    }
+
+    /**
+     * Testing if the engine records latency for each stage that received input.
+     * We expect selection, quantity and payment latencies to be recorded.
+     * Test passes because each session times its handled lines, in the machine's metrics, under the stage it was at.
+     */
+    @Test
+    public void run_stageLatenciesTest() throws InterruptedException {
+
+        new LoadGenerator(catalog, 1).run(engine, 1_000, 0, 100, new LatencyHistogram());
+
+        for (SessionState state : List.of(SessionState.SELECTING, SessionState.QUANTITY, SessionState.PAYING)) {
+            assertNotNull(engine.getLatency(state));
+            assertTrue(engine.getLatency(state).getCount() > 0);
+        }
+
+    }
+
+}
@@ -1,5 +1,8 @@
 
 import exceptions.*;
+import money.CashBox;
+import money.Denomination;
+import money.Money;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -11,6 +14,8 @@ import product.Product;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -92,6 +97,23 @@ public class MainTests {
 
     }
 
+    /**
+     * Testing if select() accepts the start of a name or a typo when it picks out one product, and suggests the
+     * candidates when it does not.
+     * We expect "Sneakers" for "snickers" and "Sour Worms" for "sour worm", and suggestions for "s".
+     * Test passes because select() falls back to the machine's product search when there is no exact match.
+     */
+    @Test
+    public void select_searchTest() {
+
+        assertEquals("Sneakers", instance.select("snickers").getName());
+        assertEquals("Sour Worms", instance.select("sour worm").getName());
+        assertNull(instance.select("s"));
+        assertTrue(systemOut.getLog().contains("\nInvalid selection.\nDid you mean: Sweet Chillies, Sour Worms, " +
+                "Soft Drink, Sneakers?\n"));
+
+    }
+
     /**
      * Testing if select() returns null, if the product is out of stock.
      * We expect a null returned and "Original is out of stock." message displayed.
@@ -127,7 +149,7 @@ public class MainTests {
     public void payment_validCorrectTest() {
 
         try {
-            assertTrue(instance.payment(5, "5.0"));
+            assertTrue(instance.payment(Money.of(5), "5.0"));
         } catch (CancellationException e) {
             fail();
         }
@@ -144,7 +166,7 @@ public class MainTests {
     public void payment_validMoreTest() {
 
         try {
-            assertTrue(instance.payment(4, "5.0"));
+            assertTrue(instance.payment(Money.of(4), "5.0"));
         } catch (CancellationException e) {
             fail();
         }
@@ -161,11 +183,37 @@ public class MainTests {
     public void payment_invalidLowerTest() {
 
         try {
-            assertFalse(instance.payment(4, "2"));
+            assertFalse(instance.payment(Money.of(4), "2"));
+        } catch (CancellationException e) {
+            fail();
+        }
+
+    }
+
+    /**
+     * Testing if payment() refuses a coin the machine cannot give change for, provided an empty cash box.
+     * We expect the $5 note refused and returned, then two $2 coins accepted as exact payment.
+     * Test passes because the cash box cannot make $1.00 from nothing, and exact payment needs no change.
+     */
+    @Test
+    public void payment_noChangeTest() {
+
+        VendingMachine vm = new VendingMachine();
+        vm.setCashBox(new CashBox());
+        instance = new Main(vm, null);
+
+        try {
+            assertFalse(instance.payment(Money.of(4), "5"));
+            assertTrue(systemOut.getLog().contains("Sorry, the machine cannot give $1.00 in change. Your $5.00 has been returned."));
+            assertFalse(instance.payment(Money.of(4), "2"));
+            assertTrue(instance.payment(Money.of(4), "2"));
         } catch (CancellationException e) {
             fail();
         }
 
+        assertEquals(2, vm.getCashBox().getCount(Denomination.TWO_DOLLARS));
+        assertEquals(0, vm.getCashBox().getCount(Denomination.FIVE_DOLLARS));
+
     }
 
     /**
@@ -178,7 +226,7 @@ public class MainTests {
     public void payment_invalidCoinTest() {
 
         try {
-            assertFalse(instance.payment(3, "3"));
+            assertFalse(instance.payment(Money.of(3), "3"));
         } catch (CancellationException e) {
             fail();
         }
@@ -195,7 +243,7 @@ public class MainTests {
     public void payment_invalidNotDoubleTest() {
 
         try {
-            assertFalse(instance.payment(4, "i have no money"));
+            assertFalse(instance.payment(Money.of(4), "i have no money"));
         } catch (CancellationException e) {
             fail();
         }
@@ -212,7 +260,7 @@ public class MainTests {
     public void payment_invalidNotDoubleMultipleTest() {
 
         try {
-            assertFalse(instance.payment(4, "give me the snacks"));
+            assertFalse(instance.payment(Money.of(4), "give me the snacks"));
         } catch (CancellationException e) {
             fail();
         }
@@ -228,7 +276,7 @@ public class MainTests {
     @Test (expected = CancellationException.class)
     public void payment_cancelTest() throws CancellationException {
 
-            assertFalse(instance.payment(4, "cancel"));
+            assertFalse(instance.payment(Money.of(4), "cancel"));
 
     }
 
@@ -335,7 +383,7 @@ public class MainTests {
         String correctOut = "\nPayment successful.\nPlease don't forget to take your change: $2.00\n";
 
         try {
-            instance.payment(8, "10");
+            instance.payment(Money.of(8), "10");
         } catch (CancellationException e) {
             fail();
         }
@@ -356,7 +404,7 @@ public class MainTests {
         String correctOut = "\nPayment successful.\n";
 
         try {
-            instance.payment(2, "2");
+            instance.payment(Money.of(2), "2");
         } catch (CancellationException e) {
             fail();
         }
@@ -379,6 +427,8 @@ public class MainTests {
         String correctOut =
                 "\n[product id] - Select a product.\n" +
                         "[product name] - Select a product.\n" +
+                        "CATEGORY [category] - List the products in a category.\n" +
+                        "REMOVE [product] - Remove a product from your selections.\n" +
                         "HELP - Display this help dialog.\n";
 
         try {
@@ -390,6 +440,33 @@ public class MainTests {
 
     }
 
+    /**
+     * Testing if the CATEGORY command lists one category, ignoring case, and rejects unknown categories.
+     * We expect the four chips products, then an unknown-category message.
+     * Test passes because CATEGORY looks the name up with Category.forName() and prints that category's listing.
+     */
+    @Test
+    public void handleInput_categoryTest() {
+
+        String correctOut =
+                "\nAvailable selections in CHIPS:\n" +
+                        "[ID 0] Original - $5.00 (2 item(s) in stock)\n" +
+                        "[ID 1] Chicken - $3.50 (10 item(s) in stock)\n" +
+                        "[ID 2] BBQ - $3.50 (10 item(s) in stock)\n" +
+                        "[ID 3] Sweet Chillies - $3.50 (10 item(s) in stock)\n" +
+                        "\n" +
+                        "\nUnknown category \"soup\". Categories are [CHIPS, CHOCOLATE, DRINK, LOLLIES].\n";
+
+        try {
+            instance.handleInput("category chips");
+            instance.handleInput("CATEGORY soup");
+        } catch (TimeoutException | CancellationException ignored) {
+        }
+
+        assertEquals(correctOut, normalize(systemOut.getLog()));
+
+    }
+
     /**
      * Testing if handleInput() prints the correct message when given a multi-word input.
      * We expect a String output "\n[product id] - Select a product.\nHELP - Display this help dialog."
@@ -478,8 +555,8 @@ public class MainTests {
      * <p>
      * Test passes because the internal method awaitInput() will throw a TimeoutException if a certain
      * number of seconds elapses after being called, and no input is provided by the user. As we first
-     * provide input to the program, we move to the quantity stage. Then, we provide input to move to the
-     * payment stage. However, as no input is provided once the payment stage is reached, the awaitInput
+     * provide input to the program, we move to the quantity stage. Then, we provide a quantity and END to move
+     * to the payment stage. However, as no input is provided once the payment stage is reached, the awaitInput
      * method will time out.
      * <p>
      * In this test, timeout is set to 1 second to ensure testing the feature does not have a significant impact
@@ -489,9 +566,11 @@ public class MainTests {
     public void handleInput_timeoutAtPaymentTest() {
 
         Main.setTimeout(1);
-        supplyInput("ORIGINAL", "1");
+        supplyInput("ORIGINAL", "1", "END");
 
         try {
+            // select, then proceed to payment
+            instance.run();
             instance.run();
             fail("TimeoutException not thrown.");
         } catch (TimeoutException e) {
@@ -567,6 +646,51 @@ public class MainTests {
 
     }
 
+    /**
+     * Testing if a million back-to-back sessions can be served without growing the stack.
+     * We expect every session to end and the stack depth at each prompt to stay the same.
+     * <p>
+     * Test passes because serve() drives every session from one flat loop: a completed purchase, a cancellation
+     * and a timeout all return the session to IDLE instead of re-entering start().
+     */
+    @Test
+    @org.junit.experimental.categories.Category(SlowTests.class)
+    public void serve_constantStackDepthTest() {
+
+        // purchase, cancel after a selection, time out
+        String[] script = {"FILL 11 admin", "11", "1", "END", "1", "0", "1", "CANCEL", null};
+        long[] depths = new long[2];
+
+        InputReader input = new InputReader(new ByteArrayInputStream(new byte[0])) {
+            private long prompts;
+
+            @Override
+            public String poll(long timeoutSeconds) {
+                // sample at the first prompt of a script pass, which is always reached the same way
+                if (prompts % (script.length * 10_000L) == 0) {
+                    int depth = new Throwable().getStackTrace().length;
+                    depths[0] = depths[0] == 0 ? depth : Math.min(depths[0], depth);
+                    depths[1] = Math.max(depths[1], depth);
+                }
+                return script[(int) (prompts++ % script.length)];
+            }
+        };
+
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        try {
+            Main main = new Main(new VendingMachine(), input);
+            main.serve(1_000_000);
+            assertEquals(SessionState.IDLE, main.getState());
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(depths[0], depths[1]);
+
+    }
+
     /**
      * Removes carriage return characters (\r) from a String.
      * Used to remove unwanted invisible characters when testing console output.
@@ -0,0 +1,195 @@
+import exceptions.CancellationException;
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Metrics class.
+ */
+public class MetricsTests {
+
+    private static Session session(VendingMachine vm) {
+
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        return new Session(vm, adminSystem, new PrintStream(new ByteArrayOutputStream()));
+
+    }
+
+    /**
+     * Testing if a completed purchase is counted with its units and revenue.
+     * We expect one session started and completed, 3 units of water sold, and $7.50 taken.
+     * Test passes because Session counts the session and VendingMachine.commit() counts the sale.
+     */
+    @Test
+    public void sold_purchaseTest() throws CancellationException {
+
+        VendingMachine vm = new VendingMachine();
+        Session session = session(vm);
+
+        session.begin();
+        session.handle("water");
+        session.handle("3");
+        session.handle("END");
+        session.handle("10");
+
+        Metrics metrics = vm.getMetrics();
+        assertEquals(1, metrics.getSessionsStarted());
+        assertEquals(1, metrics.getSessionsCompleted());
+        assertEquals(3, metrics.getUnitsSold());
+        assertEquals(750, metrics.getRevenueCents());
+        assertEquals(Money.of(7.5).toString(), metrics.getRevenue());
+        assertEquals(Long.valueOf(3), metrics.getUnitsSoldByProduct().get("[ID 8] Water"));
+        assertEquals(1, metrics.getLatency(SessionState.QUANTITY).getCount());
+        assertEquals(1, metrics.getLatency(SessionState.PAYING).getCount());
+
+    }
+
+    /**
+     * Testing if cancelled and timed out sessions are counted apart from purchases.
+     * We expect one cancellation, one timeout, two sessions started, and nothing sold.
+     * Test passes because Session.cancel() and Session.timeout() each count their own outcome.
+     */
+    @Test
+    public void sessionCancelledTest() {
+
+        VendingMachine vm = new VendingMachine();
+        Session session = session(vm);
+
+        session.begin();
+        try {
+            session.handle("CANCEL");
+            fail();
+        } catch (CancellationException e) {
+            session.cancel();
+        }
+
+        session.begin();
+        session.timeout();
+
+        Metrics metrics = vm.getMetrics();
+        assertEquals(2, metrics.getSessionsStarted());
+        assertEquals(1, metrics.getSessionsCancelled());
+        assertEquals(1, metrics.getSessionsTimedOut());
+        assertEquals(0, metrics.getSessionsCompleted());
+        assertEquals(0, metrics.getUnitsSold());
+        assertEquals(1, metrics.getLatency(SessionState.SELECTING).getCount());
+
+    }
+
+    /**
+     * Testing if sessions on many threads are all counted.
+     * We expect 8,000 sessions completed and 8,000 units of each of two products sold.
+     * Test passes because every counter is a LongAdder, so no increment is lost.
+     */
+    @Test
+    public void sold_concurrentTest() throws InterruptedException {
+
+        VendingMachine vm = new VendingMachine();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    vm.getMetrics().sessionCompleted();
+                    vm.getMetrics().sold(vm.getProduct("water"), 1, 250);
+                    vm.getMetrics().sold(vm.getProduct("juice"), 1, 350);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Long> units = vm.getMetrics().getUnitsSoldByProduct();
+        assertEquals(8_000, vm.getMetrics().getSessionsCompleted());
+        assertEquals(Long.valueOf(8_000), units.get("[ID 8] Water"));
+        assertEquals(Long.valueOf(8_000), units.get("[ID 10] Juice"));
+        assertEquals(8_000 * 600, vm.getMetrics().getRevenueCents());
+
+    }
+
+    /**
+     * Testing if the metrics can be read over JMX.
+     * We expect the machine's counters and the per-stage latencies to be registered attributes, and a second
+     * registration to replace the first.
+     * Test passes because Metrics is an MXBean, so its attributes map to open types any JMX client can read.
+     */
+    @Test
+    public void registerTest() throws JMException, CancellationException {
+
+        VendingMachine vm = new VendingMachine();
+        vm.getMetrics().register();
+        vm = new VendingMachine();
+        vm.getMetrics().register();
+
+        Session session = session(vm);
+        session.begin();
+        session.handle("0");
+        session.handle("1");
+        session.handle("END");
+        session.handle("5");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName machine = new ObjectName("vending:type=Machine");
+        assertEquals(1L, server.getAttribute(machine, "SessionsCompleted"));
+        assertEquals(500L, server.getAttribute(machine, "RevenueCents"));
+
+        TabularData units = (TabularData) server.getAttribute(machine, "UnitsSoldByProduct");
+        CompositeData row = units.get(new Object[]{"[ID 0] Original"});
+        assertEquals(1L, row.get("value"));
+
+        ObjectName paying = new ObjectName("vending:type=Latency,phase=PAYING");
+        assertEquals(1L, server.getAttribute(paying, "Count"));
+        assertTrue((Double) server.getAttribute(paying, "P99Micros") > 0);
+
+    }
+
+    /**
+     * Testing if stock events watched on the bus raise alerts and list the products short of stock.
+     * We expect two alerts, crisps listed with 0 left once sold out, and water no longer listed once restocked.
+     * Test passes because the metrics subscribe to the bus, count low stock and sold out events, and drop a product
+     * from the list when it is restocked.
+     */
+    @Test
+    public void watch_stockEventsTest() throws InterruptedException {
+
+        Metrics metrics = new VendingMachine().getMetrics();
+        StockEventBus bus = new StockEventBus();
+        Product water = new Product(8, "Water", 2.5, 10, Category.DRINK);
+        Product crisps = new Product(1, "Crisps", 3, 10, Category.CHIPS);
+
+        StockEventBus.Subscription subscription = metrics.watch(bus);
+        bus.publish(StockEvent.Type.LOW_STOCK, water, 2);
+        bus.publish(StockEvent.Type.SOLD_OUT, crisps, 0);
+        bus.publish(StockEvent.Type.PRICE_CHANGED, crisps, 0);
+        bus.publish(StockEvent.Type.RESTOCKED, water, 10);
+
+        // the subscriber is past the restock once it has read all four events
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (subscription.getPosition() < 4) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        subscription.close();
+
+        assertEquals(2, metrics.getStockAlerts());
+        assertEquals(Map.of("[ID 1] Crisps", 0), metrics.getShortOfStock());
+
+    }
+
+}
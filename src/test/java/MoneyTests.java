@@ -0,0 +1,102 @@
+import money.Denomination;
+import money.Money;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Money and Denomination classes.
+ */
+public class MoneyTests {
+
+    /**
+     * Testing if parse() reads dollar amounts exactly.
+     * We expect "0.1", "5.0", "10" and "2.50" to become 10, 500, 1000 and 250 cents.
+     * Test passes because parse() reads digits straight into cents instead of going through a double.
+     */
+    @Test
+    public void parse_validTest() {
+
+        assertEquals(10, Money.parse("0.1").cents());
+        assertEquals(500, Money.parse("5.0").cents());
+        assertEquals(1000, Money.parse("10").cents());
+        assertEquals(250, Money.parse("2.50").cents());
+        assertEquals(20, Money.parse(".2").cents());
+        assertEquals(-100, Money.parse("-1").cents());
+
+    }
+
+    /**
+     * Testing if parse() rejects text that is not a whole number of cents.
+     * We expect null for words, fractions of a cent, lone symbols and amounts too large to hold in cents.
+     * Test passes because parse() only accepts digits, one decimal point and an optional sign, and checks the dollars
+     * fit before converting them to cents.
+     */
+    @Test
+    public void parse_invalidTest() {
+
+        assertNull(Money.parse("cancel"));
+        assertNull(Money.parse("0.105"));
+        assertNull(Money.parse("1.2.3"));
+        assertNull(Money.parse("."));
+        assertNull(Money.parse(""));
+        assertNull(Money.parse("-"));
+        assertEquals(Money.INVALID, Money.parseCents("5 dollars"));
+        assertEquals(Money.INVALID, Money.parseCents("92233720368547759"));
+        assertEquals(Long.MAX_VALUE - 8, Money.parseCents("92233720368547757.99"));
+
+    }
+
+    /**
+     * Testing if sums of ten-cent coins are exact.
+     * We expect ten lots of $0.10 to equal $1.00 exactly.
+     * Test passes because Money adds whole cents.
+     */
+    @Test
+    public void plus_exactTest() {
+
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.parse("0.1"));
+        }
+
+        assertEquals(Money.of(1), total);
+        assertFalse(total.isLessThan(Money.of(1)));
+
+    }
+
+    /**
+     * Testing if toString() formats amounts the way the machine displays them.
+     * We expect "$3.50", "$0.05" and "$1200.00".
+     * Test passes because toString() always prints two decimal places.
+     */
+    @Test
+    public void toStringTest() {
+
+        assertEquals("$3.50", Money.of(3.5).toString());
+        assertEquals("$0.05", Money.ofCents(5).toString());
+        assertEquals("$1200.00", Money.of(1200).toString());
+
+    }
+
+    /**
+     * Testing if forCents() recognises exactly the accepted coins and notes.
+     * We expect each accepted value to map to its Denomination and everything else to map to null.
+     * Test passes because forCents() reads a table indexed by value.
+     */
+    @Test
+    public void denomination_forCentsTest() {
+
+        for (Denomination d : Denomination.values()) {
+            assertSame(d, Denomination.forCents(d.cents()));
+        }
+
+        assertNull(Denomination.forCents(0));
+        assertNull(Denomination.forCents(30));
+        assertNull(Denomination.forCents(15));
+        assertNull(Denomination.forCents(5000));
+        assertNull(Denomination.forCents(-100));
+
+    }
+
+}
@@ -0,0 +1,208 @@
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+import product.ProductIndex;
+import product.ProductSearch;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the ProductIndex class.
+ */
+public class ProductIndexTests {
+
+    private ProductIndex index;
+
+    /**
+     * Creating an index containing "Original" with id 0 and "Juice" with id 10.
+     */
+    @Before
+    public void setup() {
+        index = new ProductIndex();
+        index.add(new Product(0, "Original", 5, 2, Category.CHIPS));
+        index.add(new Product(10, "Juice", 3.50, 10, Category.DRINK));
+    }
+
+    /**
+     * Testing if lookup() resolves integer input by ID.
+     * We expect "Juice" for "10", "Original" for a signed zero, and null for unused IDs.
+     * Test passes because integer input is only ever resolved against the ID table.
+     */
+    @Test
+    public void lookup_idTest() {
+
+        assertEquals("Juice", index.lookup("10").getName());
+        assertEquals("Juice", index.lookup("+10").getName());
+        assertEquals("Original", index.lookup("-0").getName());
+        assertEquals("Original", index.lookup("+00").getName());
+        assertNull(index.lookup("5"));
+        assertNull(index.lookup("-1"));
+        assertNull(index.lookup("99999999999"));
+
+    }
+
+    /**
+     * Testing if lookup() resolves non-integer input by name, ignoring case.
+     * We expect "Original" for any casing of its name and null for near misses.
+     * Test passes because names are case-folded before hashing.
+     */
+    @Test
+    public void lookup_nameTest() {
+
+        assertEquals("Original", index.lookup("oRiGiNaL").getName());
+        assertNull(index.lookup("original "));
+        assertNull(index.lookup("0.0"));
+        assertNull(index.lookup(""));
+        assertNull(index.lookup("-"));
+
+    }
+
+    /**
+     * Testing if remove() keeps both indexes in sync.
+     * We expect the Product to be unreachable by ID and by name after removal.
+     * Test passes because remove() clears the ID slot and the name entry.
+     */
+    @Test
+    public void removeTest() {
+
+        assertEquals("Juice", index.remove(10).getName());
+        assertNull(index.lookup("10"));
+        assertNull(index.lookup("juice"));
+        assertNull(index.remove(10));
+        assertEquals(1, index.size());
+
+    }
+
+    /**
+     * Testing if a name shared by two Products resolves to the lower ID, and to the other once one is removed.
+     * We expect the Product added later with a lower ID to win, and the survivor to be found after each removal.
+     * Test passes because every Product is kept under its name in ID order, and remove() only drops the one removed.
+     */
+    @Test
+    public void remove_sharedNameTest() {
+
+        index.add(new Product(7, "juice", 2, 10, Category.DRINK));
+        assertEquals(7, index.lookup("Juice").getId());
+
+        index.remove(7);
+        assertEquals(10, index.lookup("Juice").getId());
+
+        index.add(new Product(7, "juice", 2, 10, Category.DRINK));
+        index.remove(10);
+        assertEquals(7, index.lookup("Juice").getId());
+
+        index.remove(7);
+        assertNull(index.lookup("juice"));
+
+    }
+
+    /**
+     * Testing if add() replaces the Product with the same ID, including its name entry.
+     * We expect the old name to be unreachable and the new one to resolve.
+     * Test passes because add() removes any existing Product with the ID first.
+     */
+    @Test
+    public void add_replaceTest() {
+
+        index.add(new Product(10, "Orange Juice", 4, 10, Category.DRINK));
+
+        assertNull(index.lookup("juice"));
+        assertEquals("Orange Juice", index.lookup("10").getName());
+        assertEquals(2, index.size());
+
+    }
+
+    /**
+     * Testing if lookups work across a large catalog, including IDs outside the dense table.
+     * We expect every Product to be found by ID and by name.
+     * Test passes because the ID table grows on demand and very large IDs go to the overflow map.
+     */
+    @Test
+    public void lookup_largeCatalogTest() {
+
+        for (int id = 0; id < 100_000; id++) {
+            index.add(new Product(id, "Product " + id, 1, 10, Category.DRINK));
+        }
+        index.add(new Product(Integer.MAX_VALUE, "Last", 1, 10, Category.DRINK));
+
+        assertEquals(100_001, index.size());
+        assertEquals("Product 99999", index.lookup("99999").getName());
+        assertEquals(12345, index.lookup("PRODUCT 12345").getId());
+        assertEquals("Last", index.lookup(String.valueOf(Integer.MAX_VALUE)).getName());
+
+    }
+
+    /**
+     * Testing if search() resolves input that starts a word of only one name.
+     * We expect "sour worm", "worms" and "jelly" each to find one product, "j" two, and an ID its product.
+     * Test passes because every name is indexed from the start of each word, and the walk stops after the prefix.
+     */
+    @Test
+    public void search_prefixTest() {
+
+        Product worms = new Product(4, "Sour Worms", 3, 10, Category.LOLLIES);
+        Product jellybeans = new Product(5, "Jellybeans", 3, 10, Category.LOLLIES);
+        index.add(worms);
+        index.add(jellybeans);
+
+        assertEquals(List.of(worms), index.search("sour worm"));
+        assertEquals(List.of(worms), index.search("WORMS"));
+        assertEquals(List.of(jellybeans), index.search(" jelly "));
+        assertEquals("Juice", index.search("10").get(0).getName());
+        assertEquals(List.of(jellybeans, index.lookup("juice")), index.search("j"));
+        assertTrue(index.search("xyz").isEmpty());
+        assertTrue(index.search("").isEmpty());
+
+    }
+
+    /**
+     * Testing if search() finds names with a typo or two, and offers every equally close name.
+     * We expect "snickers" to find "Sneakers", "orignal" to find "Original", and "bbx" both BBQ and BBZ.
+     * Test passes because the names nearest the input, within the edits allowed for its length, are all returned.
+     */
+    @Test
+    public void search_typoTest() {
+
+        Product sneakers = new Product(14, "Sneakers", 1, 10, Category.CHOCOLATE);
+        Product bbq = new Product(2, "BBQ", 3.5, 10, Category.CHIPS);
+        Product bbz = new Product(3, "BBZ", 3.5, 10, Category.CHIPS);
+        index.add(sneakers);
+        index.add(bbq);
+        index.add(bbz);
+
+        assertEquals(List.of(sneakers), index.search("snickers"));
+        assertEquals(List.of(index.lookup("original")), index.search("orignal"));
+        assertEquals(List.of(bbq, bbz), index.search("bbx"));
+        assertTrue(index.search("sn1ckers1").isEmpty());
+        assertEquals(List.of(index.lookup("juice")), index.search("ju"));
+
+        index.remove(14);
+        assertTrue(index.search("snickers").isEmpty());
+        index.add(new Product(15, "Snickers", 1, 10, Category.CHOCOLATE));
+        assertEquals(15, index.search("snickers").get(0).getId());
+
+    }
+
+    /**
+     * Testing if search() stays correct over a large catalog.
+     * We expect a prefix shared by many names to give the most suggestions, and a typo to find its one product.
+     * Test passes because prefix walks stop once they have too many to suggest, and typos only read names sharing
+     * rare runs of letters.
+     */
+    @Test
+    public void search_largeCatalogTest() {
+
+        for (int id = 100; id < 100_100; id++) {
+            index.add(new Product(id, "Product " + id, 1, 10, Category.DRINK));
+        }
+
+        assertEquals(ProductSearch.MAX_SUGGESTIONS, index.search("product").size());
+        assertEquals(List.of(index.lookup("product 12345")), index.search("12345"));
+        assertEquals(List.of(index.lookup("product 12345")), index.search("prodcut 12345"));
+
+    }
+
+}
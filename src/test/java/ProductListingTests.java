@@ -0,0 +1,132 @@
+import money.Money;
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the ProductListing class, through VendingMachine.displayProducts().
+ */
+public class ProductListingTests {
+
+    /**
+     * A Product that counts how often its row is rendered.
+     */
+    private static class CountingProduct extends Product {
+        private int renders;
+
+        CountingProduct(int id, String name, int quantity) {
+            super(id, name, 1, quantity, Category.DRINK);
+        }
+
+        @Override
+        public String getName() {
+            renders++;
+            return super.getName();
+        }
+    }
+
+    private List<CountingProduct> products;
+    private VendingMachine vm;
+
+    /**
+     * Creating a machine with three $1.00 drinks, 5 of each in stock.
+     */
+    @Before
+    public void setup() {
+        products = new ArrayList<>();
+        products.add(new CountingProduct(0, "Water", 5));
+        products.add(new CountingProduct(1, "Juice", 5));
+        products.add(new CountingProduct(2, "Cola", 5));
+        vm = new VendingMachine(new ArrayList<>(products));
+
+        // indexing reads the names too; only count renders from here on
+        for (CountingProduct p : products) {
+            p.renders = 0;
+        }
+    }
+
+    /**
+     * Testing if an unchanged listing is served from the cache.
+     * We expect the same String instance and no rows rendered a second time.
+     * Test passes because the stock version has not moved between the two calls.
+     */
+    @Test
+    public void render_unchangedTest() {
+
+        String first = vm.displayProducts(false);
+        String second = vm.displayProducts(false);
+
+        assertSame(first, second);
+        for (CountingProduct p : products) {
+            assertEquals(1, p.renders);
+        }
+
+    }
+
+    /**
+     * Testing if a quantity change re-renders only the changed row.
+     * We expect Juice to be rendered twice and the others once, and the new quantity to be shown.
+     * Test passes because a quantity change marks just that product's row dirty and moves the stock version.
+     */
+    @Test
+    public void render_changedRowTest() {
+
+        vm.displayProducts(false);
+        long version = vm.getStockVersion();
+
+        vm.getProduct("juice").reduceQuantity(2);
+
+        assertNotEquals(version, vm.getStockVersion());
+        assertTrue(vm.displayProducts(false).contains("[ID 1] Juice - $1.00 (3 item(s) in stock)\n"));
+        assertEquals(1, products.get(0).renders);
+        assertEquals(2, products.get(1).renders);
+        assertEquals(1, products.get(2).renders);
+
+    }
+
+    /**
+     * Testing if price changes and sold-out products are reflected in both listings.
+     * We expect the new price in both, and Cola only in the admin listing once it is sold out.
+     * Test passes because setPrice() and quantity changes both notify the machine.
+     */
+    @Test
+    public void render_priceAndSoldOutTest() {
+
+        vm.displayProducts(false);
+        vm.displayProducts(true);
+
+        vm.getProduct("water").setPrice(Money.of(1.5));
+        vm.getProduct("cola").reduceQuantity(5);
+
+        String customer = vm.displayProducts(false);
+        String admin = vm.displayProducts(true);
+
+        assertTrue(customer.contains("[ID 0] Water - $1.50 (5 item(s) in stock)\n"));
+        assertFalse(customer.contains("Cola"));
+        assertTrue(admin.contains("[ID 0] Water - $1.50 (5 item(s) in stock)\n"));
+        assertTrue(admin.contains("[ID 2] Cola - $1.00 (0 item(s) in stock)\n"));
+
+    }
+
+    /**
+     * Testing if removed products leave the listing.
+     * We expect Juice not to be listed after removal.
+     * Test passes because removing a product moves the stock version and drops its cached row.
+     */
+    @Test
+    public void render_removedProductTest() {
+
+        vm.displayProducts(true);
+        vm.removeProduct(1);
+
+        assertFalse(vm.displayProducts(true).contains("Juice"));
+
+    }
+
+}
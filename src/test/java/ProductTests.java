@@ -1,9 +1,15 @@
 import org.junit.Before;
 import org.junit.Test;
+import money.Money;
 import product.Category;
 import product.Product;
 
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  *  Tests for the Product class.
@@ -31,12 +37,12 @@ public class ProductTests {
     }
     /**
      * Testing if getPrice() returns product's price.
-     * We expect a double 4.0.
+     * We expect $4.00.
      * Test passes because getPrice() accesses the price field directly.
      */
     @Test
     public void getPriceTest() {
-        assertEquals(4.0, product.getPrice(), 0);
+        assertEquals(Money.of(4.0), product.getPrice());
     }
 
     /**
@@ -56,8 +62,8 @@ public class ProductTests {
      */
     @Test
     public void setPriceTest() {
-        product.setPrice(4.5);
-        assertEquals(4.5, product.getPrice(), 0);
+        product.setPrice(Money.of(4.5));
+        assertEquals(Money.of(4.5), product.getPrice());
     }
 
     /**
@@ -109,4 +115,137 @@ public class ProductTests {
         assertEquals(2, product.getQuantity());
 
     }
+
+    /**
+     * Testing if tryReserve() refuses to reserve more than is available.
+     * We expect the first reservation of 1 to succeed and the second to fail.
+     * Test passes because tryReserve() checks and moves the stock in a single compare-and-set.
+     */
+    @Test
+    public void tryReserveTest() {
+
+        assertTrue(product.tryReserve(1));
+        assertFalse(product.tryReserve(1));
+        assertEquals(0, product.getQuantity());
+        assertEquals(1, product.getReserved());
+
+    }
+
+    /**
+     * Testing if release() returns reserved units and commit() removes them.
+     * We expect quantity 10 after releasing 2 of 5 reserved and committing 3.
+     * Test passes because release() moves units back to available stock and commit() drops them from the reservation.
+     */
+    @Test
+    public void releaseCommitTest() {
+
+        product.increaseQuantity(9);
+        assertTrue(product.tryReserve(5));
+
+        product.release(2);
+        product.commit(3);
+
+        assertEquals(7, product.getQuantity());
+        assertEquals(0, product.getReserved());
+
+    }
+
+    /**
+     * Testing if restock() leaves room for reserved units.
+     * We expect 7 available units when 3 are reserved.
+     * Test passes because restock() fills available and reserved units together up to the default capacity of 10.
+     */
+    @Test
+    public void restock_withReservationsTest() {
+
+        product.increaseQuantity(9);
+        assertTrue(product.tryReserve(3));
+
+        product.restock();
+
+        assertEquals(7, product.getQuantity());
+        assertEquals(3, product.getReserved());
+
+    }
+
+    /**
+     * Testing if restock() fills to the product's own capacity, and the restock need follows the par level.
+     * We expect no need at or above par, a need of capacity minus stock below it, and 24 units after restocking.
+     * Test passes because getRestockNeed() compares units in the machine with the par level, and restock() fills to
+     * capacity.
+     */
+    @Test
+    public void restock_capacityAndParLevelTest() {
+
+        Product coil = new Product(2, "cans", Money.of(2), 10, 24, 8, Category.DRINK);
+        assertEquals(0, coil.getRestockNeed());
+
+        coil.reduceQuantity(3);
+        assertTrue(coil.tryReserve(2));
+        assertEquals(17, coil.getRestockNeed());
+
+        coil.restock();
+        assertEquals(22, coil.getQuantity());
+        assertEquals(0, coil.getRestockNeed());
+
+    }
+
+    /**
+     * Testing if a par level above capacity is rejected.
+     * We expect an IllegalArgumentException.
+     * Test passes because the constructor checks that 0 &lt;= par level &lt;= capacity.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_invalidParLevelTest() {
+        new Product(2, "cans", Money.of(2), 0, 5, 6, Category.DRINK);
+    }
+
+    /**
+     * Stress testing reservations from many threads at once.
+     * We expect stock never to go negative, and available, reserved and sold units to always add up to the starting
+     * stock.
+     * Test passes because every stock transition is one compare-and-set over both counts.
+     */
+    @Test
+    public void reservation_concurrentStressTest() throws InterruptedException {
+
+        int initial = 10_000;
+        Product contended = new Product(2, "Water", 2.5, initial, Category.DRINK);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    int quantity = 1 + random.nextInt(3);
+                    if (!contended.tryReserve(quantity)) {
+                        continue;
+                    }
+                    if (contended.getQuantity() < 0 || contended.getReserved() < 0) {
+                        violations.incrementAndGet();
+                    }
+                    if (random.nextInt(4) == 0) {
+                        contended.commit(quantity);
+                        sold.addAndGet(quantity);
+                    } else {
+                        contended.release(quantity);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, violations.get());
+        assertEquals(0, contended.getReserved());
+        assertTrue(sold.get() <= initial);
+        assertEquals(initial, contended.getQuantity() + sold.get());
+
+    }
+
 }
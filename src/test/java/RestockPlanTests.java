@@ -0,0 +1,85 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+import product.RestockPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  Tests for the RestockPlan class.
+ */
+public class RestockPlanTests {
+
+    /**
+     * Testing if the plan lists exactly the products below par, with the units to fill them.
+     * We expect Original (2 of 10) to need 8 units, and nothing else in the built-in catalog.
+     * Test passes because the built-in products have a par level of 5, half their capacity of 10.
+     */
+    @Test
+    public void of_builtInCatalogTest() {
+
+        RestockPlan plan = new VendingMachine().restockPlan();
+
+        assertEquals(1, plan.getProducts().size());
+        assertEquals("Original", plan.getProducts().get(0).getName());
+        assertEquals(8, plan.getUnits(0));
+        assertEquals(8, plan.getTotalUnits());
+        assertTrue(plan.toString().contains("[ID 0] Original - 8 unit(s) to fill to 10\nTotal: 8 unit(s)\n"));
+
+    }
+
+    /**
+     * Testing the plan over a large catalog with mixed capacities and par levels.
+     * We expect every third product to be below par, each needing capacity minus stock, and the right total.
+     * Test passes because the plan takes each product's need in a single pass.
+     */
+    @Test
+    public void of_largeCatalogTest() {
+
+        List<Product> products = new ArrayList<>();
+        long expected = 0;
+        for (int id = 0; id < 100_000; id++) {
+            int capacity = 10 + id % 20;
+            int stocked = id % 3 == 0 ? 1 : capacity;
+            products.add(new Product(id, "Product " + id, Money.of(1), stocked, capacity, 5, Category.CHIPS));
+            if (id % 3 == 0) {
+                expected += capacity - 1;
+            }
+        }
+
+        RestockPlan plan = new VendingMachine(products).restockPlan();
+
+        assertEquals(33_334, plan.getProducts().size());
+        assertEquals(expected, plan.getTotalUnits());
+        assertEquals(3, plan.getProducts().get(1).getId());
+        assertEquals(12, plan.getUnits(1));
+
+    }
+
+    /**
+     * Testing if a product one unit below capacity does not need restocking under the default par level.
+     * We expect no need at 9 of 10 or at 5 of 10, and a need of 6 units at 4 of 10.
+     * Test passes because the default par level is half the capacity, not the capacity itself.
+     */
+    @Test
+    public void getRestockNeed_defaultParLevelTest() {
+
+        Product water = new Product(8, "Water", Money.of(2.5), 9, Category.DRINK);
+        assertEquals(Product.DEFAULT_PAR_LEVEL, water.getParLevel());
+        assertEquals(0, water.getRestockNeed());
+
+        water.reduceQuantity(4);
+        assertEquals(0, water.getRestockNeed());
+
+        water.reduceQuantity(1);
+        assertEquals(6, water.getRestockNeed());
+        assertTrue(new VendingMachine(List.of(water)).restockPlan().getProducts().contains(water));
+
+    }
+
+}
@@ -0,0 +1,161 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the RestockScheduler class.
+ */
+public class RestockSchedulerTests {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private AtomicLong now = new AtomicLong(1_000 * HOUR);
+    private RestockScheduler scheduler = new RestockScheduler(now::get, HOUR);
+
+    private Product water = new Product(8, "Water", Money.of(2.5), 10, Category.DRINK);
+    private Product juice = new Product(10, "Juice", Money.of(3.5), 10, Category.DRINK);
+    private Product mars = new Product(13, "Mars", Money.of(1), 10, Category.CHOCOLATE);
+
+    /**
+     * Sells units of a product, taking them out of its stock first as a purchase would.
+     */
+    private void sell(Product product, int quantity) {
+
+        product.reduceQuantity(quantity);
+        scheduler.sold(product, quantity);
+
+    }
+
+    /**
+     * Testing if products are queued by how soon they run out, not by how few units they have.
+     * We expect juice, selling fast with more units, ahead of water, and mars, which has not sold, left out.
+     * Test passes because each product's projection is its units over its depletion rate.
+     */
+    @Test
+    public void sold_orderTest() throws InterruptedException {
+
+        sell(water, 4);
+        sell(juice, 1);
+        for (int i = 0; i < 3; i++) {
+            now.addAndGet(MINUTE);
+            sell(juice, 2);
+        }
+        scheduler.awaitUpdates();
+
+        assertEquals(List.of(juice, water), scheduler.getQueue());
+        assertTrue(scheduler.getMillisToEmpty(juice) < scheduler.getMillisToEmpty(water));
+        assertEquals(-1, scheduler.getMillisToEmpty(mars));
+
+    }
+
+    /**
+     * Testing if selling a product out moves it to the front of the queue, and restocking it moves it back.
+     * We expect water first once it is out, then behind juice once it is filled after two quiet hours.
+     * Test passes because every sale and restock recomputes the product's projection from its current units.
+     */
+    @Test
+    public void restocked_reorderTest() throws InterruptedException {
+
+        sell(water, 2);
+        sell(juice, 4);
+        scheduler.awaitUpdates();
+        assertEquals(List.of(juice, water), scheduler.getQueue());
+
+        sell(water, 8);
+        scheduler.awaitUpdates();
+        assertEquals(List.of(water, juice), scheduler.getQueue());
+        assertEquals(0, scheduler.getMillisToEmpty(water));
+        assertTrue(scheduler.toString().contains("[ID 8] Water - 0 unit(s), selling 10.0/hour, empty now\n"));
+
+        now.addAndGet(2 * HOUR);
+        water.restock();
+        scheduler.restocked(water);
+        scheduler.restocked(mars);
+        scheduler.awaitUpdates();
+        assertEquals(List.of(juice, water), scheduler.getQueue());
+        // 10 units an hour, decayed by e^-2 over two hours, empties 10 units in about 7.4 hours
+        long millis = scheduler.getMillisToEmpty(water);
+        assertTrue(millis > 7 * HOUR && millis < 8 * HOUR);
+
+        scheduler.removed(juice);
+        scheduler.awaitUpdates();
+        assertEquals(List.of(water), scheduler.getQueue());
+
+    }
+
+    /**
+     * Testing if old sales count for less than recent ones.
+     * We expect water's rate to fall from 6 to about 2.2 units an hour after an hour without selling.
+     * Test passes because each sale's weight decays exponentially with its age over the rate window.
+     */
+    @Test
+    public void sold_decayTest() throws InterruptedException {
+
+        sell(water, 6);
+        scheduler.awaitUpdates();
+        assertTrue(scheduler.toString().contains("[ID 8] Water - 4 unit(s), selling 6.0/hour, empty in 40m\n"));
+
+        now.addAndGet(HOUR);
+        assertTrue(scheduler.toString().contains("[ID 8] Water - 4 unit(s), selling 2.2/hour, due to run out now"));
+
+        sell(water, 1);
+        scheduler.awaitUpdates();
+        // 6 units decayed by e^-1, plus one unit: about 3.2 units an hour, so 3 units last about 56 minutes
+        long millis = scheduler.getMillisToEmpty(water);
+        assertTrue(millis > 55 * MINUTE && millis < 58 * MINUTE);
+
+    }
+
+    /**
+     * Testing if sales from many threads are all applied, off the customers' threads.
+     * We expect 10,000 products each to have sold, and the queue to hold every one in order of projected empty time.
+     * Test passes because a sale only queues an event, and the update thread applies them one at a time.
+     */
+    @Test
+    public void sold_concurrentTest() throws InterruptedException {
+
+        List<Product> products = new ArrayList<>();
+        for (int id = 0; id < 10_000; id++) {
+            products.add(new Product(id, "Product " + id, Money.of(1), 1_000, 1_000, 0, Category.CHIPS));
+        }
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int first = t;
+            threads[t] = new Thread(() -> {
+                for (int i = first; i < products.size(); i += threads.length) {
+                    Product p = products.get(i);
+                    for (int sale = 0; sale <= i % 10; sale++) {
+                        sell(p, 1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        scheduler.awaitUpdates();
+
+        List<Product> queue = scheduler.getQueue();
+        assertEquals(10_000, queue.size());
+        long previous = 0;
+        for (Product p : queue) {
+            long millis = scheduler.getMillisToEmpty(p);
+            assertTrue(millis >= previous);
+            previous = millis;
+        }
+        assertEquals(9, queue.get(0).getId() % 10);
+
+    }
+
+}
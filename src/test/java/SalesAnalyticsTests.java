@@ -0,0 +1,132 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the SalesAnalytics class.
+ */
+public class SalesAnalyticsTests {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private Product water = new Product(8, "Water", Money.of(2.5), 10, Category.DRINK);
+    private Product juice = new Product(10, "Juice", Money.of(3.5), 10, Category.DRINK);
+    private Product mars = new Product(13, "Mars", Money.of(1), 10, Category.CHOCOLATE);
+
+    /**
+     * Testing if each sale is added to its product, its category and the total.
+     * We expect drinks to total 5 units and $13.50, chocolate 1 unit and $1.00, and water 3 units.
+     * Test passes because record() adds every sale to each of its rollups.
+     */
+    @Test
+    public void record_rollupsTest() {
+
+        SalesAnalytics sales = new SalesAnalytics();
+        sales.record(water, 3, 750);
+        sales.record(juice, 2, 700);
+        sales.record(mars, 1, 100);
+
+        assertEquals(6, sales.getUnits());
+        assertEquals(1550, sales.getRevenueCents());
+        assertEquals(5, sales.getUnits(Category.DRINK));
+        assertEquals(1450, sales.getRevenueCents(Category.DRINK));
+        assertEquals(100, sales.getRevenueCents(Category.CHOCOLATE));
+        assertEquals(0, sales.getUnits(Category.CHIPS));
+        assertEquals(Long.valueOf(3), sales.getUnitsByProduct().get("[ID 8] Water"));
+
+    }
+
+    /**
+     * Testing if sales are put in the hour they happen, and hours older than a day are dropped.
+     * We expect separate totals for two hours, and the first hour gone once its slot is reused a day later.
+     * Test passes because each hour has its own slot, replaced when the same slot's hour comes round again.
+     */
+    @Test
+    public void record_hourlyTest() {
+
+        AtomicLong now = new AtomicLong(1_000 * HOUR + 5);
+        SalesAnalytics sales = new SalesAnalytics(now::get);
+
+        sales.record(water, 1, 250);
+        now.addAndGet(HOUR);
+        sales.record(juice, 1, 350);
+        sales.record(juice, 1, 350);
+
+        assertEquals(250, sales.getRevenueCentsInHour(1_000 * HOUR));
+        assertEquals(700, sales.getRevenueCentsInHour(1_001 * HOUR + 10));
+
+        now.set(1_024 * HOUR);
+        sales.record(mars, 1, 100);
+
+        assertEquals(0, sales.getRevenueCentsInHour(1_000 * HOUR));
+        assertEquals(100, sales.getRevenueCentsInHour(1_024 * HOUR));
+        assertEquals(700, sales.getRevenueCentsInHour(1_001 * HOUR));
+        assertEquals(1050, sales.getRevenueCents());
+
+    }
+
+    /**
+     * Testing if the report lists each product, category and hour with sales.
+     * We expect products in ID order, categories with sales in category order, the last day's hours, and the
+     * total.
+     * Test passes because report() reads the rollups and skips empty ones.
+     */
+    @Test
+    public void reportTest() {
+
+        AtomicLong now = new AtomicLong(1_000 * HOUR);
+        SalesAnalytics sales = new SalesAnalytics(now::get);
+        sales.record(mars, 1, 100);
+        sales.record(water, 2, 500);
+
+        String report = sales.report();
+
+        assertTrue(report.startsWith("Sales by product:\n" +
+                "[ID 8] Water - 2 unit(s), $5.00\n" +
+                "[ID 13] Mars - 1 unit(s), $1.00\n" +
+                "\nSales by category:\n" +
+                "CHOCOLATE - 1 unit(s), $1.00\n" +
+                "DRINK - 2 unit(s), $5.00\n" +
+                "\nSales by hour (last 24 hours):\n"));
+        assertTrue(report.endsWith(" - 3 unit(s), $6.00\n\nTotal - 3 unit(s), $6.00\n"));
+
+        now.addAndGet(24 * HOUR);
+        assertTrue(sales.report().contains("Sales by hour (last 24 hours):\n\nTotal - 3 unit(s), $6.00\n"));
+
+    }
+
+    /**
+     * Testing if the rollups stay exact after a million sales from several threads.
+     * We expect 1,000,000 units and $2,500,000.00 of water.
+     * Test passes because every total is a LongAdder, and the report reads totals rather than sales.
+     */
+    @Test
+    public void record_millionSalesTest() throws InterruptedException {
+
+        SalesAnalytics sales = new SalesAnalytics();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 250_000; i++) {
+                    sales.record(water, 1, 250);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1_000_000, sales.getUnits());
+        assertTrue(sales.report().contains("[ID 8] Water - 1000000 unit(s), $2500000.00\n"));
+
+    }
+
+}
@@ -0,0 +1,169 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  Tests for the SessionEngine class.
+ */
+public class SessionEngineTests {
+
+    private VendingMachine vm;
+    private SessionEngine engine;
+
+    /**
+     * Creating an engine over a machine holding 100,000 units of "Water" (id 0, $1.00).
+     */
+    @Before
+    public void setup() {
+        List<Product> products = new ArrayList<>();
+        products.add(new Product(0, "Water", 1, 100_000, Category.DRINK));
+        vm = new VendingMachine(products);
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+        engine = new SessionEngine(vm, adminSystem);
+    }
+
+    @After
+    public void teardown() {
+        engine.close();
+    }
+
+    /**
+     * Testing if thousands of concurrent sessions each keep their own cart and payment.
+     * We expect every purchase, cancellation and timeout to be counted, and stock to drop by exactly the units sold.
+     * Test passes because each Session owns its selections and paid amount, and only the stock is shared.
+     */
+    @Test
+    public void runAll_concurrentSessionsTest() throws InterruptedException {
+
+        List<List<String>> scripts = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            switch (i % 3) {
+                case 0:
+                    // two units, paid with two coins
+                    scripts.add(List.of("0", "2", "END", "1", "1"));
+                    break;
+                case 1:
+                    scripts.add(List.of("water", "1", "CANCEL"));
+                    break;
+                default:
+                    scripts.add(Arrays.asList("0", "3", null));
+                    break;
+            }
+        }
+
+        engine.runAll(scripts);
+
+        assertEquals(1_000, engine.getCompleted());
+        assertEquals(1_000, engine.getCancelled());
+        assertEquals(1_000, engine.getTimedOut());
+        assertEquals(100_000 - 2_000, vm.getProduct("0").getQuantity());
+
+    }
+
+    /**
+     * Testing if a script that ends part way through a transaction returns its cart's stock.
+     * We expect no units left reserved, and every unfinished session counted as cancelled.
+     * Test passes because the engine cancels any transaction still open when the script runs out.
+     */
+    @Test
+    public void runAll_unfinishedScriptTest() throws InterruptedException {
+
+        List<List<String>> scripts = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            scripts.add(i % 2 == 0 ? List.of("0", "3") : List.of("0", "2", "END", "1"));
+        }
+
+        engine.runAll(scripts);
+
+        assertEquals(0, engine.getCompleted());
+        assertEquals(1_000, engine.getCancelled());
+        assertEquals(0, vm.getProduct("0").getReserved());
+        assertEquals(100_000, vm.getProduct("0").getQuantity());
+
+    }
+
+    /**
+     * Testing if quitting part way through a transaction is counted as a cancellation, and admin commands stay quiet.
+     * We expect every quitting session counted as cancelled with its stock returned, and nothing written to
+     * System.out by the FILL commands.
+     * Test passes because the engine counts a QUIT that ends a transaction, and gives each session an admin system
+     * writing to the session's discarded output.
+     */
+    @Test
+    public void runAll_quitAndAdminTest() throws InterruptedException {
+
+        List<List<String>> scripts = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            scripts.add(i % 2 == 0 ? List.of("0", "2", "QUIT") : List.of("FILL 0 admin", "QUIT"));
+        }
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(console));
+        try {
+            engine.runAll(scripts);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(500, engine.getCancelled());
+        assertEquals(0, vm.getProduct("0").getReserved());
+        assertEquals("", console.toString());
+
+    }
+
+    /**
+     * Testing if a script can hold several back-to-back transactions.
+     * We expect three purchases from one script.
+     * Test passes because the engine greets a new customer each time the session returns to IDLE.
+     */
+    @Test
+    public void runAll_backToBackTest() throws InterruptedException {
+
+        List<String> script = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            script.addAll(List.of("0", "1", "END", "1"));
+        }
+
+        engine.runAll(List.of(script));
+
+        assertEquals(3, engine.getCompleted());
+        assertEquals(100_000 - 3, vm.getProduct("0").getQuantity());
+
+    }
+
+    /**
+     * Testing if concurrent sessions competing for the last units never oversell.
+     * We expect exactly 1,000 of 3,000 sessions to complete against 1,000 units, leaving none reserved.
+     * Test passes because a session only reaches payment after tryReserve() has moved the units into its cart.
+     */
+    @Test
+    public void runAll_noOversellTest() throws InterruptedException {
+
+        vm.getProduct("0").reduceQuantity(100_000 - 1_000);
+
+        List<List<String>> scripts = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            scripts.add(List.of("0", "1", "END", "1"));
+        }
+
+        engine.runAll(scripts);
+
+        assertEquals(1_000, engine.getCompleted());
+        assertEquals(0, vm.getProduct("0").getQuantity());
+        assertEquals(0, vm.getProduct("0").getReserved());
+
+    }
+
+}
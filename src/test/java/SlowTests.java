@@ -0,0 +1,6 @@
+/**
+ * JUnit category for tests that take too long for every build, such as million-row loads and soak runs. They are
+ * left out of the test task and run by the slowTest task.
+ */
+public interface SlowTests {
+}
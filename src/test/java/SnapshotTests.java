@@ -0,0 +1,230 @@
+import money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the Snapshot class.
+ */
+public class SnapshotTests {
+
+    private Path directory;
+    private Path journalFile;
+    private Path snapshotFile;
+
+    /**
+     * Creating an empty directory for the journal and snapshot.
+     */
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("vending");
+        journalFile = directory.resolve("vending.journal");
+        snapshotFile = directory.resolve("vending.journal.snapshot");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path f : files.toArray(Path[]::new)) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Testing if a snapshot round-trips through its file.
+     * We expect every product's ID, name, price, quantity, capacity, par level and category, and the admin IDs, to be
+     * read back.
+     * Test passes because load() reads the fields in the order write() wrote them.
+     */
+    @Test
+    public void writeLoadTest() throws IOException {
+
+        VendingMachine vm = new VendingMachine();
+        vm.getProduct("water").setPrice(Money.of(2.8));
+        vm.addProduct(new Product(15, "Cans", Money.of(2), 20, 24, 6, Category.DRINK));
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.getAdminIDs().add("night shift");
+
+        Snapshot.capture(3, vm, adminSystem).write(snapshotFile);
+        Snapshot loaded = Snapshot.load(snapshotFile);
+
+        assertEquals(3, loaded.getGeneration());
+        assertEquals(Set.of("admin", "night shift"), loaded.getAdminIds());
+        assertEquals(16, loaded.getProducts().size());
+        assertEquals(24, loaded.getProducts().get(15).getCapacity());
+        assertEquals(6, loaded.getProducts().get(15).getParLevel());
+
+        VendingMachine restored = new VendingMachine(new ArrayList<>());
+        loaded.restore(restored, new AdminSystem());
+        assertEquals(vm.displayProducts(true), restored.displayProducts(true));
+
+    }
+
+    /**
+     * Testing if a missing snapshot loads as null and a damaged one is rejected.
+     * We expect null for no file, and an IOException after one byte is changed.
+     * Test passes because load() checks the CRC32 at the end of the file.
+     */
+    @Test
+    public void load_missingOrCorruptTest() throws IOException {
+
+        assertNull(Snapshot.load(snapshotFile));
+
+        Snapshot.capture(1, new VendingMachine(), new AdminSystem()).write(snapshotFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        bytes[20] ^= 1;
+        Files.write(snapshotFile, bytes);
+
+        try {
+            Snapshot.load(snapshotFile);
+            fail("Expected a corrupt snapshot to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("corrupt"));
+        }
+
+    }
+
+    /**
+     * Testing if a checkpoint compacts the journal, and a restart from the snapshot and journal tail loses nothing.
+     * We expect only the newest segment to remain, reserved units to count as stock, and the restarted machine to
+     * match.
+     * Test passes because the checkpoint captures the state at the start of its new segment, then deletes the segments
+     * it covers.
+     */
+    @Test
+    public void checkpoint_compactsJournalTest() throws IOException {
+
+        VendingMachine vm = new VendingMachine();
+        AdminSystem adminSystem = new AdminSystem();
+        adminSystem.setVendingMachine(vm);
+
+        try (Journal journal = new Journal(journalFile)) {
+            journal.replay(vm, adminSystem);
+            vm.setJournal(journal);
+            adminSystem.setJournal(journal);
+
+            List<TransactionPair> cart = List.of(new TransactionPair(vm.getProduct("bbq"), 4));
+            assertTrue(vm.reserve(vm.getProduct("bbq"), 4));
+            vm.commit(cart);
+            vm.setPrice("juice", Money.of(3.9));
+
+            // a cart still open at the checkpoint
+            assertTrue(vm.reserve(vm.getProduct("mars"), 2));
+
+            Snapshot.checkpoint(journal, snapshotFile, vm, adminSystem);
+            assertFalse(Files.exists(journal.segment(1)));
+            assertTrue(Files.exists(journal.segment(2)));
+
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("bbq"), 1)));
+            adminSystem.addAdminId("night shift");
+        }
+
+        VendingMachine restarted = new VendingMachine();
+        AdminSystem restartedAdmin = new AdminSystem();
+        Snapshot snapshot = Snapshot.load(snapshotFile);
+        snapshot.restore(restarted, restartedAdmin);
+        try (Journal journal = new Journal(journalFile)) {
+            assertEquals(2, journal.replay(restarted, restartedAdmin, snapshot.getGeneration()));
+        }
+
+        assertEquals(5, restarted.getProduct("bbq").getQuantity());
+        assertEquals(10, restarted.getProduct("mars").getQuantity());
+        assertEquals(Money.of(3.9), restarted.getProduct("juice").getPrice());
+        assertEquals(Set.of("admin", "night shift"), restartedAdmin.getAdminIDs());
+
+    }
+
+    /**
+     * Testing if a checkpoint is skipped when nothing has been journaled since the last one.
+     * We expect the first checkpoint to write a snapshot, the second to do nothing, and a third after a sale to write
+     * one again.
+     * Test passes because checkpoint() starts no segment while the current one is empty.
+     */
+    @Test
+    public void checkpoint_skipsWhenUnchangedTest() throws IOException {
+
+        VendingMachine vm = new VendingMachine();
+        AdminSystem adminSystem = new AdminSystem();
+
+        try (Journal journal = new Journal(journalFile)) {
+            journal.replay(vm, adminSystem);
+            vm.setJournal(journal);
+
+            vm.fill("original");
+            assertNotNull(Snapshot.checkpoint(journal, snapshotFile, vm, adminSystem));
+            assertEquals(2, journal.getGeneration());
+
+            assertNull(Snapshot.checkpoint(journal, snapshotFile, vm, adminSystem));
+            assertEquals(2, journal.getGeneration());
+
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("mars"), 1)));
+            assertNotNull(Snapshot.checkpoint(journal, snapshotFile, vm, adminSystem));
+            assertEquals(3, journal.getGeneration());
+        }
+
+    }
+
+    /**
+     * Testing if changes made while the products are being copied are neither lost nor applied twice on restart.
+     * We expect a sale, a fill and a price change made after the checkpoint's mark to be replayed once each over the
+     * snapshot.
+     * Test passes because each product changed during the copy is copied as it was before its first change.
+     */
+    @Test
+    public void checkpoint_changesDuringCopyTest() throws IOException {
+
+        VendingMachine vm = new VendingMachine();
+        AdminSystem adminSystem = new AdminSystem();
+        Snapshot snapshot;
+
+        try (Journal journal = new Journal(journalFile)) {
+            journal.replay(vm, adminSystem);
+            vm.setJournal(journal);
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("water"), 2)));
+
+            // the steps of Snapshot.checkpoint(), with changes between the mark and the copy
+            long generation = journal.checkpoint(g -> {
+                vm.beginCapture();
+                return g;
+            });
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("water"), 3)));
+            vm.fill("original");
+            vm.dispenseItems(List.of(new TransactionPair(vm.getProduct("original"), 1)));
+            vm.setPrice("juice", Money.of(4));
+            snapshot = new Snapshot(generation, vm.copyProducts(), adminSystem.getAdminIDs());
+            vm.endCapture();
+
+            assertEquals(8, snapshot.getProducts().get(8).getQuantity());
+            assertEquals(2, snapshot.getProducts().get(0).getQuantity());
+            snapshot.write(snapshotFile);
+        }
+
+        VendingMachine restarted = new VendingMachine();
+        AdminSystem restartedAdmin = new AdminSystem();
+        Snapshot.load(snapshotFile).restore(restarted, restartedAdmin);
+        try (Journal journal = new Journal(journalFile)) {
+            assertEquals(4, journal.replay(restarted, restartedAdmin, snapshot.getGeneration()));
+        }
+
+        assertEquals(5, restarted.getProduct("water").getQuantity());
+        assertEquals(9, restarted.getProduct("original").getQuantity());
+        assertEquals(Money.of(4), restarted.getProduct("juice").getPrice());
+        assertEquals(vm.displayProducts(true), restarted.displayProducts(true));
+
+    }
+
+}
@@ -0,0 +1,196 @@
+import money.Money;
+import org.junit.Test;
+import product.Category;
+import product.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *  Tests for the StockEventBus class.
+ */
+public class StockEventBusTests {
+
+    private Product water = new Product(8, "Water", Money.of(2.5), 10, Category.DRINK);
+
+    /**
+     * Testing if every subscriber receives every event, in order, on its own thread.
+     * We expect two subscribers each to see sequences 0 to 999 in turn, on threads other than the publisher's.
+     * Test passes because each subscriber follows the ring buffer's sequence from where it joined.
+     */
+    @Test
+    public void publish_subscribersTest() throws InterruptedException {
+
+        StockEventBus bus = new StockEventBus(2048);
+        List<List<Long>> seen = new ArrayList<>();
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+
+        for (int i = 0; i < 2; i++) {
+            List<Long> sequences = new ArrayList<>();
+            seen.add(sequences);
+            bus.subscribe("test-" + i, event -> {
+                if (sequences.isEmpty()) {
+                    threads.add(Thread.currentThread());
+                }
+                sequences.add(event.getSequence());
+                assertEquals(StockEvent.Type.LOW_STOCK, event.getType());
+                assertSame(water, event.getProduct());
+                if (sequences.size() == 1_000) {
+                    done.countDown();
+                }
+            });
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            bus.publish(StockEvent.Type.LOW_STOCK, water, i);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Long> sequences : seen) {
+            for (int i = 0; i < 1_000; i++) {
+                assertEquals(i, (long) sequences.get(i));
+            }
+        }
+        assertFalse(threads.contains(Thread.currentThread()));
+        for (StockEventBus.Subscription s : bus.getSubscriptions()) {
+            assertEquals(0, s.getMissed());
+            s.close();
+        }
+
+    }
+
+    /**
+     * Testing if a slow subscriber holds up neither the publisher nor other subscribers.
+     * We expect 100,000 events to publish while one subscriber is stuck, and it to miss events rather than block.
+     * Test passes because publishing never waits, and a subscriber a whole ring behind skips what was overwritten.
+     */
+    @Test
+    public void publish_slowSubscriberTest() throws InterruptedException {
+
+        StockEventBus bus = new StockEventBus(64);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StockEventBus.Subscription slow = bus.subscribe("slow", event -> {
+            stuck.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        bus.publish(StockEvent.Type.SOLD_OUT, water, 0);
+        assertTrue(stuck.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 100_000; i++) {
+            bus.publish(StockEvent.Type.RESTOCKED, water, 10);
+        }
+        assertEquals(100_001, bus.getPublished());
+
+        release.countDown();
+        while (slow.getPosition() < bus.getPublished()) {
+            Thread.sleep(1);
+        }
+        assertTrue(slow.getMissed() >= 100_000 - 64);
+
+        slow.close();
+        assertTrue(bus.getSubscriptions().isEmpty());
+
+    }
+
+    /**
+     * Testing if events from many publishers all arrive, each exactly once.
+     * We expect 4 threads publishing 10,000 events each to deliver 40,000 events with distinct quantities.
+     * Test passes because each publisher claims its own sequence number and slot.
+     */
+    @Test
+    public void publish_concurrentTest() throws InterruptedException {
+
+        StockEventBus bus = new StockEventBus(1 << 16);
+        boolean[] seen = new boolean[40_000];
+        CountDownLatch done = new CountDownLatch(40_000);
+        StockEventBus.Subscription counter = bus.subscribe("counter", event -> {
+            assertFalse(seen[event.getQuantity()]);
+            seen[event.getQuantity()] = true;
+            done.countDown();
+        });
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int first = t * 10_000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    bus.publish(StockEvent.Type.LOW_STOCK, water, first + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        counter.close();
+
+    }
+
+    /**
+     * Testing if publishing with nobody subscribed does nothing.
+     * We expect no events to be counted until the first subscriber joins.
+     * Test passes because the ring buffer is only allocated for the first subscriber.
+     */
+    @Test
+    public void publish_noSubscribersTest() throws InterruptedException {
+
+        StockEventBus bus = new StockEventBus();
+        bus.publish(StockEvent.Type.SOLD_OUT, water, 0);
+        assertEquals(0, bus.getPublished());
+
+        StockEventBus.Subscription s = bus.subscribe("late", event -> { });
+        bus.publish(StockEvent.Type.SOLD_OUT, water, 0);
+        assertEquals(1, bus.getPublished());
+        s.close();
+
+    }
+
+    /**
+     * Testing if an idle subscriber waits without polling, and wakes for the next event.
+     * We expect the subscriber's thread to be parked with no timeout once caught up, then to deliver a later event.
+     * Test passes because a caught-up subscriber parks until a publisher unparks it.
+     */
+    @Test
+    public void publish_idleSubscriberTest() throws InterruptedException {
+
+        StockEventBus bus = new StockEventBus();
+        LinkedBlockingQueue<Long> seen = new LinkedBlockingQueue<>();
+        StockEventBus.Subscription s = bus.subscribe("idle", event -> seen.add(event.getSequence()));
+
+        bus.publish(StockEvent.Type.SOLD_OUT, water, 0);
+        assertEquals(0, (long) seen.poll(10, TimeUnit.SECONDS));
+
+        Thread subscriber = null;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals("stock-events-idle")) {
+                subscriber = t;
+            }
+        }
+        assertNotNull(subscriber);
+        for (int i = 0; i < 1_000 && subscriber.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, subscriber.getState());
+
+        bus.publish(StockEvent.Type.RESTOCKED, water, 10);
+        assertEquals(1, (long) seen.poll(10, TimeUnit.SECONDS));
+        s.close();
+
+    }
+
+}
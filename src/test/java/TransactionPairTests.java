@@ -1,5 +1,6 @@
 import org.junit.Before;
 import org.junit.Test;
+import money.Money;
 import product.Category;
 import product.Product;
 
@@ -50,7 +51,7 @@ public class TransactionPairTests {
      */
     @Test
     public void getTotalPriceTest() {
-        assertEquals(16.0, tp.getTotalPrice(), 0);
+        assertEquals(Money.of(16), tp.getTotalPrice());
     }
 
     /**
@@ -1,10 +1,19 @@
 import org.junit.Before;
 import org.junit.Test;
+import money.Money;
+import product.Category;
+import product.Product;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  *  Tests for the VendingMachine class.
@@ -287,7 +296,7 @@ public class VendingMachineTests {
      */
     @Test
     public void grandTotal_emptyTest() {
-        assertEquals(0, vm.grandTotal(tp), 0);
+        assertEquals(Money.ZERO, vm.grandTotal(tp));
 
     }
 
@@ -302,7 +311,95 @@ public class VendingMachineTests {
         tp.add(new TransactionPair(vm.getProduct("original"), 1));
         tp.add(new TransactionPair(vm.getProduct("original"), 1));
 
-        assertEquals(10, vm.grandTotal(tp), 0);
+        assertEquals(Money.of(10), vm.grandTotal(tp));
+    }
+
+    /**
+     * Testing if addProduct() and removeProduct() keep lookups in sync.
+     * We expect a new Product to be found by ID and name, and to disappear after removal.
+     * Test passes because both methods update the stock set and the product index together.
+     */
+    @Test
+    public void addRemoveProductTest() {
+
+        vm.addProduct(new Product(15, "Snickers", 1, 10, Category.CHOCOLATE));
+        assertEquals("Snickers", vm.getProduct("15").getName());
+        assertEquals(15, vm.getProduct("snickers").getId());
+
+        assertEquals("Snickers", vm.removeProduct(15).getName());
+        assertNull(vm.getProduct("15"));
+        assertNull(vm.getProduct("snickers"));
+        assertFalse(vm.fill("snickers"));
+
+    }
+
+    /**
+     * Testing if displayCategory() lists only that category, and follows products being added, removed and sold out.
+     * We expect the drinks in ID order, then Snickers added to chocolate, then Water hidden once sold out.
+     * Test passes because the category index and its listing are updated alongside the stock set.
+     */
+    @Test
+    public void displayCategoryTest() {
+
+        assertEquals("\nAvailable selections in DRINK:\n" +
+                "[ID 8] Water - $2.50 (10 item(s) in stock)\n" +
+                "[ID 9] Soft Drink - $3.00 (10 item(s) in stock)\n" +
+                "[ID 10] Juice - $3.50 (10 item(s) in stock)\n", vm.displayCategory(Category.DRINK, false));
+
+        vm.addProduct(new Product(15, "Snickers", 1, 10, Category.CHOCOLATE));
+        vm.removeProduct(11);
+        assertEquals("\nAvailable selections in CHOCOLATE:\n" +
+                "[ID 12] Bounty - $1.00 (10 item(s) in stock)\n" +
+                "[ID 13] Mars - $1.00 (10 item(s) in stock)\n" +
+                "[ID 14] Sneakers - $1.00 (10 item(s) in stock)\n" +
+                "[ID 15] Snickers - $1.00 (10 item(s) in stock)\n", vm.displayCategory(Category.CHOCOLATE, false));
+
+        vm.getProduct("water").reduceQuantity(10);
+        assertEquals("\nAvailable selections in DRINK:\n" +
+                "[ID 9] Soft Drink - $3.00 (10 item(s) in stock)\n" +
+                "[ID 10] Juice - $3.50 (10 item(s) in stock)\n", vm.displayCategory(Category.DRINK, false));
+        assertEquals("\nProducts:\n" +
+                "[ID 8] Water - $2.50 (0 item(s) in stock)\n" +
+                "[ID 9] Soft Drink - $3.00 (10 item(s) in stock)\n" +
+                "[ID 10] Juice - $3.50 (10 item(s) in stock)\n", vm.displayCategory(Category.DRINK, true));
+
+    }
+
+    /**
+     * Testing if stock changes are published as events to a subscriber, and reservations are not.
+     * We expect low stock, sold out, restocked and price changed, in that order, with the units and price after each,
+     * and nothing for a cart that empties the coil and is then cancelled.
+     * Test passes because events follow the units in the machine, which only a sale, fill or price change moves.
+     */
+    @Test
+    public void getStockEvents_publishTest() throws InterruptedException {
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        StockEventBus.Subscription subscription = vm.getStockEvents().subscribe("test", event ->
+                events.add(event.getType() + " " + event.getQuantity() + " " + event.getPrice()));
+
+        Product water = vm.getProduct("water");
+        // a cart taking the whole coil, then cancelled
+        assertTrue(vm.reserve(water, 10));
+        vm.release(List.of(new TransactionPair(water, 10)));
+        // a sale still at par, the first below par, then the rest of the coil
+        vm.dispenseItems(List.of(new TransactionPair(water, 5)));
+        assertTrue(vm.reserve(water, 1));
+        vm.commit(List.of(new TransactionPair(water, 1)));
+        assertTrue(vm.reserve(water, 4));
+        vm.commit(List.of(new TransactionPair(water, 4)));
+        vm.fill("water");
+        vm.setPrice("water", Money.of(3));
+
+        List<String> received = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            received.add(events.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("LOW_STOCK 4 $2.50", "SOLD_OUT 0 $2.50", "RESTOCKED 10 $2.50", "PRICE_CHANGED 10 $3.00"),
+                received);
+        assertNull(events.poll(10, TimeUnit.MILLISECONDS));
+        subscription.close();
+
     }
 
 }